@@ -0,0 +1,133 @@
+package net.povstalec.stellarview.client.render;
+
+import net.povstalec.stellarview.api.common.SpaceRegion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the Space Regions to render during a frame with SpaceRegionIndex, compared to the HashMap scans SpaceRenderer used to do.
+ * The scans went through every region for the Dust Cloud pass, the Space Object pass and the lensing pass,
+ * the index is queried once and its result is walked by each pass instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SpaceRegionIndexBenchmark
+{
+	private static final int EXTENT = 20;
+	
+	@Param({"500", "5000"})
+	public int regions;
+	
+	@Param({"8"})
+	public int range;
+	
+	private final HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer> map = new HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer>();
+	private final SpaceRegionIndex index = new SpaceRegionIndex();
+	
+	private long frame = 0;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Random random = new Random(0);
+		
+		while(map.size() < regions)
+		{
+			SpaceRegion.RegionPos pos = new SpaceRegion.RegionPos(random.nextInt(EXTENT * 2) - EXTENT, random.nextInt(EXTENT * 2) - EXTENT, random.nextInt(EXTENT * 2) - EXTENT);
+			SpaceRegionRenderer region = new SpaceRegionRenderer(new SpaceRegion(pos));
+			
+			map.put(pos, region);
+			index.put(region);
+		}
+	}
+	
+	@Benchmark
+	public void hashMapScans(Blackhole blackhole)
+	{
+		SpaceRegion.RegionPos pos = new SpaceRegion.RegionPos(0, 0, 0);
+		
+		// Dust Clouds
+		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : map.entrySet())
+		{
+			if(spaceRegionEntry.getKey().isInRange(pos, range))
+				blackhole.consume(spaceRegionEntry.getValue());
+		}
+		
+		// Space Objects, the region the View Center is in goes last
+		SpaceRegionRenderer centerRegion = null;
+		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : map.entrySet())
+		{
+			if(!spaceRegionEntry.getKey().equals(pos))
+			{
+				if(spaceRegionEntry.getKey().isInRange(pos, range))
+					blackhole.consume(spaceRegionEntry.getValue());
+			}
+			else
+				centerRegion = spaceRegionEntry.getValue();
+		}
+		blackhole.consume(centerRegion);
+		
+		// Lensing
+		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : map.entrySet())
+		{
+			blackhole.consume(spaceRegionEntry.getValue());
+		}
+	}
+	
+	private static void walkQuery(SpaceRegionIndex.Query query, Blackhole blackhole)
+	{
+		// Dust Clouds and Space Objects farthest-first, then lensing
+		for(int i = query.size() - 1; i >= 0; i--)
+		{
+			blackhole.consume(query.get(i));
+		}
+		for(int i = query.size() - 1; i >= 0; i--)
+		{
+			blackhole.consume(query.get(i));
+		}
+		for(int i = 0; i < query.size(); i++)
+		{
+			blackhole.consume(query.get(i));
+		}
+	}
+	
+	/**
+	 * The View Center moves into a different region every frame, so the query is searched for again each time
+	 */
+	@Benchmark
+	public void indexQueryUncached(Blackhole blackhole)
+	{
+		long x = frame++ & 1;
+		
+		walkQuery(index.query(x, 0, 0, range), blackhole);
+	}
+	
+	/**
+	 * The View Center stays in the same region, which is what happens during nearly every frame
+	 */
+	@Benchmark
+	public void indexQueryCached(Blackhole blackhole)
+	{
+		walkQuery(index.query(0, 0, 0, range), blackhole);
+	}
+}
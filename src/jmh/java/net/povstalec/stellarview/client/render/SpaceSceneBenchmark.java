@@ -0,0 +1,206 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.datafixers.util.Either;
+import net.minecraft.client.Camera;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.util.AxisRotation;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless SpaceScene with 10 000 orbiting objects, timing the per-frame update (positions and draw order) without any OpenGL.
+ * "deep" is 100 systems of 9 planets with 10 moons each, "wide" is a single object with 9 999 children.
+ * The View Center is only used for its ticks, {@link SpaceScene#prepare(ViewCenter, ClientLevel, float)} reads the config and isn't called,
+ * so the scene is viewed from the center of the region without any rotation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SpaceSceneBenchmark
+{
+	@Param({"deep", "wide"})
+	public String shape;
+	
+	private ViewCenter viewCenter;
+	private SpaceScene scene;
+	private int[] roots;
+	
+	private float partialTicks = 0;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Random random = new Random(0);
+		ArrayList<SpaceObjectRenderer> rootRenderers = new ArrayList<SpaceObjectRenderer>();
+		
+		if(shape.equals("deep"))
+		{
+			for(int i = 0; i < 100; i++)
+			{
+				OrbitingRenderer star = new OrbitingRenderer(random, 100000000, 0);
+				for(int j = 0; j < 9; j++)
+				{
+					OrbitingRenderer planet = new OrbitingRenderer(random, 0, 500000000);
+					for(int k = 0; k < 10; k++)
+					{
+						planet.addChild(new OrbitingRenderer(random, 0, 2000000));
+					}
+					star.addChild(planet);
+				}
+				rootRenderers.add(star);
+			}
+		}
+		else
+		{
+			OrbitingRenderer star = new OrbitingRenderer(random, 100000000, 0);
+			for(int i = 0; i < 9999; i++)
+			{
+				star.addChild(new OrbitingRenderer(random, 0, 500000000));
+			}
+			rootRenderers.add(star);
+		}
+		
+		viewCenter = new ViewCenter(Optional.empty(), Optional.empty(), new AxisRotation(), 0, null, null, null, null, false, false, false, 1);
+		scene = new SpaceScene(rootRenderers);
+		
+		roots = new int[rootRenderers.size()];
+		for(int i = 0, index = 0; i < roots.length; i++)
+		{
+			roots[i] = index;
+			index += 1 + countDescendants(rootRenderers.get(i));
+		}
+	}
+	
+	private static int countDescendants(SpaceObjectRenderer renderer)
+	{
+		int descendants = 0;
+		for(Object child : renderer.children())
+		{
+			descendants += 1 + countDescendants((SpaceObjectRenderer) child);
+		}
+		
+		return descendants;
+	}
+	
+	// Every frame has different partial ticks, so no object can reuse the position of the last frame
+	private float nextPartialTicks()
+	{
+		partialTicks += 0.001F;
+		if(partialTicks >= 1)
+			partialTicks = 0;
+		
+		return partialTicks;
+	}
+	
+	@Benchmark
+	public int update()
+	{
+		float partialTicks = nextPartialTicks();
+		int drawn = 0;
+		
+		for(int root : roots)
+		{
+			drawn += scene.update(viewCenter, root, partialTicks);
+		}
+		
+		return drawn;
+	}
+	
+	@Benchmark
+	public void updateAndWalkDrawOrder(Blackhole blackhole)
+	{
+		float partialTicks = nextPartialTicks();
+		
+		for(int root : roots)
+		{
+			int count = scene.update(viewCenter, root, partialTicks);
+			
+			// What rendering reads for every object, in draw order
+			for(int i = 0; i < count; i++)
+			{
+				int index = scene.drawOrder(i);
+				blackhole.consume(scene.distance(index));
+				blackhole.consume(scene.skyPosition(index, 100).theta);
+			}
+		}
+	}
+	
+	//============================================================================================
+	//****************************************Test objects****************************************
+	//============================================================================================
+	
+	private static class TestObject extends SpaceObject
+	{
+		private TestObject(SpaceCoords coords)
+		{
+			super(Optional.empty(), Either.left(coords), new AxisRotation());
+		}
+	}
+	
+	/**
+	 * Moves along a circular orbit in the XZ plane, doesn't render anything
+	 */
+	private static class OrbitingRenderer extends SpaceObjectRenderer<TestObject>
+	{
+		private final float orbitRadius;
+		private final float phase;
+		private final float angularSpeed;
+		
+		private OrbitingRenderer(Random random, long maxLy, float orbitRadius)
+		{
+			super(new TestObject(maxLy > 0 ? new SpaceCoords(random.nextLong(-maxLy, maxLy), random.nextLong(-maxLy, maxLy), random.nextLong(-maxLy, maxLy)) : new SpaceCoords()));
+			
+			this.orbitRadius = orbitRadius * (0.5F + random.nextFloat());
+			this.phase = random.nextFloat() * 2 * (float) Math.PI;
+			this.angularSpeed = 0.001F + random.nextFloat() * 0.01F;
+		}
+		
+		@Override
+		public Vector3f getPosition(ViewCenter viewCenter, AxisRotation axisRotation, long ticks, float partialTicks, Vector3f dest)
+		{
+			return getPosition(viewCenter, ticks, partialTicks, dest);
+		}
+		
+		@Override
+		public Vector3f getPosition(ViewCenter viewCenter, long ticks, float partialTicks, Vector3f dest)
+		{
+			if(orbitRadius == 0)
+				return dest.zero();
+			
+			float angle = phase + (ticks + partialTicks) * angularSpeed;
+			
+			return dest.set(orbitRadius * (float) Math.cos(angle), 0, orbitRadius * (float) Math.sin(angle));
+		}
+		
+		@Override
+		public void renderObject(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
+								 Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
+								 SpaceScene scene, int index) {}
+	}
+}
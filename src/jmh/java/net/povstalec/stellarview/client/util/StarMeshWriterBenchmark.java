@@ -0,0 +1,149 @@
+package net.povstalec.stellarview.client.util;
+
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.ByteBufferBuilder;
+import com.mojang.blaze3d.vertex.MeshData;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing Star (no texture) and Dust Cloud (texture) quads with {@link StarMeshWriter} compared to the BufferBuilder path it replaced.
+ * Only the CPU side is measured, uploading either buffer to the GPU costs the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class StarMeshWriterBenchmark
+{
+	@Param({"10000", "100000"})
+	public int quads;
+	
+	@Param({"false", "true"})
+	public boolean hasTexture;
+	
+	private float[] x;
+	private float[] y;
+	private float[] z;
+	private int[] rgba;
+	private float[] sinRandoms;
+	private float[] cosRandoms;
+	private float[] sizes;
+	
+	private VertexFormat format;
+	private ByteBufferBuilder byteBuffer;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Random random = new Random(0);
+		
+		x = new float[quads];
+		y = new float[quads];
+		z = new float[quads];
+		rgba = new int[quads];
+		sinRandoms = new float[quads];
+		cosRandoms = new float[quads];
+		sizes = new float[quads];
+		
+		for(int i = 0; i < quads; i++)
+		{
+			double angle = random.nextDouble() * 2 * Math.PI;
+			
+			x[i] = (random.nextFloat() - 0.5F) * 200000;
+			y[i] = (random.nextFloat() - 0.5F) * 200000;
+			z[i] = (random.nextFloat() - 0.5F) * 200000;
+			rgba[i] = random.nextInt();
+			sinRandoms[i] = (float) Math.sin(angle);
+			cosRandoms[i] = (float) Math.cos(angle);
+			sizes[i] = 0.2F + random.nextFloat();
+		}
+		
+		format = hasTexture ? StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get() : StellarViewVertexFormat.STAR_POS_COLOR_LY.get();
+		// The Tesselator keeps its buffer between meshes, so this one is only allocated once too
+		byteBuffer = new ByteBufferBuilder(quads * 4 * format.getVertexSize());
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		byteBuffer.close();
+	}
+	
+	@Benchmark
+	public void starMeshWriter(Blackhole blackhole)
+	{
+		try(StarMeshWriter mesh = new StarMeshWriter(quads, hasTexture))
+		{
+			for(int i = 0; i < quads; i++)
+			{
+				mesh.quad(x[i], y[i], z[i], rgba[i], sinRandoms[i], cosRandoms[i], sizes[i]);
+			}
+			
+			blackhole.consume(mesh.buffer());
+		}
+	}
+	
+	@Benchmark
+	public void bufferBuilder(Blackhole blackhole)
+	{
+		BufferBuilder builder = new BufferBuilder(byteBuffer, VertexFormat.Mode.QUADS, format);
+		
+		for(int i = 0; i < quads; i++)
+		{
+			addQuad(builder, i);
+		}
+		
+		try(MeshData mesh = builder.build())
+		{
+			blackhole.consume(mesh.vertexBuffer());
+		}
+	}
+	
+	// The way StarData and DustCloudData wrote their quads before StarMeshWriter
+	private void addQuad(BufferBuilder builder, int i)
+	{
+		for(int j = 0; j < 4; ++j)
+		{
+			double aLocation = (j & 2) - 1;
+			double bLocation = (j + 1 & 2) - 1;
+			
+			double height = aLocation * cosRandoms[i] - bLocation * sinRandoms[i];
+			double width = bLocation * cosRandoms[i] + aLocation * sinRandoms[i];
+			
+			builder.addVertex(x[i], y[i], z[i])
+					.setColor(rgba[i] & 0xFF, rgba[i] >>> 8 & 0xFF, rgba[i] >>> 16 & 0xFF, rgba[i] >>> 24);
+			
+			long element = builder.beginElement(StellarViewVertexFormat.ELEMENT_HEIGHT_WIDTH_SIZE.get());
+			if(element != -1L)
+			{
+				MemoryUtil.memPutFloat(element, (float) height);
+				MemoryUtil.memPutFloat(element + Float.BYTES, (float) width);
+				MemoryUtil.memPutFloat(element + Float.BYTES * 2, sizes[i]);
+			}
+			
+			if(hasTexture)
+				builder.setUv((float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F);
+		}
+	}
+}
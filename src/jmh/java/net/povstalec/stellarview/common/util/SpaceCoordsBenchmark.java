@@ -0,0 +1,157 @@
+package net.povstalec.stellarview.common.util;
+
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In place SpaceCoords methods and SpaceCoordsArray compared to the allocating SpaceCoords methods they replace on hot paths.
+ * Run with -PjmhArgs="SpaceCoordsBenchmark -prof gc" to also see how much each of them allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SpaceCoordsBenchmark
+{
+	@Param({"1000", "10000"})
+	public int size;
+	
+	private SpaceCoords[] coords;
+	private SpaceCoordsArray coordsArray;
+	private Vector3f[] movements;
+	
+	private SpaceCoords origin;
+	private SpaceCoords moved;
+	
+	private final Vector3d relative = new Vector3d();
+	private double[] relativeArray;
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Random random = new Random(0);
+		
+		coords = new SpaceCoords[size];
+		coordsArray = new SpaceCoordsArray(size);
+		movements = new Vector3f[size];
+		relativeArray = new double[size * 3];
+		
+		for(int i = 0; i < size; i++)
+		{
+			coords[i] = new SpaceCoords(random.nextLong(-100000, 100000), random.nextLong(-100000, 100000), random.nextLong(-100000, 100000),
+					(random.nextDouble() - 0.5) * SpaceCoords.KM_PER_LY, (random.nextDouble() - 0.5) * SpaceCoords.KM_PER_LY, (random.nextDouble() - 0.5) * SpaceCoords.KM_PER_LY);
+			coordsArray.set(i, coords[i]);
+			movements[i] = new Vector3f(random.nextFloat() * 1000, random.nextFloat() * 1000, random.nextFloat() * 1000);
+		}
+		
+		origin = new SpaceCoords(12345, -6789, 42, 1.5E12, -3.25E12, 7E11);
+	}
+	
+	@Setup(Level.Iteration)
+	public void resetMoved()
+	{
+		moved = origin.copy();
+	}
+	
+	//============================================================================================
+	//************************************Relative coordinates************************************
+	//============================================================================================
+	
+	@Benchmark
+	public void relativeKmAllocating(Blackhole blackhole)
+	{
+		for(SpaceCoords coordinates : coords)
+		{
+			SpaceCoords difference = coordinates.sub(origin);
+			blackhole.consume(new Vector3d(difference.x().toKm(), difference.y().toKm(), difference.z().toKm()));
+		}
+	}
+	
+	@Benchmark
+	public void relativeKmInPlace(Blackhole blackhole)
+	{
+		for(SpaceCoords coordinates : coords)
+		{
+			blackhole.consume(coordinates.relativeKm(origin, relative));
+		}
+	}
+	
+	@Benchmark
+	public void relativeKmArray(Blackhole blackhole)
+	{
+		coordsArray.relativeKm(0, size, origin, relativeArray);
+		blackhole.consume(relativeArray);
+	}
+	
+	@Benchmark
+	public void lyDistanceSquaredAllocating(Blackhole blackhole)
+	{
+		for(SpaceCoords coordinates : coords)
+		{
+			blackhole.consume(coordinates.sub(origin).lyDistanceSquared());
+		}
+	}
+	
+	@Benchmark
+	public void lyDistanceSquaredInPlace(Blackhole blackhole)
+	{
+		for(SpaceCoords coordinates : coords)
+		{
+			blackhole.consume(coordinates.lyDistanceSquared(origin));
+		}
+	}
+	
+	@Benchmark
+	public void lyDistanceSquaredArray(Blackhole blackhole)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			blackhole.consume(coordsArray.lyDistanceSquared(i, origin));
+		}
+	}
+	
+	//============================================================================================
+	//*******************************************Moving*******************************************
+	//============================================================================================
+	
+	@Benchmark
+	public SpaceCoords moveAllocating()
+	{
+		SpaceCoords position = moved;
+		for(Vector3f movement : movements)
+		{
+			position = position.add(movement);
+		}
+		
+		return position;
+	}
+	
+	@Benchmark
+	public SpaceCoords moveInPlace()
+	{
+		for(Vector3f movement : movements)
+		{
+			moved.addInPlace(movement);
+		}
+		
+		return moved;
+	}
+}
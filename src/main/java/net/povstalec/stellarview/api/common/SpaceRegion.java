@@ -94,9 +94,36 @@ public class SpaceRegion implements INBTSerializable<CompoundTag>
 		
 		public RegionPos(SpaceCoords coords)
 		{
-			this(	(coords.x().ly() - LY_PER_REGION_HALF) / LY_PER_REGION,
-					(coords.y().ly() - LY_PER_REGION_HALF) / LY_PER_REGION,
-					(coords.z().ly() - LY_PER_REGION_HALF) / LY_PER_REGION);
+			this(toRegion(coords.x().ly()), toRegion(coords.y().ly()), toRegion(coords.z().ly()));
+		}
+		
+		/**
+		 * @param ly Light year coordinate
+		 * @return Region coordinate containing the light year coordinate
+		 */
+		public static long toRegion(long ly)
+		{
+			return (ly - LY_PER_REGION_HALF) / LY_PER_REGION;
+		}
+		
+		/**
+		 * Mixes all bits of the coordinates, so that neighboring regions are spread evenly over hash tables
+		 * @return 64-bit hash of the region coordinates
+		 */
+		public static long hash(long x, long y, long z)
+		{
+			long hash = x * 0x9E3779B97F4A7C15L;
+			hash = (hash ^ y) * 0xC2B2AE3D27D4EB4FL;
+			hash = (hash ^ z) * 0x165667B19E3779F9L;
+			
+			// Finalizer of MurmurHash3
+			hash ^= hash >>> 33;
+			hash *= 0xFF51AFD7ED558CCDL;
+			hash ^= hash >>> 33;
+			hash *= 0xC4CEB9FE1A85EC53L;
+			hash ^= hash >>> 33;
+			
+			return hash;
 		}
 		
 		public long x()
@@ -146,10 +173,7 @@ public class SpaceRegion implements INBTSerializable<CompoundTag>
 		@Override
 		public final int hashCode()
 		{
-			int result = (int) x;
-			result = 31 * result + (int) y;
-			result = 31 * result + (int) z;
-			return result;
+			return Long.hashCode(hash(x, y, z));
 		}
 		
 		@Override
@@ -17,6 +17,7 @@ import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 
 import net.povstalec.stellarview.common.util.AxisRotation;
+import net.povstalec.stellarview.common.util.OrbitEvaluator;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import net.povstalec.stellarview.common.util.StellarCoordinates;
 import net.povstalec.stellarview.common.util.TextureLayer;
@@ -198,6 +199,8 @@ public class OrbitingObject extends TexturedObject
 		
 		private final Matrix4f orbitMatrix;
 		
+		private OrbitEvaluator evaluator;
+		
 		public OrbitInfo(float apoapsis, float periapsis, float orbitClampDistance,
 				OrbitalPeriod orbitalPeriod,
 				float argumentOfPeriapsis,
@@ -216,11 +219,12 @@ public class OrbitingObject extends TexturedObject
 			this.longtitudeOfAscendingNode = (float) Math.toRadians(longtitudeOfAscendingNode);
 			
 			this.epochMeanAnomaly = (float) Math.toRadians(meanAnomaly);
-			setupSweep();
 			
 			this.eccentricity = (apoapsis - periapsis) / (apoapsis + periapsis);
 			
 			this.orbitMatrix = orbitMatrix();
+			
+			setupSweep();
 		}
 		
 		public float apoapsis()
@@ -241,6 +245,13 @@ public class OrbitingObject extends TexturedObject
 		public void setupSweep()
 		{
 			this.sweep = (float) ((2 * Math.PI) * orbitalPeriod().frequency());;
+			// The period changes for synodic orbits, so the evaluator is replaced along with the sweep
+			this.evaluator = new OrbitEvaluator(orbitMatrix, eccentricity, epochMeanAnomaly, sweep, orbitalPeriod().ticks());
+		}
+		
+		public OrbitEvaluator evaluator()
+		{
+			return evaluator;
 		}
 		
 		public OrbitalPeriod orbitalPeriod()
@@ -275,36 +286,43 @@ public class OrbitingObject extends TexturedObject
 		
 		public Vector3f getOrbitVector(long ticks, float partialTicks)
 		{
-			Vector3f orbitVector = new Vector3f(INITIAL_ORBIT_VECTOR);
-			
-			float trueAnomaly = (float) eccentricAnomaly(ticks, partialTicks);
-			
-			orbitVector.mulProject(movementMatrix(trueAnomaly));
-			orbitVector.mulProject(orbitMatrix);
-			
-			return orbitVector;
+			return getOrbitVector(ticks, partialTicks, new Vector3f());
+		}
+		
+		/**
+		 * Same as {@link #getOrbitVector(long, float)}, but the result is written into dest instead of a new vector
+		 */
+		public Vector3f getOrbitVector(long ticks, float partialTicks, Vector3f dest)
+		{
+			return evaluator.position(ticks, partialTicks, GeneralConfig.tick_multiplier.get(), dest);
 		}
 		
 		public Vector3f getOrbitVector(long ticks, float partialTicks, double distance)
 		{
-			if(orbitClampDistance > 0 && distance > orbitClampDistance)
-			{
-				float mul = (float) distance / orbitClampDistance;
-				
-				return getOrbitVector(ticks, partialTicks).mulProject(new Matrix4f().scale(mul, mul, mul));
-			}
-			
-			return getOrbitVector(ticks, partialTicks);
+			return getOrbitVector(ticks, partialTicks, distance, new Vector3f());
+		}
+		
+		/**
+		 * Same as {@link #getOrbitVector(long, float, double)}, but the result is written into dest instead of a new vector
+		 */
+		public Vector3f getOrbitVector(long ticks, float partialTicks, double distance, Vector3f dest)
+		{
+			return evaluator.clampedPosition(ticks, partialTicks, GeneralConfig.tick_multiplier.get(), distance, orbitClampDistance, dest);
 		}
 		
 		public double meanAnomaly(long ticks, float partialTicks)
 		{
-			return epochMeanAnomaly + sweep * (ticks - GeneralConfig.tick_multiplier.get() + partialTicks);
+			return meanAnomaly(ticks, partialTicks, GeneralConfig.tick_multiplier.get());
+		}
+		
+		public double meanAnomaly(long ticks, float partialTicks, int tickMultiplier)
+		{
+			return epochMeanAnomaly + sweep * (ticks - tickMultiplier + partialTicks);
 		}
 		
 		public double eccentricAnomaly(long ticks, float partialTicks)
 		{
-			return approximateEccentricAnomaly(eccentricity, meanAnomaly(ticks % orbitalPeriod().ticks(), partialTicks), 4); // 4 chosen as an arbitrary number
+			return evaluator.eccentricAnomaly(ticks, partialTicks, GeneralConfig.tick_multiplier.get());
 		}
 		
 		// Moves a point along a unit circle, starting from the mean anomaly
@@ -358,6 +376,7 @@ public class OrbitingObject extends TexturedObject
 		 * @param meanAnomaly
 		 * @param iterations
 		 * @return
+		 * @see OrbitEvaluator#solveKepler(double, double, double) for a version that stops once the result is precise enough
 		 */
 		public static double approximateEccentricAnomaly(double eccentricity, double meanAnomaly, int iterations)
 		{
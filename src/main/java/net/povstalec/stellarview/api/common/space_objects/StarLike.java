@@ -72,7 +72,7 @@ public abstract class StarLike extends OrbitingObject
 		return size;
 	}
 	
-	public Color.FloatRGBA starRGBA(double lyDistance)
+	public float starAlpha(double lyDistance)
 	{
 		float alpha = getMaxStarAlpha();
 		
@@ -81,7 +81,20 @@ public abstract class StarLike extends OrbitingObject
 		if(alpha < getMinStarAlpha())
 				alpha = getMinStarAlpha();
 		
-		return new Color.FloatRGBA(1, 1, 1, alpha);
+		return alpha;
+	}
+	
+	public Color.FloatRGBA starRGBA(double lyDistance)
+	{
+		return new Color.FloatRGBA(1, 1, 1, starAlpha(lyDistance));
+	}
+	
+	/**
+	 * Same as {@link #starRGBA(double)}, packed with {@link Color#packARGB(float, float, float, float)}
+	 */
+	public int packedStarRGBA(double lyDistance)
+	{
+		return Color.packARGB(1, 1, 1, starAlpha(lyDistance));
 	}
 	
 	//============================================================================================
@@ -196,6 +209,26 @@ public abstract class StarLike extends OrbitingObject
 			return maxVisibleDistance;
 		}
 		
+		public float getMinSize()
+		{
+			return minSize;
+		}
+		
+		public float getMaxSize()
+		{
+			return maxSize;
+		}
+		
+		public short getMinBrightness()
+		{
+			return minBrightness;
+		}
+		
+		public short getMaxBrightness()
+		{
+			return maxBrightness;
+		}
+		
 		//============================================================================================
 		//*************************************Saving and Loading*************************************
 		//============================================================================================
@@ -16,11 +16,9 @@ import net.minecraft.resources.ResourceKey;
 import net.minecraft.world.level.Level;
 
 import net.povstalec.stellarview.common.util.AxisRotation;
-import net.povstalec.stellarview.common.util.Color;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import net.povstalec.stellarview.common.util.StellarCoordinates;
 import net.povstalec.stellarview.common.util.TextureLayer;
-import net.povstalec.stellarview.compatibility.enhancedcelestials.EnhancedCelestialsCompatibility;
 
 /**
  * A subtype of planet that should be compatible with enhanced celestials
@@ -59,22 +57,13 @@ public class Moon extends Planet
 		return Optional.ofNullable(compatibility);
 	}
 	
-	public float sizeMultiplier(ClientLevel level)
+	/**
+	 * @return True if the Moon is being viewed from the dimension where Enhanced Celestials lunar events change how it looks
+	 */
+	public boolean isEnhancedCelestialsMoon(ClientLevel level)
 	{
-		// If the Moon is being viewed from the correct dimension, make it larger
-		if(getCompatibility().isPresent() && level.dimension().equals(getCompatibility().get().enhancedCelestialsMoonDimension))
-			return EnhancedCelestialsCompatibility.getMoonSize(level, 20) / 20F;
-		
-		return 1F;
-	}
-	
-	public Color.FloatRGBA moonRGBA(ClientLevel level, float partialTicks)
-	{
-		// If the Moon is being viewed from the correct dimension, color it differently
-		if(getCompatibility().isPresent() && level.dimension().equals(getCompatibility().get().enhancedCelestialsMoonDimension))
-			return EnhancedCelestialsCompatibility.getMoonColor(level, partialTicks);
-		
-		return new Color.FloatRGBA(1F, 1F, 1F);
+		// Reads the field directly, since this is checked for every Moon during every frame
+		return compatibility != null && level.dimension().equals(compatibility.enhancedCelestialsMoonDimension);
 	}
 	
 	//============================================================================================
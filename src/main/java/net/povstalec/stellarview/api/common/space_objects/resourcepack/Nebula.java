@@ -85,7 +85,7 @@ public class Nebula extends TexturedObject
 		return size;
 	}
 	
-	public Color.FloatRGBA nebulaRGBA(double lyDistance)
+	public float nebulaAlpha(double lyDistance)
 	{
 		float alpha = getMaxNebulaAlpha();
 		
@@ -94,7 +94,20 @@ public class Nebula extends TexturedObject
 		if(alpha < getMinNebulaAlpha())
 				alpha = getMinNebulaAlpha();
 		
-		return new Color.FloatRGBA(1, 1, 1, alpha);
+		return alpha;
+	}
+	
+	public Color.FloatRGBA nebulaRGBA(double lyDistance)
+	{
+		return new Color.FloatRGBA(1, 1, 1, nebulaAlpha(lyDistance));
+	}
+	
+	/**
+	 * Same as {@link #nebulaRGBA(double)}, packed with {@link Color#packARGB(float, float, float, float)}
+	 */
+	public int packedNebulaRGBA(double lyDistance)
+	{
+		return Color.packARGB(1, 1, 1, nebulaAlpha(lyDistance));
 	}
 	
 	//============================================================================================
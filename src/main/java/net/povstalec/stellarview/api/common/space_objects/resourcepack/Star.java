@@ -92,19 +92,30 @@ public class Star extends StarLike
 	}
 	
 	
-	public Color.FloatRGBA supernovaRGBA(long ticks, double lyDistance)
+	public float supernovaAlpha(long ticks, double lyDistance)
 	{
-		Color.FloatRGBA starRGBA = super.starRGBA(lyDistance);
+		float starAlpha = super.starAlpha(lyDistance);
 		
 		if(!isSupernova() || supernovaInfo.supernovaEnded(ticks) || !supernovaInfo.supernovaStarted(ticks))
-			return starRGBA;
-		
-		float alphaDif = Color.MAX_FLOAT_VALUE - starRGBA.alpha(); // Difference between current star alpha and max alpha
+			return starAlpha;
 		
-		float alpha = starRGBA.alpha() + alphaDif * (float) Math.sin(Math.PI * supernovaInfo.lifetime(ticks) / supernovaInfo.getDurationTicks());
-		starRGBA.setAlpha(alpha <= Color.MIN_FLOAT_VALUE ? Color.MIN_FLOAT_VALUE : alpha >= Color.MAX_FLOAT_VALUE ? Color.MAX_FLOAT_VALUE : alpha);
+		float alphaDif = Color.MAX_FLOAT_VALUE - starAlpha; // Difference between current star alpha and max alpha
 		
-		return starRGBA;
+		float alpha = starAlpha + alphaDif * (float) Math.sin(Math.PI * supernovaInfo.lifetime(ticks) / supernovaInfo.getDurationTicks());
+		return alpha <= Color.MIN_FLOAT_VALUE ? Color.MIN_FLOAT_VALUE : alpha >= Color.MAX_FLOAT_VALUE ? Color.MAX_FLOAT_VALUE : alpha;
+	}
+	
+	public Color.FloatRGBA supernovaRGBA(long ticks, double lyDistance)
+	{
+		return new Color.FloatRGBA(1, 1, 1, supernovaAlpha(ticks, lyDistance));
+	}
+	
+	/**
+	 * Same as {@link #supernovaRGBA(long, double)}, packed with {@link Color#packARGB(float, float, float, float)}
+	 */
+	public int packedSupernovaRGBA(long ticks, double lyDistance)
+	{
+		return Color.packARGB(1, 1, 1, supernovaAlpha(ticks, lyDistance));
 	}
 	
 	//============================================================================================
@@ -0,0 +1,188 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.client.render.shader.StellarViewShaders;
+import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
+import net.povstalec.stellarview.client.util.StarBuffer;
+import net.povstalec.stellarview.client.util.StarCells;
+import net.povstalec.stellarview.common.util.UV;
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryUtil;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+/**
+ * Stores textured quads placed on the sky sphere and draws them as instances of a single quad, with the corners computed in the vertex shader.
+ * Billboards are recorded in submission order, the {@link SkyRenderQueue} then decides the order they're uploaded and drawn in.
+ */
+public final class BillboardBatch
+{
+	// SkyPosition (4 floats), Tint (4 floats), CornerUVsA (4 floats), CornerUVsB (4 floats)
+	public static final int INSTANCE_SIZE = 16 * Float.BYTES;
+	
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private static final Matrix4f MODEL_VIEW = new Matrix4f();
+	private static final StarCells.Ranges DRAW_RANGE = new StarCells.Ranges();
+	
+	// Billboards in the order they were recorded
+	@Nullable
+	private static ByteBuffer records;
+	// Billboards in the order they're drawn
+	@Nullable
+	private static ByteBuffer uploadBuffer;
+	private static int capacity = 0;
+	private static int recorded = 0;
+	
+	@Nullable
+	private static StarBuffer instanceBuffer;
+	
+	/**
+	 * @return True if billboards can be drawn through the batch, otherwise they have to be drawn one by one
+	 */
+	public static boolean isSupported()
+	{
+		return StarBuffer.supportsInstancing() && StellarViewShaders.billboardShader() != null;
+	}
+	
+	/**
+	 * Records a billboard
+	 * @param theta Theta of the billboard's position on the sky sphere
+	 * @param phi Phi of the billboard's position on the sky sphere
+	 * @param rotation Rotation of the billboard around its center
+	 * @param size Size of the billboard
+	 * @param uv UVs of the billboard's corners
+	 * @param atlasEntry Location of the texture in the {@link CelestialAtlas}, or null if it isn't part of it
+	 * @param ticks Ticks used for the UV phases
+	 * @return Index of the recorded billboard
+	 */
+	public static int add(float theta, float phi, float rotation, float size, float red, float green, float blue, float alpha,
+						  UV.Quad uv, @Nullable CelestialAtlas.Entry atlasEntry, long ticks)
+	{
+		ensureCapacity(recorded + 1);
+		
+		long address = MemoryUtil.memAddress(records) + (long) recorded * INSTANCE_SIZE;
+		
+		MemoryUtil.memPutFloat(address, theta);
+		MemoryUtil.memPutFloat(address + 4, phi);
+		MemoryUtil.memPutFloat(address + 8, rotation);
+		MemoryUtil.memPutFloat(address + 12, size);
+		
+		MemoryUtil.memPutFloat(address + 16, red);
+		MemoryUtil.memPutFloat(address + 20, green);
+		MemoryUtil.memPutFloat(address + 24, blue);
+		MemoryUtil.memPutFloat(address + 28, alpha);
+		
+		putUV(address + 32, uv.topRight(), atlasEntry, ticks);
+		putUV(address + 40, uv.bottomRight(), atlasEntry, ticks);
+		putUV(address + 48, uv.bottomLeft(), atlasEntry, ticks);
+		putUV(address + 56, uv.topLeft(), atlasEntry, ticks);
+		
+		return recorded++;
+	}
+	
+	private static void putUV(long address, UV uv, @Nullable CelestialAtlas.Entry atlasEntry, long ticks)
+	{
+		MemoryUtil.memPutFloat(address, CelestialAtlas.u(atlasEntry, uv.u(ticks)));
+		MemoryUtil.memPutFloat(address + 4, CelestialAtlas.v(atlasEntry, uv.v(ticks)));
+	}
+	
+	/**
+	 * Copies the recorded billboards into draw order and uploads them
+	 * @param order Indices of the recorded billboards, in the order they will be drawn
+	 * @param count Number of billboards to upload
+	 */
+	public static void upload(int[] order, int count)
+	{
+		RenderSystem.assertOnRenderThread();
+		
+		if(instanceBuffer == null)
+			instanceBuffer = new StarBuffer();
+		
+		long source = MemoryUtil.memAddress(records);
+		long destination = MemoryUtil.memAddress(uploadBuffer);
+		for(int i = 0; i < count; i++)
+		{
+			MemoryUtil.memCopy(source + (long) order[i] * INSTANCE_SIZE, destination + (long) i * INSTANCE_SIZE, INSTANCE_SIZE);
+		}
+		
+		instanceBuffer.bind();
+		instanceBuffer.uploadInstances(uploadBuffer.limit(count * INSTANCE_SIZE), count, StellarViewVertexFormat.BILLBOARD_INSTANCE.get(), 1);
+		uploadBuffer.clear();
+	}
+	
+	/**
+	 * Draws a range of the uploaded billboards, the blend function has to be set up beforehand
+	 * @param texture Texture (or atlas page) shared by the billboards
+	 * @param pose Pose shared by the billboards
+	 * @param first First uploaded billboard to draw
+	 * @param count Number of billboards to draw
+	 */
+	public static void draw(ResourceLocation texture, Matrix4f pose, int first, int count)
+	{
+		// Colors are part of the instance data
+		RenderSystem.setShaderColor(1, 1, 1, 1);
+		RenderSystem.setShaderTexture(0, texture);
+		
+		DRAW_RANGE.clear();
+		DRAW_RANGE.add(first, count);
+		instanceBuffer.bind();
+		instanceBuffer.setDrawRanges(DRAW_RANGE);
+		
+		MODEL_VIEW.set(RenderSystem.getModelViewMatrix()).mul(pose);
+		instanceBuffer.drawWithShader(MODEL_VIEW, RenderSystem.getProjectionMatrix(), StellarViewShaders.billboardShader());
+	}
+	
+	/**
+	 * Forgets all recorded billboards
+	 */
+	public static void reset()
+	{
+		recorded = 0;
+	}
+	
+	/**
+	 * Releases the recorded billboards and the GPU buffer used for drawing
+	 */
+	public static void clear()
+	{
+		recorded = 0;
+		
+		if(instanceBuffer != null)
+		{
+			instanceBuffer.close();
+			instanceBuffer = null;
+		}
+		
+		if(records != null)
+		{
+			MemoryUtil.memFree(records);
+			MemoryUtil.memFree(uploadBuffer);
+			records = null;
+			uploadBuffer = null;
+			capacity = 0;
+		}
+	}
+	
+	private static void ensureCapacity(int requiredInstances)
+	{
+		if(requiredInstances <= capacity)
+			return;
+		
+		int newCapacity = Math.max(INITIAL_CAPACITY, Math.max(requiredInstances, capacity * 2));
+		
+		if(records == null)
+		{
+			records = MemoryUtil.memAlloc(newCapacity * INSTANCE_SIZE);
+			uploadBuffer = MemoryUtil.memAlloc(newCapacity * INSTANCE_SIZE);
+		}
+		else
+		{
+			records = MemoryUtil.memRealloc(records.clear(), newCapacity * INSTANCE_SIZE);
+			uploadBuffer = MemoryUtil.memRealloc(uploadBuffer.clear(), newCapacity * INSTANCE_SIZE);
+		}
+		capacity = newCapacity;
+	}
+}
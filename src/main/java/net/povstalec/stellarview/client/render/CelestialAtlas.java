@@ -0,0 +1,273 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.common.util.UV;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Stitches the textures used by celestial objects, meteors and skyboxes into a few large atlas pages when resources are reloaded,
+ * so that layers with different textures can still be drawn together.
+ * UVs are remapped into atlas space when drawing, which keeps phase animations working without changing the loaded data.
+ */
+public final class CelestialAtlas
+{
+	private static final int MIN_PAGE_SIZE = 256;
+	private static final int MAX_PAGE_SIZE = 4096;
+	// Every texture is surrounded by a copy of its edge pixels, so that filtering never picks up a neighboring texture
+	private static final int PADDING = 1;
+	
+	private static final HashMap<ResourceLocation, Entry> ENTRIES = new HashMap<ResourceLocation, Entry>();
+	private static final ArrayList<ResourceLocation> PAGES = new ArrayList<ResourceLocation>();
+	
+	/**
+	 * Location of a texture inside an atlas page
+	 */
+	public record Entry(ResourceLocation page, float u0, float v0, float u1, float v1)
+	{
+		public float u(float u)
+		{
+			return u0 + u * (u1 - u0);
+		}
+		
+		public float v(float v)
+		{
+			return v0 + v * (v1 - v0);
+		}
+	}
+	
+	private record Sprite(ResourceLocation texture, NativeImage image)
+	{
+		private int width()
+		{
+			return image.getWidth() + PADDING * 2;
+		}
+		
+		private int height()
+		{
+			return image.getHeight() + PADDING * 2;
+		}
+	}
+	
+	/**
+	 * @return The atlas location of the texture, or null if the texture has to be bound by itself
+	 */
+	@Nullable
+	public static Entry get(ResourceLocation texture)
+	{
+		return ENTRIES.get(texture);
+	}
+	
+	/**
+	 * @return U coordinate in the atlas page, or the unchanged coordinate if the texture isn't part of the atlas
+	 */
+	public static float u(@Nullable Entry entry, float u)
+	{
+		return entry != null ? entry.u(u) : u;
+	}
+	
+	/**
+	 * @return V coordinate in the atlas page, or the unchanged coordinate if the texture isn't part of the atlas
+	 */
+	public static float v(@Nullable Entry entry, float v)
+	{
+		return entry != null ? entry.v(v) : v;
+	}
+	
+	/**
+	 * @return Texture that has to be bound to draw the specified texture
+	 */
+	public static ResourceLocation texture(@Nullable Entry entry, ResourceLocation texture)
+	{
+		return entry != null ? entry.page() : texture;
+	}
+	
+	public static int pages()
+	{
+		return PAGES.size();
+	}
+	
+	/**
+	 * UVs outside of the 0 - 1 range rely on the texture repeating, which doesn't work once the texture is part of an atlas
+	 * @return True if a texture drawn with these UVs can be put into the atlas
+	 */
+	public static boolean canStitch(UV.Quad uv)
+	{
+		return isInRange(uv.topLeft()) && isInRange(uv.bottomLeft()) && isInRange(uv.bottomRight()) && isInRange(uv.topRight());
+	}
+	
+	private static boolean isInRange(UV uv)
+	{
+		return uv.u() >= 0 && uv.u() <= 1 && uv.v() >= 0 && uv.v() <= 1;
+	}
+	
+	//============================================================================================
+	//*****************************************Stitching******************************************
+	//============================================================================================
+	
+	/**
+	 * Removes all atlas pages, textures are then bound one by one again
+	 */
+	public static void clear()
+	{
+		RenderSystem.assertOnRenderThread();
+		
+		for(ResourceLocation page : PAGES)
+		{
+			Minecraft.getInstance().getTextureManager().release(page);
+		}
+		
+		PAGES.clear();
+		ENTRIES.clear();
+	}
+	
+	/**
+	 * Replaces the current atlas pages with new ones containing the specified textures.
+	 * Textures that are missing, animated, have a custom filter or don't fit into a single page are left out.
+	 * @param manager Resource manager the textures are loaded from
+	 * @param textures Textures to stitch
+	 */
+	public static void stitch(ResourceManager manager, Collection<ResourceLocation> textures)
+	{
+		clear();
+		
+		int maxPageSize = Math.min(MAX_PAGE_SIZE, RenderSystem.maxSupportedTextureSize());
+		List<Sprite> sprites = new ArrayList<Sprite>();
+		
+		for(ResourceLocation texture : textures)
+		{
+			// Textures with metadata (animations, blur or clamp settings) keep being bound by themselves
+			if(manager.getResource(texture.withPath(texture.getPath() + ".mcmeta")).isPresent())
+				continue;
+			
+			try(InputStream stream = manager.open(texture))
+			{
+				NativeImage image = NativeImage.read(stream);
+				
+				if(image.getWidth() + PADDING * 2 > maxPageSize || image.getHeight() + PADDING * 2 > maxPageSize)
+					image.close();
+				else
+					sprites.add(new Sprite(texture, image));
+			}
+			catch(IOException e)
+			{
+				StellarView.LOGGER.warn("Failed to add " + texture + " to the celestial atlas: " + e.getMessage());
+			}
+		}
+		
+		// Tallest first, which keeps the shelves tight
+		sprites.sort(Comparator.comparingInt(Sprite::height).thenComparingInt(Sprite::width).reversed());
+		
+		try
+		{
+			while(!sprites.isEmpty())
+			{
+				int pageSize = MIN_PAGE_SIZE;
+				while(pageSize < maxPageSize && pack(sprites, pageSize, null) < sprites.size())
+				{
+					pageSize *= 2;
+				}
+				
+				int[] positions = new int[sprites.size() * 2];
+				int packed = pack(sprites, pageSize, positions);
+				
+				createPage(sprites.subList(0, packed), positions, pageSize);
+				sprites.subList(0, packed).clear();
+			}
+		}
+		finally
+		{
+			for(Sprite sprite : sprites)
+			{
+				sprite.image().close();
+			}
+		}
+		
+		StellarView.LOGGER.debug("Stitched " + ENTRIES.size() + " celestial textures into " + PAGES.size() + " atlas pages");
+	}
+	
+	/**
+	 * Places sprites onto shelves, in order, until one doesn't fit
+	 * @param positions Array the x and y position of each packed sprite is written into, or null if only the number of sprites that fit is needed
+	 * @return Number of sprites that fit onto a page of the specified size
+	 */
+	private static int pack(List<Sprite> sprites, int pageSize, @Nullable int[] positions)
+	{
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		
+		for(int i = 0; i < sprites.size(); i++)
+		{
+			Sprite sprite = sprites.get(i);
+			
+			if(x + sprite.width() > pageSize)
+			{
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			
+			if(y + sprite.height() > pageSize)
+				return i;
+			
+			if(positions != null)
+			{
+				positions[i * 2] = x;
+				positions[i * 2 + 1] = y;
+			}
+			
+			x += sprite.width();
+			shelfHeight = Math.max(shelfHeight, sprite.height());
+		}
+		
+		return sprites.size();
+	}
+	
+	private static void createPage(List<Sprite> sprites, int[] positions, int pageSize)
+	{
+		ResourceLocation page = ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "celestial_atlas/page_" + PAGES.size());
+		NativeImage pageImage = new NativeImage(pageSize, pageSize, true);
+		
+		for(int i = 0; i < sprites.size(); i++)
+		{
+			Sprite sprite = sprites.get(i);
+			NativeImage image = sprite.image();
+			int x = positions[i * 2];
+			int y = positions[i * 2 + 1];
+			
+			for(int pixelY = 0; pixelY < sprite.height(); pixelY++)
+			{
+				int sourceY = Math.min(Math.max(pixelY - PADDING, 0), image.getHeight() - 1);
+				for(int pixelX = 0; pixelX < sprite.width(); pixelX++)
+				{
+					int sourceX = Math.min(Math.max(pixelX - PADDING, 0), image.getWidth() - 1);
+					pageImage.setPixelRGBA(x + pixelX, y + pixelY, image.getPixelRGBA(sourceX, sourceY));
+				}
+			}
+			
+			ENTRIES.put(sprite.texture(), new Entry(page,
+					(float) (x + PADDING) / pageSize, (float) (y + PADDING) / pageSize,
+					(float) (x + PADDING + image.getWidth()) / pageSize, (float) (y + PADDING + image.getHeight()) / pageSize));
+			
+			image.close();
+		}
+		
+		// The texture manager takes care of closing the image
+		Minecraft.getInstance().getTextureManager().register(page, new DynamicTexture(pageImage));
+		PAGES.add(page);
+	}
+}
@@ -0,0 +1,86 @@
+package net.povstalec.stellarview.client.render;
+
+import java.lang.management.ManagementFactory;
+
+import javax.annotation.Nullable;
+
+import net.povstalec.stellarview.StellarView;
+
+/**
+ * Measures how much heap memory the render thread allocates while rendering the sky.
+ * Steady-state frames are expected to allocate (almost) nothing, so frames that go over the budget are reported in the debug log,
+ * which makes it easy to spot when a change brings allocations back into the render path.
+ * Only works on JVMs that support measuring allocations per thread, otherwise it does nothing.
+ */
+public final class FrameAllocationProbe
+{
+	// Some allocations can't be avoided, like the ones made by the driver or by lambdas queued for later
+	public static final long FRAME_BUDGET = 4 * 1024;
+	
+	@Nullable
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+	
+	private static long frameStart = -1;
+	private static long allocatedLastFrame = 0;
+	private static long reportedAllocation = 0;
+	
+	@Nullable
+	private static com.sun.management.ThreadMXBean threadBean()
+	{
+		try
+		{
+			if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported())
+			{
+				bean.setThreadAllocatedMemoryEnabled(true);
+				if(bean.isThreadAllocatedMemoryEnabled())
+					return bean;
+			}
+		}
+		catch(UnsupportedOperationException | SecurityException e)
+		{
+			StellarView.LOGGER.debug("Sky frame allocations can't be measured: " + e.getMessage());
+		}
+		
+		return null;
+	}
+	
+	public static boolean isSupported()
+	{
+		return THREAD_BEAN != null;
+	}
+	
+	/**
+	 * Starts measuring a frame, has to be called on the thread that renders the frame
+	 */
+	public static void begin()
+	{
+		frameStart = THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : -1;
+	}
+	
+	/**
+	 * Stops measuring the frame started with {@link #begin()} and reports it if it went over the budget
+	 */
+	public static void end()
+	{
+		if(THREAD_BEAN == null || frameStart < 0)
+			return;
+		
+		allocatedLastFrame = THREAD_BEAN.getCurrentThreadAllocatedBytes() - frameStart;
+		frameStart = -1;
+		
+		// Only reported when it changes, so that the log isn't flooded with the same number every frame
+		if(allocatedLastFrame > FRAME_BUDGET && Math.abs(allocatedLastFrame - reportedAllocation) > FRAME_BUDGET)
+		{
+			reportedAllocation = allocatedLastFrame;
+			StellarView.LOGGER.debug("Sky frame allocated " + allocatedLastFrame + " bytes, which is over the budget of " + FRAME_BUDGET + " bytes");
+		}
+	}
+	
+	/**
+	 * @return Bytes allocated by the last measured frame, or 0 if allocations can't be measured
+	 */
+	public static long allocatedLastFrame()
+	{
+		return allocatedLastFrame;
+	}
+}
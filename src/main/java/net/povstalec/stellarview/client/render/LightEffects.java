@@ -3,64 +3,9 @@ package net.povstalec.stellarview.client.render;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
-import net.povstalec.stellarview.common.config.GeneralConfig;
 
 public class LightEffects
 {
-	private static float starBrightness = 0F;
-	private static float dustCloudBrightness = 0F;
-	
-	public static float lightSourceStarDimming(ClientLevel level, Camera camera)
-	{
-		// Brightness of the position where the player is standing, 15 is subtracted from the ambient skylight, that way only block light is accounted for
-		int brightnessAtBlock = level.getLightEngine().getRawBrightness(camera.getEntity().getOnPos().above(), 15);
-		float brightness = 0.5F + 1.5F * ((15F - brightnessAtBlock) / 15F);
-		
-		if(starBrightness < brightness)
-		{
-			starBrightness += 0.01F;
-			
-			if(starBrightness > brightness)
-				starBrightness = brightness;
-		}
-		else if(starBrightness > brightness)
-		{
-			starBrightness -= 0.01F;
-			
-			if(starBrightness < brightness)
-				starBrightness = brightness;
-		}
-		
-		return starBrightness;
-	}
-	
-	public static float lightSourceDustCloudDimming(ClientLevel level, Camera camera)
-	{
-		// Brightness of the position where the player is standing, 15 is subtracted from the ambient skylight, that way only block light is accounted for
-		int brightnessAtBlock = level.getLightEngine().getRawBrightness(camera.getEntity().getOnPos().above(), 15);
-		float brightness = 1.5F * ((7F - brightnessAtBlock) / 15F);
-		
-		if(brightness < 0)
-			brightness = 0;
-		
-		if(dustCloudBrightness < brightness)
-		{
-			dustCloudBrightness += 0.001F;
-			
-			if(dustCloudBrightness > brightness)
-				dustCloudBrightness = brightness;
-		}
-		else if(dustCloudBrightness > brightness)
-		{
-			dustCloudBrightness -= 0.001F;
-			
-			if(dustCloudBrightness < brightness)
-				dustCloudBrightness = brightness;
-		}
-		
-		return dustCloudBrightness;
-	}
-	
 	public static float rainDimming(ClientLevel level, float partialTicks)
 	{
 		return 1F - level.getRainLevel(partialTicks);
@@ -68,13 +13,15 @@ public class LightEffects
 	
 	public static float dayBrightness(ViewCenter viewCenter, float size, long ticks, ClientLevel level, Camera camera, float partialTicks)
 	{
+		SkyFrameContext context = viewCenter.frameContext();
+		
 		if(viewCenter.starsAlwaysVisible())
-			return GeneralConfig.bright_stars.get() ? 0.5F * LightEffects.lightSourceStarDimming(level, camera) : 0.5F;
+			return context.brightStars() ? 0.5F * context.starDimming() : 0.5F;
 		
-		float brightness = level.getStarBrightness(partialTicks) * 2;
+		float brightness = context.levelStarBrightness() * 2;
 		
-		if(GeneralConfig.bright_stars.get())
-			brightness = brightness * LightEffects.lightSourceStarDimming(level, camera);
+		if(context.brightStars())
+			brightness = brightness * context.starDimming();
 		
 		if(brightness < viewCenter.dayBlending().dayMaxBrightness() && size > viewCenter.dayBlending().dayMinVisibleSize())
 		{
@@ -84,18 +31,20 @@ public class LightEffects
 			brightness = brightnessPercentage * viewCenter.dayBlending().dayMaxBrightness();
 		}
 		
-		return brightness * LightEffects.rainDimming(level, partialTicks);
+		return brightness * context.rainDimming();
 	}
 	
 	public static float starDayBrightness(ViewCenter viewCenter, float size, long ticks, ClientLevel level, Camera camera, float partialTicks)
 	{
+		SkyFrameContext context = viewCenter.frameContext();
+		
 		if(viewCenter.starsAlwaysVisible())
-			return GeneralConfig.bright_stars.get() ? 0.5F * LightEffects.lightSourceStarDimming(level, camera) : 0.5F;
+			return context.brightStars() ? 0.5F * context.starDimming() : 0.5F;
 		
-		float brightness = level.getStarBrightness(partialTicks) * 2;
+		float brightness = context.levelStarBrightness() * 2;
 		
-		if(GeneralConfig.bright_stars.get())
-			brightness = brightness * LightEffects.lightSourceStarDimming(level, camera);
+		if(context.brightStars())
+			brightness = brightness * context.starDimming();
 		
 		if(brightness < viewCenter.sunDayBlending().dayMaxBrightness() && size > viewCenter.sunDayBlending().dayMinVisibleSize())
 		{
@@ -105,33 +54,37 @@ public class LightEffects
 			brightness = brightnessPercentage * viewCenter.sunDayBlending().dayMaxBrightness();
 		}
 		
-		return brightness * LightEffects.rainDimming(level, partialTicks);
+		return brightness * context.rainDimming();
 	}
 	
 	public static float dustCloudBrightness(ViewCenter viewCenter, ClientLevel level, Camera camera, float partialTicks)
 	{
-		float brightness = level.getStarBrightness(partialTicks);
+		SkyFrameContext context = viewCenter.frameContext();
+		
+		float brightness = context.levelStarBrightness();
 		
 		if(viewCenter.starsAlwaysVisible() && brightness < 0.5F)
 			brightness = 0.5F;
 		
-		if(GeneralConfig.bright_stars.get())
-			brightness = brightness * LightEffects.lightSourceDustCloudDimming(level, camera);
+		if(context.brightStars())
+			brightness = brightness * context.dustCloudDimming();
 		
-		brightness = brightness * LightEffects.rainDimming(level, partialTicks);
+		brightness = brightness * context.rainDimming();
 		
 		return brightness;
 	}
 	
 	public static float nebulaBrightness(ViewCenter viewCenter, float size, long ticks, ClientLevel level, Camera camera, float partialTicks)
 	{
+		SkyFrameContext context = viewCenter.frameContext();
+		
 		if(viewCenter.starsAlwaysVisible())
-			return GeneralConfig.bright_stars.get() ? 0.5F * LightEffects.lightSourceStarDimming(level, camera) : 0.5F;
+			return context.brightStars() ? 0.5F * context.starDimming() : 0.5F;
 		
-		float brightness = level.getStarBrightness(partialTicks) * 2;
+		float brightness = context.levelStarBrightness() * 2;
 		
-		if(GeneralConfig.bright_stars.get())
-			brightness = brightness * LightEffects.lightSourceDustCloudDimming(level, camera);
+		if(context.brightStars())
+			brightness = brightness * context.dustCloudDimming();
 		
 		if(brightness < viewCenter.dayBlending().dayMaxBrightness() && size > viewCenter.dayBlending().dayMinVisibleSize())
 		{
@@ -141,7 +94,7 @@ public class LightEffects
 			brightness = brightnessPercentage * viewCenter.dayBlending().dayMaxBrightness();
 		}
 		
-		return brightness * LightEffects.rainDimming(level, partialTicks);
+		return brightness * context.rainDimming();
 	}
 	
 	/**
@@ -153,15 +106,17 @@ public class LightEffects
 	 */
 	public static float starBrightness(ViewCenter viewCenter, ClientLevel level, Camera camera, float partialTicks)
 	{
-		float starBrightness = level.getStarBrightness(partialTicks);
+		SkyFrameContext context = viewCenter.frameContext();
+		
+		float starBrightness = context.levelStarBrightness();
 		
 		if(viewCenter.starsAlwaysVisible() && starBrightness < 0.5F)
 			starBrightness = 0.5F;
 		
-		if(GeneralConfig.bright_stars.get())
-			starBrightness = starBrightness * LightEffects.lightSourceStarDimming(level, camera);
+		if(context.brightStars())
+			starBrightness = starBrightness * context.starDimming();
 		
-		starBrightness = starBrightness * LightEffects.rainDimming(level, partialTicks);
+		starBrightness = starBrightness * context.rainDimming();
 		
 		return starBrightness;
 	}
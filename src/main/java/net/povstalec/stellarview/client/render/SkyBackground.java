@@ -0,0 +1,437 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.platform.TextureUtil;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.util.Mth;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.client.render.shader.StellarViewShaders;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.client.util.ScratchMatrices;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+/**
+ * Optional mode where the Stars and Dust Clouds of Star Fields are baked into a cubemap instead of being drawn every frame.
+ * The cubemap is in the frame of the Star Fields, so the sky rotating doesn't affect it and it's only baked again after the View Center moves,
+ * the brightness of the layers changes or new buffers get uploaded. Baking happens one side per frame into a second cubemap, which replaces the drawn one once all sides are done.
+ * Every frame the cubemap is drawn in a single pass, everything closer (planets, moons, the sun, meteors) is still drawn live.
+ */
+public final class SkyBackground
+{
+	private static final int FACES = 6;
+	private static final int MIN_FACE_SIZE = 512;
+	private static final int MAX_FACE_SIZE = 4096;
+	// Face sizes are rounded up to a multiple of this, so that small changes to the window don't recreate the cubemaps
+	private static final int FACE_SIZE_STEP = 256;
+	private static final float CUBE_SIZE = 50.0F;
+	
+	// How far the View Center can move before the background is baked again
+	private static final double MOVEMENT_THRESHOLD = SpaceCoords.KM_PER_LY * 0.01;
+	private static final float BRIGHTNESS_THRESHOLD = 0.05F;
+	private static final float LENSING_THRESHOLD = 0.01F;
+	
+	// Directions and up vectors of the cubemap sides, in the order of GL_TEXTURE_CUBE_MAP_POSITIVE_X onwards
+	private static final Vector3f[] FACE_DIRECTIONS = new Vector3f[] {
+			new Vector3f(1, 0, 0), new Vector3f(-1, 0, 0),
+			new Vector3f(0, 1, 0), new Vector3f(0, -1, 0),
+			new Vector3f(0, 0, 1), new Vector3f(0, 0, -1)};
+	private static final Vector3f[] FACE_UPS = new Vector3f[] {
+			new Vector3f(0, -1, 0), new Vector3f(0, -1, 0),
+			new Vector3f(0, 0, 1), new Vector3f(0, 0, -1),
+			new Vector3f(0, -1, 0), new Vector3f(0, -1, 0)};
+	
+	private static final Matrix4f FACE_POSE = new Matrix4f();
+	private static final Matrix4f FACE_PROJECTION = new Matrix4f().setPerspective((float) Math.PI / 2, 1.0F, 0.05F, 1000.0F);
+	
+	private static final Quaternionf VIEW_ROTATION = new Quaternionf();
+	private static final Vector3d MOVEMENT = new Vector3d();
+	private static final SpaceCoords BAKED_COORDS = new SpaceCoords();
+	
+	// Submitted to the queue every frame instead of a new lambda, the queue draws it within the same frame
+	private static final Runnable DRAW = SkyBackground::drawCubemap;
+	private static Matrix4f drawPose;
+	private static Matrix4f drawProjection;
+	
+	private static final int[] VIEWPORT = new int[4];
+	private static final float[] CLEAR_COLOR = new float[4];
+	
+	// Cubemap that's drawn and cubemap that's being baked
+	private static int drawnTexture = -1;
+	private static int bakedTexture = -1;
+	private static int framebuffer = -1;
+	private static int faceSize = 0;
+	@Nullable
+	private static VertexBuffer cube;
+	
+	private static boolean hasBackground = false;
+	private static boolean isOutdated = true;
+	private static boolean isDrawn = false;
+	// Set when the framebuffer can't be rendered into, the sky is then rendered live until the config is toggled
+	private static boolean isUnsupported = false;
+	// Next side to bake, or -1 while not baking
+	private static int bakingFace = -1;
+	
+	// What the cubemap that's being baked was started with
+	@Nullable
+	private static ViewCenter bakedViewCenter;
+	private static float bakedStarScale;
+	private static float bakedDustCloudScale;
+	private static float bakedLensingIntensity;
+	
+	// Brightness the cubemap is drawn with and the brightness of the layers relative to it, updated every frame
+	private static float brightness;
+	private static float starScale;
+	private static float dustCloudScale;
+	
+	/**
+	 * @return True if the baked background replaces the Stars and Dust Clouds this frame
+	 */
+	public static boolean isDrawn()
+	{
+		return isDrawn;
+	}
+	
+	/**
+	 * Makes the background get baked again, for example after new Star or Dust Cloud buffers were uploaded
+	 */
+	public static void invalidate()
+	{
+		isOutdated = true;
+	}
+	
+	/**
+	 * Bakes the next side of the cubemap if it's needed and decides whether the background is drawn this frame.
+	 * Has to be called before {@link SkyRenderQueue#begin(Runnable)}, since baking goes through the queue as well.
+	 * @param regions Regions around the View Center
+	 * @param setupFog Restores the fog after items that need it switched off
+	 */
+	public static void update(ViewCenter viewCenter, SpaceRegionIndex.Query regions, Runnable setupFog)
+	{
+		isDrawn = false;
+		
+		if(!GeneralConfig.baked_sky_background.get())
+			isUnsupported = false;
+		
+		if(!GeneralConfig.baked_sky_background.get() || isUnsupported || StellarViewShaders.skyBackgroundShader() == null)
+		{
+			if(drawnTexture != -1)
+				clear();
+			return;
+		}
+		
+		updateBrightness(viewCenter);
+		
+		int size = faceSize();
+		if(size != faceSize)
+			createResources(size);
+		
+		// Nothing would be seen, so there's no point in baking until it can be
+		if(brightness > 0.0F)
+		{
+			if(!isOutdated && hasChanged(viewCenter))
+				isOutdated = true;
+			
+			if(bakingFace < 0 && isOutdated)
+				startBaking(viewCenter);
+			
+			if(bakingFace >= 0 && !bakeFace(viewCenter, regions, setupFog))
+				return;
+		}
+		
+		isDrawn = hasBackground;
+	}
+	
+	/**
+	 * Submits the baked background to the {@link SkyRenderQueue}
+	 */
+	public static void draw(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix)
+	{
+		if(!isDrawn || brightness <= 0.0F)
+			return;
+		
+		drawPose = ScratchMatrices.copyOf(modelViewMatrix);
+		drawPose.rotate(SpaceCoords.getQuaternionf(level, viewCenter, partialTicks, VIEW_ROTATION));
+		drawProjection = projectionMatrix;
+		
+		SkyRenderQueue.submit(SkyRenderQueue.BLEND_ADDITIVE, true, DRAW);
+	}
+	
+	private static void drawCubemap()
+	{
+		RenderSystem.setShaderColor(1, 1, 1, brightness);
+		RenderSystem.activeTexture(GL13.GL_TEXTURE0);
+		GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, drawnTexture);
+		
+		cube.bind();
+		cube.drawWithShader(drawPose, drawProjection, StellarViewShaders.skyBackgroundShader());
+		VertexBuffer.unbind();
+		
+		GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
+	}
+	
+	/**
+	 * Releases the cubemaps and everything used for drawing them
+	 */
+	public static void clear()
+	{
+		RenderSystem.assertOnRenderThread();
+		
+		releaseTextures();
+		
+		if(framebuffer != -1)
+		{
+			GlStateManager._glDeleteFramebuffers(framebuffer);
+			framebuffer = -1;
+		}
+		
+		if(cube != null)
+		{
+			cube.close();
+			cube = null;
+		}
+		
+		faceSize = 0;
+		isDrawn = false;
+		bakedViewCenter = null;
+	}
+	
+	//============================================================================================
+	//*******************************************Baking*******************************************
+	//============================================================================================
+	
+	private static void updateBrightness(ViewCenter viewCenter)
+	{
+		float stars = viewCenter.frameContext().disableStars() || !SkyVisibility.isVisible(SkyVisibility.Stage.STAR_FIELDS) ? 0.0F : viewCenter.starBrightness();
+		float dustClouds = SkyVisibility.isVisible(SkyVisibility.Stage.DUST_CLOUDS) ? viewCenter.dustCloudBrightness() : 0.0F;
+		
+		// Layers are baked relative to the brightest one, which then becomes the brightness of the whole cubemap
+		brightness = Math.max(stars, dustClouds);
+		starScale = brightness > 0.0F ? stars / brightness : 0.0F;
+		dustCloudScale = brightness > 0.0F ? dustClouds / brightness : 0.0F;
+	}
+	
+	private static boolean hasChanged(ViewCenter viewCenter)
+	{
+		if(viewCenter != bakedViewCenter)
+			return true;
+		
+		if(Math.abs(starScale - bakedStarScale) > BRIGHTNESS_THRESHOLD || Math.abs(dustCloudScale - bakedDustCloudScale) > BRIGHTNESS_THRESHOLD)
+			return true;
+		
+		if(Math.abs(SpaceRenderer.lensingIntensity - bakedLensingIntensity) > LENSING_THRESHOLD * Math.max(1.0F, Math.abs(bakedLensingIntensity)))
+			return true;
+		
+		return viewCenter.getCoords().relativeKm(BAKED_COORDS, MOVEMENT).lengthSquared() > MOVEMENT_THRESHOLD * MOVEMENT_THRESHOLD;
+	}
+	
+	private static void startBaking(ViewCenter viewCenter)
+	{
+		isOutdated = false;
+		bakingFace = 0;
+		
+		// The old background shows a different sky, so the sky is rendered live until the new one is finished
+		if(viewCenter != bakedViewCenter)
+			hasBackground = false;
+		
+		bakedViewCenter = viewCenter;
+		BAKED_COORDS.set(viewCenter.getCoords());
+		bakedStarScale = starScale;
+		bakedDustCloudScale = dustCloudScale;
+		bakedLensingIntensity = SpaceRenderer.lensingIntensity;
+	}
+	
+	/**
+	 * @return False if the framebuffer couldn't be rendered into, in which case the background is released
+	 */
+	private static boolean bakeFace(ViewCenter viewCenter, SpaceRegionIndex.Query regions, Runnable setupFog)
+	{
+		RenderSystem.assertOnRenderThread();
+		
+		int previousFramebuffer = GlStateManager._getInteger(GL30.GL_FRAMEBUFFER_BINDING);
+		GL11.glGetIntegerv(GL11.GL_VIEWPORT, VIEWPORT);
+		GL11.glGetFloatv(GL11.GL_COLOR_CLEAR_VALUE, CLEAR_COLOR);
+		
+		GlStateManager._glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+		GlStateManager._glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + bakingFace, bakedTexture, 0);
+		
+		if(bakingFace == 0)
+		{
+			int status = GlStateManager.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+			if(status != GL30.GL_FRAMEBUFFER_COMPLETE)
+			{
+				GlStateManager._glBindFramebuffer(GL30.GL_FRAMEBUFFER, previousFramebuffer);
+				StellarView.LOGGER.error("Sky background: framebuffer is incomplete (status " + status + "), rendering the sky live instead");
+				
+				clear();
+				isUnsupported = true;
+				return false;
+			}
+		}
+		
+		GlStateManager._viewport(0, 0, faceSize, faceSize);
+		GlStateManager._clearColor(0.0F, 0.0F, 0.0F, 0.0F);
+		GlStateManager._clear(GL11.GL_COLOR_BUFFER_BIT, Minecraft.ON_OSX);
+		
+		Vector3f direction = FACE_DIRECTIONS[bakingFace];
+		Vector3f up = FACE_UPS[bakingFace];
+		FACE_POSE.setLookAt(0.0F, 0.0F, 0.0F, direction.x, direction.y, direction.z, up.x, up.y, up.z);
+		
+		// Same order as when the sky is rendered live, all Dust Clouds go below all Stars
+		SkyRenderQueue.begin(setupFog);
+		for(int i = regions.size() - 1; i >= 0; i--)
+		{
+			regions.get(i).bakeDustClouds(viewCenter, FACE_POSE, FACE_PROJECTION, bakedDustCloudScale);
+		}
+		for(int i = regions.size() - 1; i >= 0; i--)
+		{
+			regions.get(i).bakeStars(viewCenter, FACE_POSE, FACE_PROJECTION, bakedStarScale);
+		}
+		SkyRenderQueue.end();
+		
+		GlStateManager._glBindFramebuffer(GL30.GL_FRAMEBUFFER, previousFramebuffer);
+		GlStateManager._viewport(VIEWPORT[0], VIEWPORT[1], VIEWPORT[2], VIEWPORT[3]);
+		GlStateManager._clearColor(CLEAR_COLOR[0], CLEAR_COLOR[1], CLEAR_COLOR[2], CLEAR_COLOR[3]);
+		
+		bakingFace++;
+		if(bakingFace == FACES)
+		{
+			int texture = drawnTexture;
+			drawnTexture = bakedTexture;
+			bakedTexture = texture;
+			
+			bakingFace = -1;
+			hasBackground = true;
+		}
+		
+		return true;
+	}
+	
+	//============================================================================================
+	//******************************************Resources*****************************************
+	//============================================================================================
+	
+	/**
+	 * @return Size of the cubemap sides at which a texel covers at most a pixel of the framebuffer in the middle of the screen
+	 */
+	private static int faceSize()
+	{
+		Minecraft minecraft = Minecraft.getInstance();
+		
+		// A side covers 90 degrees, while the framebuffer height covers the vertical field of view
+		double halfFov = Math.toRadians(minecraft.options.fov().get()) / 2;
+		int size = Mth.ceil(minecraft.getWindow().getHeight() / Math.tan(halfFov));
+		size = (size + FACE_SIZE_STEP - 1) / FACE_SIZE_STEP * FACE_SIZE_STEP;
+		
+		return Mth.clamp(size, MIN_FACE_SIZE, Math.min(MAX_FACE_SIZE, RenderSystem.maxSupportedTextureSize()));
+	}
+	
+	private static void createResources(int size)
+	{
+		RenderSystem.assertOnRenderThread();
+		
+		releaseTextures();
+		
+		GL11.glEnable(GL32.GL_TEXTURE_CUBE_MAP_SEAMLESS);
+		drawnTexture = createCubemap(size);
+		bakedTexture = createCubemap(size);
+		
+		if(framebuffer == -1)
+			framebuffer = GlStateManager.glGenFramebuffers();
+		
+		if(cube == null)
+			cube = createCube();
+		
+		faceSize = size;
+		StellarView.LOGGER.debug("Sky background: created two " + size + "x" + size + " cubemaps");
+	}
+	
+	private static int createCubemap(int size)
+	{
+		int texture = TextureUtil.generateTextureId();
+		
+		GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, texture);
+		for(int face = 0; face < FACES; face++)
+		{
+			GL11.glTexImage2D(GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + face, 0, GL11.GL_RGBA8, size, size, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+		}
+		GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+		GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+		GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL12.GL_TEXTURE_WRAP_R, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glBindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
+		
+		return texture;
+	}
+	
+	/**
+	 * @return Cube around the camera, with its sides facing inwards
+	 */
+	private static VertexBuffer createCube()
+	{
+		BufferBuilder builder = Tesselator.getInstance().begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION);
+		Vector3f right = new Vector3f();
+		
+		for(int face = 0; face < FACES; face++)
+		{
+			Vector3f direction = FACE_DIRECTIONS[face];
+			Vector3f up = FACE_UPS[face];
+			direction.cross(up, right);
+			
+			// Counter-clockwise when seen from the inside
+			addCorner(builder, direction, right, up, -1, -1);
+			addCorner(builder, direction, right, up, 1, -1);
+			addCorner(builder, direction, right, up, 1, 1);
+			addCorner(builder, direction, right, up, -1, 1);
+		}
+		
+		VertexBuffer buffer = new VertexBuffer(VertexBuffer.Usage.STATIC);
+		buffer.bind();
+		buffer.upload(builder.buildOrThrow());
+		VertexBuffer.unbind();
+		
+		return buffer;
+	}
+	
+	private static void addCorner(BufferBuilder builder, Vector3f direction, Vector3f right, Vector3f up, float x, float y)
+	{
+		builder.addVertex((direction.x + right.x * x + up.x * y) * CUBE_SIZE,
+				(direction.y + right.y * x + up.y * y) * CUBE_SIZE,
+				(direction.z + right.z * x + up.z * y) * CUBE_SIZE);
+	}
+	
+	private static void releaseTextures()
+	{
+		if(drawnTexture != -1)
+		{
+			TextureUtil.releaseTextureId(drawnTexture);
+			TextureUtil.releaseTextureId(bakedTexture);
+			drawnTexture = -1;
+			bakedTexture = -1;
+		}
+		
+		hasBackground = false;
+		isOutdated = true;
+		bakingFace = -1;
+	}
+}
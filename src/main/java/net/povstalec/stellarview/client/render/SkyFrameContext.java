@@ -0,0 +1,172 @@
+package net.povstalec.stellarview.client.render;
+
+import net.minecraft.client.Camera;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.common.util.Color;
+import net.povstalec.stellarview.compatibility.enhancedcelestials.EnhancedCelestialsCompatibility;
+
+/**
+ * Everything about the environment the sky is rendered in that stays the same during a frame, sampled once at the start of it.
+ * Each View Center has its own, which renderers get through {@link net.povstalec.stellarview.client.resourcepack.ViewCenter#frameContext()}.
+ */
+public final class SkyFrameContext
+{
+	// How quickly the dimming caused by nearby light sources catches up with the light level, per second
+	public static final float STAR_DIMMING_SPEED = 0.6F;
+	public static final float DUST_CLOUD_DIMMING_SPEED = 0.06F;
+	// Longest time step the dimming is moved by, so that it doesn't jump after the game was paused
+	private static final float MAX_TIME_STEP = 0.25F;
+	
+	private long lastUpdateNanos = 0;
+	
+	// Lighting
+	private int blockLight = 0;
+	private float starDimming = 0;
+	private float dustCloudDimming = 0;
+	
+	// Weather and time
+	private float rainLevel = 0;
+	private float levelStarBrightness = 0;
+	
+	// Config
+	private boolean brightStars = true;
+	private boolean disableStars = false;
+	private boolean dustClouds = true;
+	
+	// Compatibility
+	private int enhancedCelestialsMoonARGB = Color.WHITE_ARGB;
+	private float enhancedCelestialsMoonSize = 1;
+	
+	/**
+	 * Samples the environment for a new frame
+	 * @param partialTicks Partial ticks of the frame, not multiplied by the tick difference
+	 */
+	public void update(ClientLevel level, Camera camera, float partialTicks)
+	{
+		long nanos = System.nanoTime();
+		float timeStep = lastUpdateNanos == 0 ? -1 : Math.min((nanos - lastUpdateNanos) / 1_000_000_000F, MAX_TIME_STEP);
+		lastUpdateNanos = nanos;
+		
+		// 15 is subtracted from the ambient skylight, that way only block light is accounted for
+		blockLight = level.getLightEngine().getRawBrightness(camera.getEntity().getOnPos().above(), 15);
+		
+		float starDimmingTarget = 0.5F + 1.5F * ((15F - blockLight) / 15F);
+		float dustCloudDimmingTarget = Math.max(1.5F * ((7F - blockLight) / 15F), 0);
+		
+		// The first frame starts right at the target instead of fading in
+		starDimming = timeStep < 0 ? starDimmingTarget : approach(starDimming, starDimmingTarget, STAR_DIMMING_SPEED * timeStep);
+		dustCloudDimming = timeStep < 0 ? dustCloudDimmingTarget : approach(dustCloudDimming, dustCloudDimmingTarget, DUST_CLOUD_DIMMING_SPEED * timeStep);
+		
+		rainLevel = level.getRainLevel(partialTicks);
+		levelStarBrightness = level.getStarBrightness(partialTicks);
+		
+		brightStars = GeneralConfig.bright_stars.get();
+		disableStars = GeneralConfig.disable_stars.get();
+		dustClouds = GeneralConfig.dust_clouds.get();
+		
+		if(StellarView.isEnhancedCelestialsLoaded())
+		{
+			enhancedCelestialsMoonARGB = EnhancedCelestialsCompatibility.getMoonColor(level, partialTicks).packARGB();
+			enhancedCelestialsMoonSize = EnhancedCelestialsCompatibility.getMoonSize(level, 20) / 20F;
+		}
+	}
+	
+	private static float approach(float value, float target, float step)
+	{
+		if(value < target)
+			return Math.min(value + step, target);
+		
+		return Math.max(value - step, target);
+	}
+	
+	//============================================================================================
+	//******************************************Lighting******************************************
+	//============================================================================================
+	
+	/**
+	 * @return Block light at the position of the camera entity, without sky light
+	 */
+	public int blockLight()
+	{
+		return blockLight;
+	}
+	
+	/**
+	 * @return Multiplier for the brightness of Stars and other objects, lower next to light sources
+	 */
+	public float starDimming()
+	{
+		return starDimming;
+	}
+	
+	/**
+	 * @return Multiplier for the brightness of Dust Clouds and Nebulae, lower next to light sources
+	 */
+	public float dustCloudDimming()
+	{
+		return dustCloudDimming;
+	}
+	
+	//============================================================================================
+	//**************************************Weather and time**************************************
+	//============================================================================================
+	
+	public float rainLevel()
+	{
+		return rainLevel;
+	}
+	
+	public float rainDimming()
+	{
+		return 1F - rainLevel;
+	}
+	
+	/**
+	 * @return Star brightness of the level, which depends on the time of day
+	 */
+	public float levelStarBrightness()
+	{
+		return levelStarBrightness;
+	}
+	
+	//============================================================================================
+	//*******************************************Config*******************************************
+	//============================================================================================
+	
+	public boolean brightStars()
+	{
+		return brightStars;
+	}
+	
+	public boolean disableStars()
+	{
+		return disableStars;
+	}
+	
+	public boolean dustClouds()
+	{
+		return dustClouds;
+	}
+	
+	//============================================================================================
+	//***************************************Compatibility****************************************
+	//============================================================================================
+	
+	/**
+	 * @return Color of the Moon during the current Enhanced Celestials lunar event, white if Enhanced Celestials isn't loaded
+	 */
+	public int enhancedCelestialsMoonARGB()
+	{
+		return enhancedCelestialsMoonARGB;
+	}
+	
+	/**
+	 * @return Size multiplier of the Moon during the current Enhanced Celestials lunar event, 1 if Enhanced Celestials isn't loaded
+	 */
+	public float enhancedCelestialsMoonSize()
+	{
+		return enhancedCelestialsMoonSize;
+	}
+}
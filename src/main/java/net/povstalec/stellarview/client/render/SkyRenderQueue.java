@@ -0,0 +1,476 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.renderer.FogRenderer;
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.client.util.StarBuffer;
+import org.joml.Matrix4f;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Collects everything drawn during the space part of the sky pass and draws it at the end with as few GL state changes as possible.
+ *
+ * Items are drawn in the order they were submitted, except for runs of additively blended billboards.
+ * Additive blending doesn't depend on the drawing order, so within such a run billboards are sorted by texture and pose,
+ * which lets billboards from different objects share a draw call. Everything else (alpha blended layers, Star Fields, Dust Clouds)
+ * keeps its place, so parents and children are still drawn back to front.
+ * Fog is only switched off for the items that need it and switched back on once at the end instead of after every item.
+ */
+public final class SkyRenderQueue
+{
+	public static final int BLEND_DEFAULT = 0;
+	public static final int BLEND_ADDITIVE = 1;
+	private static final int BLEND_UNKNOWN = -1;
+	
+	private static final int NO_TEXTURE = -1;
+	// Custom draws bind their own shaders, so the queue only knows whether its billboard shader is still bound
+	private static final int UNKNOWN_SHADER = -1;
+	private static final int BILLBOARD_SHADER = 0;
+	
+	// Each part of the sort key gets 21 bits
+	private static final int KEY_BITS = 21;
+	private static final int MAX_SORTED_ITEMS = 1 << KEY_BITS;
+	private static final long KEY_MASK = MAX_SORTED_ITEMS - 1;
+	
+	// Items
+	private static int[] textures = new int[64];
+	private static int[] poses = new int[64];
+	private static int[] blends = new int[64];
+	private static int[] payloads = new int[64];
+	private static boolean[] isCustom = new boolean[64];
+	private static boolean[] needsNoFog = new boolean[64];
+	private static int items = 0;
+	
+	// Draw order
+	private static int[] order = new int[64];
+	private static int[] billboardOrder = new int[64];
+	private static long[] sortKeys = new long[64];
+	
+	private static final ArrayList<Runnable> CUSTOM_DRAWS = new ArrayList<Runnable>();
+	// Textures keep their indices across frames, so that looking them up doesn't add entries to the map every frame
+	private static final ArrayList<ResourceLocation> TEXTURES = new ArrayList<ResourceLocation>();
+	private static final HashMap<ResourceLocation, Integer> TEXTURE_INDICES = new HashMap<ResourceLocation, Integer>();
+	private static final ArrayList<Matrix4f> POSES = new ArrayList<Matrix4f>();
+	private static int usedPoses = 0;
+	
+	private static boolean isActive = false;
+	@Nullable
+	private static Runnable setupFog;
+	
+	// State while drawing
+	private static int currentBlend;
+	private static int currentTexture;
+	private static int currentShader;
+	private static boolean isFogDisabled;
+	
+	// Counters
+	private static int submittedStateChanges = 0;
+	private static int issuedStateChanges = 0;
+	private static int submittedDraws = 0;
+	private static int issuedDraws = 0;
+	private static int customDraws = 0;
+	private static int submittedStateChangesLastFrame = 0;
+	private static int issuedStateChangesLastFrame = 0;
+	private static int submittedDrawsLastFrame = 0;
+	private static int issuedDrawsLastFrame = 0;
+	private static int customDrawsLastFrame = 0;
+	private static int reportedStateChanges = -1;
+	
+	/**
+	 * Starts collecting draws, anything submitted before {@link #end()} is drawn at the end
+	 * @param setupFog Restores the fog after items that need it switched off
+	 */
+	public static void begin(Runnable setupFog)
+	{
+		SkyRenderQueue.setupFog = setupFog;
+		isActive = true;
+		
+		submittedStateChanges = 0;
+		issuedStateChanges = 0;
+		submittedDraws = 0;
+		issuedDraws = 0;
+		customDraws = 0;
+	}
+	
+	/**
+	 * Draws everything submitted since {@link #begin(Runnable)}
+	 */
+	public static void end()
+	{
+		flush();
+		isActive = false;
+		setupFog = null;
+		
+		submittedStateChangesLastFrame = submittedStateChanges;
+		issuedStateChangesLastFrame = issuedStateChanges;
+		submittedDrawsLastFrame = submittedDraws;
+		issuedDrawsLastFrame = issuedDraws;
+		customDrawsLastFrame = customDraws;
+		
+		if(issuedStateChanges != reportedStateChanges)
+		{
+			reportedStateChanges = issuedStateChanges;
+			StellarView.LOGGER.debug("Sky render queue: " + submittedDraws + " draws with " + submittedStateChanges + " state changes reduced to "
+					+ issuedDraws + " draws with " + issuedStateChanges + " state changes, " + customDraws + " of the draws set up their own shaders");
+		}
+	}
+	
+	/**
+	 * Submits a billboard recorded with {@link BillboardBatch#add}
+	 * @param texture Texture (or atlas page) of the billboard
+	 * @param blend Blend mode, {@link #BLEND_DEFAULT} or {@link #BLEND_ADDITIVE}
+	 * @param pose Pose the billboard is drawn with, copied if it differs from the previous one
+	 * @param billboard Index returned by {@link BillboardBatch#add}
+	 */
+	public static void submitBillboard(ResourceLocation texture, int blend, Matrix4f pose, int billboard)
+	{
+		addItem(textureIndex(texture), poseIndex(pose), blend, billboard, false, false);
+		
+		if(!isActive)
+			flush();
+	}
+	
+	/**
+	 * Submits a draw that sets up its own shader and texture
+	 * @param blend Blend mode the draw expects, {@link #BLEND_DEFAULT} or {@link #BLEND_ADDITIVE}
+	 * @param noFog Whether the fog has to be switched off for the draw
+	 * @param draw Draws something
+	 */
+	public static void submit(int blend, boolean noFog, Runnable draw)
+	{
+		CUSTOM_DRAWS.add(draw);
+		addItem(NO_TEXTURE, -1, blend, CUSTOM_DRAWS.size() - 1, true, noFog);
+		
+		if(!isActive)
+			flush();
+	}
+	
+	private static void addItem(int texture, int pose, int blend, int payload, boolean custom, boolean noFog)
+	{
+		if(items == textures.length)
+		{
+			int capacity = items * 2;
+			textures = Arrays.copyOf(textures, capacity);
+			poses = Arrays.copyOf(poses, capacity);
+			blends = Arrays.copyOf(blends, capacity);
+			payloads = Arrays.copyOf(payloads, capacity);
+			isCustom = Arrays.copyOf(isCustom, capacity);
+			needsNoFog = Arrays.copyOf(needsNoFog, capacity);
+			order = new int[capacity];
+			billboardOrder = new int[capacity];
+			sortKeys = new long[capacity];
+		}
+		
+		textures[items] = texture;
+		poses[items] = pose;
+		blends[items] = blend;
+		payloads[items] = payload;
+		isCustom[items] = custom;
+		needsNoFog[items] = noFog;
+		items++;
+	}
+	
+	private static int textureIndex(ResourceLocation texture)
+	{
+		Integer index = TEXTURE_INDICES.get(texture);
+		
+		if(index == null)
+		{
+			index = TEXTURES.size();
+			TEXTURES.add(texture);
+			TEXTURE_INDICES.put(texture, index);
+		}
+		
+		return index;
+	}
+	
+	private static int poseIndex(Matrix4f pose)
+	{
+		// Objects usually share the pose of the object before them
+		if(usedPoses > 0 && POSES.get(usedPoses - 1).equals(pose))
+			return usedPoses - 1;
+		
+		if(usedPoses == POSES.size())
+			POSES.add(new Matrix4f());
+		
+		POSES.get(usedPoses).set(pose);
+		return usedPoses++;
+	}
+	
+	//============================================================================================
+	//******************************************Drawing*******************************************
+	//============================================================================================
+	
+	private static boolean isReorderable(int item)
+	{
+		return !isCustom[item] && blends[item] == BLEND_ADDITIVE;
+	}
+	
+	/**
+	 * Sorts runs of additive billboards by texture and pose, everything else stays in submission order
+	 */
+	private static void sortItems()
+	{
+		for(int i = 0; i < items; i++)
+		{
+			order[i] = i;
+		}
+		
+		if(items >= MAX_SORTED_ITEMS || TEXTURES.size() >= MAX_SORTED_ITEMS || usedPoses >= MAX_SORTED_ITEMS)
+			return;
+		
+		int start = 0;
+		while(start < items)
+		{
+			if(!isReorderable(start))
+			{
+				start++;
+				continue;
+			}
+			
+			int end = start;
+			while(end < items && isReorderable(end))
+			{
+				sortKeys[end] = ((long) textures[end] << (KEY_BITS * 2)) | ((long) poses[end] << KEY_BITS) | end;
+				end++;
+			}
+			
+			Arrays.sort(sortKeys, start, end);
+			for(int i = start; i < end; i++)
+			{
+				order[i] = (int) (sortKeys[i] & KEY_MASK);
+			}
+			
+			start = end;
+		}
+	}
+	
+	/**
+	 * Draws all submitted items
+	 */
+	public static void flush()
+	{
+		if(items == 0)
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		
+		countSubmittedStateChanges();
+		sortItems();
+		
+		int billboards = 0;
+		for(int i = 0; i < items; i++)
+		{
+			if(!isCustom[order[i]])
+				billboardOrder[billboards++] = payloads[order[i]];
+		}
+		
+		if(billboards > 0)
+			BillboardBatch.upload(billboardOrder, billboards);
+		
+		currentBlend = BLEND_UNKNOWN;
+		currentTexture = NO_TEXTURE;
+		currentShader = UNKNOWN_SHADER;
+		isFogDisabled = false;
+		
+		int uploaded = 0;
+		int i = 0;
+		while(i < items)
+		{
+			int item = order[i];
+			
+			if(isCustom[item])
+			{
+				if(needsNoFog[item] && !isFogDisabled)
+				{
+					FogRenderer.setupNoFog();
+					isFogDisabled = true;
+					issuedStateChanges++;
+				}
+				
+				applyBlend(blends[item]);
+				CUSTOM_DRAWS.get(payloads[item]).run();
+				issuedDraws++;
+				customDraws++;
+				
+				// The draw may have changed anything
+				currentBlend = BLEND_UNKNOWN;
+				currentTexture = NO_TEXTURE;
+				currentShader = UNKNOWN_SHADER;
+				i++;
+				continue;
+			}
+			
+			int end = i + 1;
+			while(end < items && !isCustom[order[end]] && textures[order[end]] == textures[item] && poses[order[end]] == poses[item] && blends[order[end]] == blends[item])
+			{
+				end++;
+			}
+			
+			applyBlend(blends[item]);
+			changeShader(BILLBOARD_SHADER);
+			if(currentTexture != textures[item])
+			{
+				currentTexture = textures[item];
+				issuedStateChanges++;
+			}
+			
+			BillboardBatch.draw(TEXTURES.get(textures[item]), POSES.get(poses[item]), uploaded, end - i);
+			issuedDraws++;
+			
+			uploaded += end - i;
+			i = end;
+		}
+		
+		if(billboards > 0)
+			StarBuffer.unbind();
+		
+		if(isFogDisabled && setupFog != null)
+		{
+			setupFog.run();
+			issuedStateChanges++;
+		}
+		RenderSystem.defaultBlendFunc();
+		
+		submittedDraws += items;
+		reset();
+	}
+	
+	private static void applyBlend(int blend)
+	{
+		if(blend == currentBlend)
+			return;
+		
+		if(blend == BLEND_ADDITIVE)
+			RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
+		else
+			RenderSystem.defaultBlendFunc();
+		
+		currentBlend = blend;
+		issuedStateChanges++;
+	}
+	
+	private static void changeShader(int shader)
+	{
+		if(shader == currentShader && shader != UNKNOWN_SHADER)
+			return;
+		
+		currentShader = shader;
+		issuedStateChanges++;
+	}
+	
+	/**
+	 * Counts the state changes drawing every item right away, in submission order, would have needed:
+	 * each layer set its blend function and reset it afterwards, and each Star Field and Dust Cloud switched the fog off and back on.
+	 * Like when drawing, the shaders custom draws set up themselves aren't counted, but the billboard shader has to be bound again after them
+	 */
+	private static void countSubmittedStateChanges()
+	{
+		int shader = UNKNOWN_SHADER;
+		int texture = NO_TEXTURE;
+		
+		for(int item = 0; item < items; item++)
+		{
+			if(isCustom[item])
+				shader = UNKNOWN_SHADER;
+			else if(shader != BILLBOARD_SHADER)
+			{
+				shader = BILLBOARD_SHADER;
+				submittedStateChanges++;
+			}
+			
+			if(isCustom[item])
+				texture = NO_TEXTURE;
+			else if(textures[item] != texture)
+			{
+				texture = textures[item];
+				submittedStateChanges++;
+			}
+			
+			submittedStateChanges += isCustom[item] ? 1 : 2;
+			
+			if(needsNoFog[item])
+				submittedStateChanges += 2;
+		}
+	}
+	
+	private static void reset()
+	{
+		items = 0;
+		usedPoses = 0;
+		CUSTOM_DRAWS.clear();
+		BillboardBatch.reset();
+	}
+	
+	/**
+	 * Drops everything submitted since {@link #begin(Runnable)} without drawing it, which lets submitting be measured without a GL context
+	 */
+	static void discard()
+	{
+		reset();
+		isActive = false;
+		setupFog = null;
+	}
+	
+	/**
+	 * Drops everything that was submitted and releases the billboard buffers
+	 */
+	public static void clear()
+	{
+		discard();
+		TEXTURES.clear();
+		TEXTURE_INDICES.clear();
+		BillboardBatch.clear();
+	}
+	
+	//============================================================================================
+	//******************************************Counters******************************************
+	//============================================================================================
+	
+	/**
+	 * @return Number of items submitted during the last frame, which is how many draws there would be without the queue
+	 */
+	public static int submittedDrawsLastFrame()
+	{
+		return submittedDrawsLastFrame;
+	}
+	
+	/**
+	 * @return Number of draw calls the queue used during the last frame
+	 */
+	public static int issuedDrawsLastFrame()
+	{
+		return issuedDrawsLastFrame;
+	}
+	
+	/**
+	 * @return Number of draws during the last frame that set up their own shader, these are part of both the submitted and the issued draws
+	 */
+	public static int customDrawsLastFrame()
+	{
+		return customDrawsLastFrame;
+	}
+	
+	/**
+	 * @return Number of shader, blend, texture and fog changes drawing the last frame's items in submission order would have needed,
+	 * not counting the shaders of custom draws
+	 */
+	public static int submittedStateChangesLastFrame()
+	{
+		return submittedStateChangesLastFrame;
+	}
+	
+	/**
+	 * @return Number of shader, blend, texture and fog changes the queue made during the last frame, not counting the shaders of custom draws
+	 */
+	public static int issuedStateChangesLastFrame()
+	{
+		return issuedStateChangesLastFrame;
+	}
+}
@@ -0,0 +1,172 @@
+package net.povstalec.stellarview.client.render;
+
+import net.minecraft.client.Camera;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.povstalec.stellarview.client.render.level.util.StellarViewFogEffects;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Works out once per frame how much of the sky can be seen, so that whole render stages can be skipped when nothing they draw would be visible,
+ * like deep underground with no sky light, during full rain, or when it's too bright for stars.
+ * The sun is the exception, it's rendered whenever anything of the sky is.
+ */
+public final class SkyVisibility
+{
+	public enum Stage
+	{
+		DUST_CLOUDS,
+		STAR_FIELDS,
+		SPACE_OBJECTS,
+		METEORS
+	}
+	
+	private static final Stage[] STAGES = Stage.values();
+	
+	private static final boolean[] VISIBLE_STAGES = new boolean[STAGES.length];
+	private static final long[] SKIPPED_FRAMES = new long[STAGES.length];
+	
+	static
+	{
+		// Everything is visible until the first update
+		Arrays.fill(VISIBLE_STAGES, true);
+	}
+	
+	// Sky exposure of a camera that's under the surface but still gets some sky light, or isn't deep enough to be sure it's enclosed
+	private static final float MIN_EXPOSURE = 0.25F;
+	// How far below the surface a camera without sky light has to be before it counts as enclosed,
+	// sky light fades out about 15 blocks into a tunnel while the sky can still be seen through its mouth
+	private static final int ENCLOSED_DEPTH = 16;
+	
+	private static float skyExposure = 1;
+	private static float visibility = 1;
+	
+	// The sun is never skipped, since it can be seen whenever any of the sky can
+	@Nullable
+	private static SpaceObjectRenderer sun = null;
+	
+	/**
+	 * Updates the visibility of all stages, has to be called after the View Center brightness values have been updated for the frame
+	 * @param sun Star the View Center orbits around, which stays visible when other Space Objects are skipped
+	 */
+	public static void update(ViewCenter viewCenter, @Nullable SpaceObjectRenderer sun, ClientLevel level, Camera camera, float partialTicks)
+	{
+		SkyVisibility.sun = sun;
+		
+		if(!GeneralConfig.sky_visibility_culling.get())
+		{
+			skyExposure = 1;
+			visibility = 1;
+			
+			Arrays.fill(VISIBLE_STAGES, true);
+			return;
+		}
+		
+		skyExposure = skyExposure(level, camera);
+		visibility = skyExposure * viewCenter.frameContext().rainDimming();
+		
+		// Already handled by the fog, but nothing can be seen either way
+		if(StellarViewFogEffects.doesMobEffectBlockSky(camera))
+			visibility = 0;
+		
+		boolean spaceVisible = visibility > 0;
+		
+		setVisible(Stage.SPACE_OBJECTS, spaceVisible);
+		setVisible(Stage.STAR_FIELDS, spaceVisible && !viewCenter.frameContext().disableStars() && viewCenter.starBrightness() > 0);
+		setVisible(Stage.DUST_CLOUDS, spaceVisible && viewCenter.dustCloudBrightness() > 0);
+		setVisible(Stage.METEORS, spaceVisible && (viewCenter.starsAlwaysVisible() || viewCenter.frameContext().levelStarBrightness() > 0));
+	}
+	
+	private static void setVisible(Stage stage, boolean visible)
+	{
+		VISIBLE_STAGES[stage.ordinal()] = visible;
+		
+		if(!visible)
+			SKIPPED_FRAMES[stage.ordinal()]++;
+	}
+	
+	/**
+	 * @return 0 if the camera is enclosed deep underground with no sky light reaching it, otherwise a value up to 1 depending on how much sky light reaches it
+	 */
+	private static float skyExposure(ClientLevel level, Camera camera)
+	{
+		// Without sky light there's no telling whether the sky can be seen
+		if(!level.dimensionType().hasSkyLight())
+			return 1;
+		
+		BlockPos pos = camera.getBlockPosition();
+		int surface = level.getHeight(Heightmap.Types.WORLD_SURFACE, pos.getX(), pos.getZ());
+		
+		if(pos.getY() >= surface)
+			return 1;
+		
+		int skyLight = level.getBrightness(LightLayer.SKY, pos);
+		
+		// Low sky light only dims the sky, it takes being deep below the surface as well to be sure none of it can be seen
+		if(skyLight == 0 && surface - pos.getY() >= ENCLOSED_DEPTH)
+			return 0;
+		
+		return Math.max(skyLight / 15F, MIN_EXPOSURE);
+	}
+	
+	/**
+	 * @return True if anything drawn by the stage could be seen this frame
+	 */
+	public static boolean isVisible(Stage stage)
+	{
+		return VISIBLE_STAGES[stage.ordinal()];
+	}
+	
+	/**
+	 * @return True if the Space Object should be rendered this frame, which is always the case for the sun
+	 */
+	public static boolean isVisible(SpaceObjectRenderer spaceObject)
+	{
+		return VISIBLE_STAGES[Stage.SPACE_OBJECTS.ordinal()] || spaceObject == sun;
+	}
+	
+	/**
+	 * @return True if the sun is one of the objects between the indices, which are rendered even when other Space Objects are skipped
+	 */
+	public static boolean containsSun(SpaceObjectRenderer[] spaceObjects, int start, int end)
+	{
+		if(sun == null)
+			return false;
+		
+		for(int i = start; i < end; i++)
+		{
+			if(spaceObjects[i] == sun)
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return How much of the sky can be seen this frame, from 0 to 1
+	 */
+	public static float visibility()
+	{
+		return visibility;
+	}
+	
+	public static float skyExposure()
+	{
+		return skyExposure;
+	}
+	
+	/**
+	 * @return Number of frames the stage has been skipped for since the game started
+	 */
+	public static long skippedFrames(Stage stage)
+	{
+		return SKIPPED_FRAMES[stage.ordinal()];
+	}
+}
@@ -0,0 +1,314 @@
+package net.povstalec.stellarview.client.render;
+
+import net.povstalec.stellarview.api.common.SpaceRegion;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Space Region Renderers keyed by their Region Position, stored in an open addressing table with the coordinates kept as primitive longs.
+ * Regions are also kept in a dense array for iteration, and the regions around a position can be queried nearest-first without looking at the rest.
+ */
+public final class SpaceRegionIndex
+{
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int EMPTY = -1;
+	
+	// Open addressing table, each slot holds the index of a region in the dense arrays
+	private int[] slots;
+	private int mask;
+	
+	// Dense arrays, in the order the regions were added (apart from removals)
+	private long[] xs;
+	private long[] ys;
+	private long[] zs;
+	private SpaceRegionRenderer[] regions;
+	private int size = 0;
+	
+	// Incremented whenever regions are added or removed, so that cached queries know they're outdated
+	private int modCount = 0;
+	
+	private final Query query = new Query();
+	
+	public SpaceRegionIndex()
+	{
+		clear();
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @param index Index between 0 and {@link #size()}
+	 * @return Region at the index, the order doesn't depend on the positions of the regions
+	 */
+	public SpaceRegionRenderer get(int index)
+	{
+		return regions[index];
+	}
+	
+	@Nullable
+	public SpaceRegionRenderer get(long x, long y, long z)
+	{
+		int slot = findSlot(x, y, z);
+		
+		return slots[slot] == EMPTY ? null : regions[slots[slot]];
+	}
+	
+	@Nullable
+	public SpaceRegionRenderer get(SpaceRegion.RegionPos pos)
+	{
+		return get(pos.x(), pos.y(), pos.z());
+	}
+	
+	/**
+	 * Adds the region, replacing the region with the same position if there is one
+	 */
+	public void put(SpaceRegionRenderer region)
+	{
+		SpaceRegion.RegionPos pos = region.getRegionPos();
+		int slot = findSlot(pos.x(), pos.y(), pos.z());
+		
+		if(slots[slot] != EMPTY)
+		{
+			regions[slots[slot]] = region;
+			modCount++;
+			return;
+		}
+		
+		if(size == regions.length)
+			growDense();
+		
+		xs[size] = pos.x();
+		ys[size] = pos.y();
+		zs[size] = pos.z();
+		regions[size] = region;
+		slots[slot] = size;
+		size++;
+		modCount++;
+		
+		// Keeps the table at most half full, so that probe sequences stay short
+		if(size * 2 > slots.length)
+			rehash(slots.length * 2);
+	}
+	
+	public void remove(SpaceRegion.RegionPos pos)
+	{
+		int slot = findSlot(pos.x(), pos.y(), pos.z());
+		int index = slots[slot];
+		
+		if(index == EMPTY)
+			return;
+		
+		removeSlot(slot);
+		
+		// Moves the last region into the hole left in the dense arrays
+		int last = size - 1;
+		if(index != last)
+		{
+			slots[findSlot(xs[last], ys[last], zs[last])] = index;
+			xs[index] = xs[last];
+			ys[index] = ys[last];
+			zs[index] = zs[last];
+			regions[index] = regions[last];
+		}
+		
+		regions[last] = null;
+		size--;
+		modCount++;
+	}
+	
+	public void clear()
+	{
+		slots = new int[INITIAL_CAPACITY * 2];
+		Arrays.fill(slots, EMPTY);
+		mask = slots.length - 1;
+		
+		xs = new long[INITIAL_CAPACITY];
+		ys = new long[INITIAL_CAPACITY];
+		zs = new long[INITIAL_CAPACITY];
+		regions = new SpaceRegionRenderer[INITIAL_CAPACITY];
+		size = 0;
+		modCount++;
+	}
+	
+	//============================================================================================
+	//*******************************************Queries******************************************
+	//============================================================================================
+	
+	/**
+	 * Finds all regions within the range of a region position, matching {@link SpaceRegion.RegionPos#isInRange(SpaceRegion.RegionPos, int)}.
+	 * The result is cached and only searched for again once the position, range or the regions change.
+	 * @return Regions within range, ordered nearest-first, which stay valid until the next query
+	 */
+	public Query query(long x, long y, long z, int range)
+	{
+		if(query.modCount != modCount || query.x != x || query.y != y || query.z != z || query.range != range)
+			query.search(this, x, y, z, range);
+		
+		return query;
+	}
+	
+	/**
+	 * Regions within range of a position, nearest-first
+	 */
+	public static final class Query
+	{
+		private long x, y, z;
+		private int range;
+		private int modCount = -1;
+		
+		// Squared distance in the upper half, dense index in the lower half, so that sorting orders by distance
+		private long[] keys = new long[INITIAL_CAPACITY];
+		private SpaceRegionRenderer[] regions = new SpaceRegionRenderer[INITIAL_CAPACITY];
+		private int size = 0;
+		
+		public int size()
+		{
+			return size;
+		}
+		
+		/**
+		 * @param index Index between 0 and {@link #size()}, where 0 is the nearest region
+		 */
+		public SpaceRegionRenderer get(int index)
+		{
+			return regions[index];
+		}
+		
+		private void search(SpaceRegionIndex index, long x, long y, long z, int range)
+		{
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.range = range;
+			this.modCount = index.modCount;
+			
+			Arrays.fill(regions, 0, size, null);
+			size = 0;
+			
+			if(range <= 0)
+				return;
+			
+			long width = 2L * range - 1;
+			
+			// Either goes through the occupied regions or through the cells around the position, whichever is fewer
+			if(index.size <= width * width * width)
+			{
+				for(int i = 0; i < index.size; i++)
+				{
+					long dx = index.xs[i] - x;
+					long dy = index.ys[i] - y;
+					long dz = index.zs[i] - z;
+					
+					if(Math.abs(dx) < range && Math.abs(dy) < range && Math.abs(dz) < range)
+						add(dx * dx + dy * dy + dz * dz, i);
+				}
+			}
+			else
+			{
+				for(long dx = 1 - range; dx < range; dx++)
+				{
+					for(long dy = 1 - range; dy < range; dy++)
+					{
+						for(long dz = 1 - range; dz < range; dz++)
+						{
+							int i = index.slots[index.findSlot(x + dx, y + dy, z + dz)];
+							if(i != EMPTY)
+								add(dx * dx + dy * dy + dz * dz, i);
+						}
+					}
+				}
+			}
+			
+			Arrays.sort(keys, 0, size);
+			
+			if(regions.length < keys.length)
+				regions = new SpaceRegionRenderer[keys.length];
+			
+			for(int i = 0; i < size; i++)
+			{
+				regions[i] = index.regions[(int) keys[i]];
+			}
+		}
+		
+		private void add(long distanceSquared, int denseIndex)
+		{
+			if(size == keys.length)
+				keys = Arrays.copyOf(keys, size * 2);
+			
+			keys[size++] = distanceSquared << 32 | denseIndex;
+		}
+	}
+	
+	//============================================================================================
+	//********************************************Table*******************************************
+	//============================================================================================
+	
+	/**
+	 * @return Slot holding the position, or the empty slot it would be put into
+	 */
+	private int findSlot(long x, long y, long z)
+	{
+		int slot = (int) SpaceRegion.RegionPos.hash(x, y, z) & mask;
+		
+		while(true)
+		{
+			int index = slots[slot];
+			if(index == EMPTY || (xs[index] == x && ys[index] == y && zs[index] == z))
+				return slot;
+			
+			slot = (slot + 1) & mask;
+		}
+	}
+	
+	/**
+	 * Empties a slot and shifts back the slots after it that would otherwise become unreachable
+	 */
+	private void removeSlot(int slot)
+	{
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		
+		while(slots[next] != EMPTY)
+		{
+			int index = slots[next];
+			int home = (int) SpaceRegion.RegionPos.hash(xs[index], ys[index], zs[index]) & mask;
+			
+			// Only moves entries whose home slot isn't between the hole and their current slot
+			if(((next - home) & mask) >= ((next - hole) & mask))
+			{
+				slots[hole] = index;
+				hole = next;
+			}
+			
+			next = (next + 1) & mask;
+		}
+		
+		slots[hole] = EMPTY;
+	}
+	
+	private void rehash(int capacity)
+	{
+		slots = new int[capacity];
+		Arrays.fill(slots, EMPTY);
+		mask = capacity - 1;
+		
+		for(int i = 0; i < size; i++)
+		{
+			slots[findSlot(xs[i], ys[i], zs[i])] = i;
+		}
+	}
+	
+	private void growDense()
+	{
+		int capacity = regions.length * 2;
+		
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		zs = Arrays.copyOf(zs, capacity);
+		regions = Arrays.copyOf(regions, capacity);
+	}
+}
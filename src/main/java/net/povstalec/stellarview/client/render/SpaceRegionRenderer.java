@@ -13,16 +13,13 @@ import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer
 import net.povstalec.stellarview.client.render.space_objects.resourcepack.StarFieldRenderer;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.config.GeneralConfig;
-import net.povstalec.stellarview.common.util.AxisRotation;
 import org.joml.Matrix4f;
-import org.joml.Vector3f;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 
 public class SpaceRegionRenderer
 {
-	private static final Vector3f NULL_VECTOR = new Vector3f();
-	
 	protected final SpaceRegion region;
 	
 	protected final ArrayList<SpaceObjectRenderer> children = new ArrayList<SpaceObjectRenderer>();
@@ -30,6 +27,9 @@ public class SpaceRegionRenderer
 	protected final ArrayList<GravityLenseRenderer> lensingRenderers = new ArrayList<GravityLenseRenderer>();
 	protected final ArrayList<StarFieldRenderer> starFieldRenderers = new ArrayList<StarFieldRenderer>();
 	
+	@Nullable
+	private SpaceScene scene;
+	
 	private boolean isSetUp = false;
 	
 	public SpaceRegionRenderer(SpaceRegion region)
@@ -64,6 +64,7 @@ public class SpaceRegionRenderer
 			setupLensingAndStarFields(child);
 		}
 		
+		scene = new SpaceScene(children);
 		isSetUp = true;
 	}
 	
@@ -96,18 +97,61 @@ public class SpaceRegionRenderer
 		}
 	}
 	
-	public void render(ViewCenter viewCenter, SpaceObjectRenderer masterParent, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
+	/**
+	 * Submits the Dust Clouds of every Star Field in this region to be baked into the {@link SkyBackground}
+	 */
+	public void bakeDustClouds(ViewCenter viewCenter, Matrix4f pose, Matrix4f projectionMatrix, float brightness)
 	{
 		if(!isSetUp)
 			setupRegion();
 		
-		for(SpaceObjectRenderer spaceObject : children)
+		for(StarFieldRenderer starField : starFieldRenderers)
 		{
-			if(spaceObject != masterParent) // Makes sure the master parent (usually galaxy) is rendered last, that way stars from other galaxies don't get rendered over planets
-				spaceObject.render(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator, NULL_VECTOR, new AxisRotation());
+			starField.bakeDustClouds(viewCenter, pose, projectionMatrix, brightness);
 		}
 	}
 	
+	/**
+	 * Submits the Stars of every Star Field in this region to be baked into the {@link SkyBackground}
+	 */
+	public void bakeStars(ViewCenter viewCenter, Matrix4f pose, Matrix4f projectionMatrix, float brightness)
+	{
+		if(!isSetUp)
+			setupRegion();
+		
+		for(StarFieldRenderer starField : starFieldRenderers)
+		{
+			starField.bakeStars(viewCenter, pose, projectionMatrix, brightness);
+		}
+	}
+	
+	public void render(ViewCenter viewCenter, SpaceObjectRenderer masterParent, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
+	{
+		if(!isSetUp)
+			setupRegion();
+		
+		// Makes sure the master parent (usually galaxy) is rendered last, that way stars from other galaxies don't get rendered over planets
+		scene.render(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
+	}
+	
+	/**
+	 * Renders a single object of this region along with its children
+	 * @return False if the object isn't in this region
+	 */
+	public boolean renderObject(ViewCenter viewCenter, SpaceObjectRenderer object, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
+	{
+		if(!isSetUp)
+			setupRegion();
+		
+		return scene.renderObject(viewCenter, object, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
+	}
+	
+	public void updateSceneCoords()
+	{
+		if(scene != null)
+			scene.updateCoords();
+	}
+	
 	public void setBestLensing()
 	{
 		if(!GeneralConfig.gravitational_lensing.get())
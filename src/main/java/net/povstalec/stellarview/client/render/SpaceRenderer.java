@@ -1,7 +1,6 @@
 package net.povstalec.stellarview.client.render;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -13,7 +12,6 @@ import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.config.GeneralConfig;
 import org.joml.Matrix3f;
 import org.joml.Matrix4f;
-import org.joml.Vector3f;
 
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
@@ -25,11 +23,7 @@ import net.povstalec.stellarview.common.util.SpaceCoords;
 
 public final class SpaceRenderer
 {
-	private static final Vector3f NULL_VECTOR = new Vector3f();
-	
-	private static final int STAR_LIMIT = 100000;
-	
-	private static final HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer> SPACE_REGIONS = new HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer>();
+	private static final SpaceRegionIndex SPACE_REGIONS = new SpaceRegionIndex();
 	
 	public static final Matrix3f IDENTITY_MATRIX = new Matrix3f();
 	
@@ -37,6 +31,10 @@ public final class SpaceRenderer
 	public static Matrix3f lensingMatrixInv = IDENTITY_MATRIX;
 	public static float lensingIntensity = 0;
 	
+	// Scene for a master parent that couldn't be found in any of the regions
+	@Nullable
+	private static SpaceScene masterParentScene = null;
+	
 	@Nullable
 	private static Sol sol = null;
 	@Nullable
@@ -44,8 +42,6 @@ public final class SpaceRenderer
 	@Nullable
 	private static AxisRotation solAxisRotation = null;
 	
-	private static int starsPerTick = 0;
-	
 	public static void updateSpaceObjects()
 	{
 		if(Minecraft.getInstance().level == null)
@@ -53,16 +49,7 @@ public final class SpaceRenderer
 		
 		SpaceRenderer.updateSol();
 		SpaceRenderer.resetStarFields();
-	}
-	
-	public static boolean loadNewStars()
-	{
-		return starsPerTick < STAR_LIMIT;
-	}
-	
-	public static void loadedStars(int starCount)
-	{
-		starsPerTick += starCount;
+		SpaceRenderer.updateSceneCoords();
 	}
 	
 	public static void clear()
@@ -70,13 +57,17 @@ public final class SpaceRenderer
 		sol = null;
 		solCoords = null;
 		solAxisRotation = null;
+		masterParentScene = null;
 		
+		UploadScheduler.clear();
+		SkyRenderQueue.clear();
+		SkyBackground.clear();
 		SPACE_REGIONS.clear();
 	}
 	
 	public static void addSpaceRegion(SpaceRegionRenderer spaceRegion)
 	{
-		SPACE_REGIONS.put(spaceRegion.getRegionPos(), spaceRegion);
+		SPACE_REGIONS.put(spaceRegion);
 	}
 	
 	public static void removeSpaceRegion(SpaceRegion.RegionPos regionPos)
@@ -93,66 +84,107 @@ public final class SpaceRenderer
 	
 	public static void setupSynodicOrbits()
 	{
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+		for(int i = 0; i < SPACE_REGIONS.size(); i++)
 		{
-			spaceRegionEntry.getValue().setupSynodicOrbits();
+			SPACE_REGIONS.get(i).setupSynodicOrbits();
 		}
 	}
 	
 	public static void resetStarFields()
 	{
-		starsPerTick = 0;
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+		for(int i = 0; i < SPACE_REGIONS.size(); i++)
 		{
-			spaceRegionEntry.getValue().resetStarFields();
+			SPACE_REGIONS.get(i).resetStarFields();
 		}
 	}
 	
+	public static void updateSceneCoords()
+	{
+		for(int i = 0; i < SPACE_REGIONS.size(); i++)
+		{
+			SPACE_REGIONS.get(i).updateSceneCoords();
+		}
+		
+		if(masterParentScene != null)
+			masterParentScene.updateCoords();
+	}
+	
 	public static void render(ViewCenter viewCenter, SpaceObjectRenderer masterParent, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
 	{
-		starsPerTick = 0;
-		setBestLensing();
+		FrameAllocationProbe.begin();
+		UploadScheduler.processUploads();
+		// Newly uploaded Stars or Dust Clouds aren't part of the baked background yet
+		if(UploadScheduler.uploadsLastFrame() > 0)
+			SkyBackground.invalidate();
+		
+		SpaceScene.beginFrame();
 		
-		SpaceRegion.RegionPos pos = new SpaceRegion.RegionPos(viewCenter.getCoords());
+		SpaceCoords coords = viewCenter.getCoords();
+		SpaceRegionIndex.Query regions = SPACE_REGIONS.query(SpaceRegion.RegionPos.toRegion(coords.x().ly()),
+				SpaceRegion.RegionPos.toRegion(coords.y().ly()), SpaceRegion.RegionPos.toRegion(coords.z().ly()), getRange());
 		
-		if(viewCenter.dustCloudBrightness() > 0)
+		setBestLensing(regions);
+		
+		// Baking goes through the queue too, so it has to happen before the queue starts collecting this frame's draws
+		SkyBackground.update(viewCenter, regions, setupFog);
+		SkyRenderQueue.begin(setupFog);
+		
+		// Regions are rendered farthest-first, so the region the view center is in always comes last
+		if(SkyBackground.isDrawn())
+			SkyBackground.draw(viewCenter, level, partialTicks, modelViewMatrix, projectionMatrix);
+		else if(SkyVisibility.isVisible(SkyVisibility.Stage.DUST_CLOUDS))
 		{
-			for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+			for(int i = regions.size() - 1; i >= 0; i--)
 			{
-				if(spaceRegionEntry.getKey().isInRange(pos, getRange()))
-					spaceRegionEntry.getValue().renderDustClouds(viewCenter, level, camera, partialTicks, modelViewMatrix, projectionMatrix, setupFog, viewCenter.dustCloudBrightness());
+				regions.get(i).renderDustClouds(viewCenter, level, camera, partialTicks, modelViewMatrix, projectionMatrix, setupFog, viewCenter.dustCloudBrightness());
 			}
 		}
 		
-		SpaceRegionRenderer centerRegion = null;
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+		for(int i = regions.size() - 1; i >= 0; i--)
 		{
-			if(!spaceRegionEntry.getKey().equals(pos))
-			{
-				if(spaceRegionEntry.getKey().isInRange(pos, getRange()))
-					spaceRegionEntry.getValue().render(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
-			}
-			else
-				centerRegion = spaceRegionEntry.getValue();
+			regions.get(i).render(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
 		}
 		
-		if(centerRegion != null)
-			centerRegion.render(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
+		renderMasterParent(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
 		
-		masterParent.render(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator, NULL_VECTOR, new AxisRotation());
+		SpaceScene.endFrame();
+		SkyRenderQueue.end();
+		FrameAllocationProbe.end();
 	}
 	
 	
 	
-	private static void setBestLensing()
+	private static void renderMasterParent(ViewCenter viewCenter, SpaceObjectRenderer masterParent, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
+	{
+		SpaceRegionRenderer region = getRegion(masterParent.spaceCoords());
+		if(region != null && region.renderObject(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator))
+			return;
+		
+		// The master parent may have been moved out of the region it was added to
+		for(int i = 0; i < SPACE_REGIONS.size(); i++)
+		{
+			if(SPACE_REGIONS.get(i) != region && SPACE_REGIONS.get(i).renderObject(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator))
+				return;
+		}
+		
+		// Not part of any region, so it gets a scene of its own
+		if(masterParentScene == null || !masterParentScene.renderObject(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator))
+		{
+			masterParentScene = new SpaceScene(List.of(masterParent));
+			masterParentScene.renderObject(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
+		}
+	}
+	
+	private static void setBestLensing(SpaceRegionIndex.Query regions)
 	{
 		lensingMatrix = IDENTITY_MATRIX;
 		lensingMatrixInv = IDENTITY_MATRIX;
 		lensingIntensity = 0;
 		
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+		// Lenses in regions that aren't rendered never had their distance updated, so only the regions in range are considered
+		for(int i = 0; i < regions.size(); i++)
 		{
-			spaceRegionEntry.getValue().setBestLensing();
+			regions.get(i).setBestLensing();
 		}
 	}
 	
@@ -203,21 +235,26 @@ public final class SpaceRenderer
 	@Nullable
 	public static SpaceRegionRenderer getRegion(SpaceRegion.RegionPos pos)
 	{
-		if(SPACE_REGIONS.containsKey(pos))
-			return SPACE_REGIONS.get(pos);
-		
-		return null;
+		return SPACE_REGIONS.get(pos);
 	}
 	
 	@Nullable
 	public static SpaceRegionRenderer getRegion(SpaceCoords coords)
 	{
-		return getRegion(new SpaceRegion.RegionPos(coords));
+		// Looked up by the region coordinates directly, since this runs every frame for the master parent
+		return SPACE_REGIONS.get(SpaceRegion.RegionPos.toRegion(coords.x().ly()), SpaceRegion.RegionPos.toRegion(coords.y().ly()), SpaceRegion.RegionPos.toRegion(coords.z().ly()));
 	}
 	
 	public static SpaceRegionRenderer getOrCreateRegion(SpaceRegion.RegionPos pos)
 	{
-		return SPACE_REGIONS.computeIfAbsent(pos, position -> new SpaceRegionRenderer(new SpaceRegion(pos)));
+		SpaceRegionRenderer region = SPACE_REGIONS.get(pos);
+		if(region == null)
+		{
+			region = new SpaceRegionRenderer(new SpaceRegion(pos));
+			SPACE_REGIONS.put(region);
+		}
+		
+		return region;
 	}
 	
 	public static SpaceRegionRenderer getOrCreateRegion(SpaceCoords coords)
@@ -0,0 +1,440 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.vertex.Tesselator;
+import net.minecraft.client.Camera;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.povstalec.stellarview.api.common.space_objects.OrbitingObject;
+import net.povstalec.stellarview.client.render.space_objects.OrbitingObjectRenderer;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.render.space_objects.TexturedObjectRenderer;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+import net.povstalec.stellarview.common.util.SpaceCoordsArray;
+import net.povstalec.stellarview.common.util.SphericalCoords;
+import org.joml.Matrix4f;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3fc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flattened copy of the Space Object hierarchy of a Space Region, built once after the region is set up.
+ * Objects are stored in depth-first order with the index of their parent, so every frame the positions of all objects can be worked out in a single linear pass,
+ * parents always being handled before their children. The draw order is then sorted once from the positions of this frame and the objects are rendered by walking it.
+ * Updating doesn't touch OpenGL, so it can be run without rendering anything.
+ * Children of objects that look too small for their orbits to be told apart are culled together, only the object itself is then drawn.
+ */
+public final class SpaceScene
+{
+	private final SpaceObjectRenderer[] renderers;
+	// Index of the parent of each object, -1 for objects directly inside the region
+	private final int[] parents;
+	// Index right after the last descendant of each object
+	private final int[] subtreeEnds;
+	
+	private final SpaceCoordsArray coords;
+	
+	/* Bounding sphere of the descendants of each object, the radius of which is boundRadii + boundRatios * distance,
+	 * since orbits with a clamp distance grow along with the distance of the object they orbit around
+	 */
+	private final double[] boundRadii;
+	private final double[] boundRatios;
+	
+	// Results of the last update
+	// Orbit positions of each object added to the ones of its parents (x, y, z)
+	private final float[] offsets;
+	private final double[] distances;
+	// Position on the sky, including the rotation of the View Center
+	private final double[] skyThetas;
+	private final double[] skyPhis;
+	// Position on the sky without the rotation of the View Center
+	private final double[] unrotatedThetas;
+	private final double[] unrotatedPhis;
+	// Whether the children of each object were close enough to be updated and rendered
+	private final boolean[] expanded;
+	
+	private final int[] drawOrder;
+	private int drawCount = 0;
+	
+	private final Vector3d relativePosition = new Vector3d();
+	private final SphericalCoords skyPosition = new SphericalCoords(0, 0, 0);
+	private final Quaterniond viewRotation = new Quaterniond();
+	private final SpaceCoords center = new SpaceCoords();
+	
+	// Subtrees smaller than this on the sky sphere are drawn as just their root
+	private static double cullingSize = 0;
+	
+	// Counters
+	private static int culledSubtrees = 0;
+	private static int culledObjects = 0;
+	private static int culledSubtreesLastFrame = 0;
+	private static int culledObjectsLastFrame = 0;
+	
+	public SpaceScene(List<SpaceObjectRenderer> roots)
+	{
+		ArrayList<SpaceObjectRenderer> flattened = new ArrayList<SpaceObjectRenderer>();
+		ArrayList<Integer> parentList = new ArrayList<Integer>();
+		for(SpaceObjectRenderer root : roots)
+		{
+			flatten(root, -1, flattened, parentList);
+		}
+		
+		int size = flattened.size();
+		this.renderers = flattened.toArray(new SpaceObjectRenderer[size]);
+		this.parents = new int[size];
+		this.subtreeEnds = new int[size];
+		
+		for(int i = 0; i < size; i++)
+		{
+			parents[i] = parentList.get(i);
+			subtreeEnds[i] = i + 1;
+		}
+		
+		// Every descendant comes after its parent, so walking backwards extends each parent's subtree with its children's subtrees
+		for(int i = size - 1; i >= 0; i--)
+		{
+			if(parents[i] >= 0)
+				subtreeEnds[parents[i]] = Math.max(subtreeEnds[parents[i]], subtreeEnds[i]);
+		}
+		
+		this.coords = new SpaceCoordsArray(size);
+		this.boundRadii = new double[size];
+		this.boundRatios = new double[size];
+		
+		this.offsets = new float[size * 3];
+		this.distances = new double[size];
+		this.skyThetas = new double[size];
+		this.skyPhis = new double[size];
+		this.unrotatedThetas = new double[size];
+		this.unrotatedPhis = new double[size];
+		this.expanded = new boolean[size];
+		
+		this.drawOrder = new int[size];
+		
+		updateCoords();
+	}
+	
+	private static void flatten(SpaceObjectRenderer renderer, int parent, List<SpaceObjectRenderer> flattened, List<Integer> parentList)
+	{
+		int index = flattened.size();
+		flattened.add(renderer);
+		parentList.add(parent);
+		
+		ArrayList<SpaceObjectRenderer> children = renderer.children();
+		for(SpaceObjectRenderer child : children)
+		{
+			flatten(child, index, flattened, parentList);
+		}
+	}
+	
+	/**
+	 * Copies the coordinates of all objects into the scene, needs to be called whenever an object is moved
+	 */
+	public void updateCoords()
+	{
+		for(int i = 0; i < renderers.length; i++)
+		{
+			coords.set(i, renderers[i].spaceCoords());
+		}
+		
+		updateBounds();
+	}
+	
+	/**
+	 * Works out the bounding spheres of all subtrees from the orbits and positions of their children
+	 */
+	private void updateBounds()
+	{
+		for(int i = 0; i < renderers.length; i++)
+		{
+			boundRadii[i] = 0;
+			boundRatios[i] = 0;
+		}
+		
+		// Walking backwards means every object has its bounds finished before they're added to its parent's
+		for(int i = renderers.length - 1; i >= 0; i--)
+		{
+			int parent = parents[i];
+			if(parent < 0)
+				continue;
+			
+			double radius;
+			double ratio = 0;
+			
+			if(renderers[i] instanceof OrbitingObjectRenderer<?> orbitingObject && orbitingObject.orbitInfo() != null)
+			{
+				OrbitingObject.OrbitInfo orbitInfo = orbitingObject.orbitInfo();
+				float extent = Math.max(orbitInfo.apoapsis(), orbitInfo.periapsis());
+				
+				radius = extent;
+				// Clamped orbits are scaled by distance / orbitClampDistance once the parent is further away than that
+				if(orbitInfo.orbitClampNumber() > 0)
+					ratio = extent / orbitInfo.orbitClampNumber();
+			}
+			else
+				radius = Math.sqrt(coords.distanceSquared(i, renderers[parent].spaceCoords()));
+			
+			boundRadii[parent] = Math.max(boundRadii[parent], radius + boundRadii[i]);
+			boundRatios[parent] = Math.max(boundRatios[parent], ratio + boundRatios[i]);
+		}
+	}
+	
+	public int size()
+	{
+		return renderers.length;
+	}
+	
+	public double distance(int index)
+	{
+		return distances[index];
+	}
+	
+	/**
+	 * @return Position of the object on the sky as seen from the View Center, projected onto a sphere of the specified radius.
+	 * The returned coordinates are reused by the next call, so they shouldn't be kept around
+	 */
+	public SphericalCoords skyPosition(int index, double radius)
+	{
+		skyPosition.r = radius;
+		skyPosition.theta = skyThetas[index];
+		skyPosition.phi = skyPhis[index];
+		
+		return skyPosition;
+	}
+	
+	/**
+	 * Writes the position of the object relative to the View Center, ignoring the rotation of the View Center, into dest
+	 */
+	public SphericalCoords unrotatedSkyPosition(int index, SphericalCoords dest)
+	{
+		dest.r = distances[index];
+		dest.theta = unrotatedThetas[index];
+		dest.phi = unrotatedPhis[index];
+		
+		return dest;
+	}
+	
+	//============================================================================================
+	//******************************************Updating******************************************
+	//============================================================================================
+	
+	/**
+	 * Reads the View Center position and rotation shared by all objects updated afterwards
+	 */
+	public void prepare(ViewCenter viewCenter, ClientLevel level, float partialTicks)
+	{
+		center.set(viewCenter.getCoords());
+		
+		SpaceCoords.getQuaterniond(level, viewCenter, partialTicks, viewRotation);
+	}
+	
+	/**
+	 * Works out the positions of an object and its descendants, then sorts them into draw order.
+	 * Children of objects that are too far away for them to be rendered are skipped entirely.
+	 * {@link #prepare(ViewCenter, ClientLevel, float)} has to be called first.
+	 * @return Number of objects in the draw order
+	 */
+	public int update(ViewCenter viewCenter, int root, float partialTicks)
+	{
+		long ticks = viewCenter.ticks();
+		int end = subtreeEnds[root];
+		
+		int i = root;
+		while(i < end)
+		{
+			SpaceObjectRenderer renderer = renderers[i];
+			int parent = i == root ? -1 : parents[i];
+			
+			Vector3fc position = renderer.framePosition(viewCenter, ticks, partialTicks); // Handles orbits 'n stuff
+			float offsetX = position.x();
+			float offsetY = position.y();
+			float offsetZ = position.z();
+			if(parent >= 0)
+			{
+				offsetX += offsets[parent * 3];
+				offsetY += offsets[parent * 3 + 1];
+				offsetZ += offsets[parent * 3 + 2];
+			}
+			offsets[i * 3] = offsetX;
+			offsets[i * 3 + 1] = offsetY;
+			offsets[i * 3 + 2] = offsetZ;
+			
+			coords.relativeKm(i, center, relativePosition).add(offsetX, offsetY, offsetZ);
+			
+			double distance = SphericalCoords.sphericalR(relativePosition);
+			distances[i] = distance;
+			unrotatedThetas[i] = SphericalCoords.sphericalTheta(relativePosition);
+			unrotatedPhis[i] = SphericalCoords.sphericalPhi(relativePosition);
+			
+			viewRotation.transform(relativePosition);
+			skyThetas[i] = SphericalCoords.sphericalTheta(relativePosition);
+			skyPhis[i] = SphericalCoords.sphericalPhi(relativePosition);
+			
+			// Children further down the array read this when working out their orbits
+			renderer.setLastDistance(distance);
+			
+			expanded[i] = renderer.rendersChildren(distance) && !isCulled(i, distance);
+			i = expanded[i] ? i + 1 : subtreeEnds[i];
+		}
+		
+		drawCount = 0;
+		appendDrawOrder(root);
+		
+		return drawCount;
+	}
+	
+	/**
+	 * Projects the bounding sphere of the descendants onto the sky sphere the objects are drawn on
+	 * @return True if the descendants of the object are too small to be seen, in which case only the object itself is drawn
+	 */
+	private boolean isCulled(int index, double distance)
+	{
+		int descendants = subtreeEnds[index] - index - 1;
+		if(descendants == 0 || cullingSize <= 0 || distance <= 0)
+			return false;
+		
+		double radius = boundRadii[index] + boundRatios[index] * distance;
+		
+		// Anything that the View Center is inside of can't be small
+		if(radius >= distance)
+			return false;
+		
+		double size = TexturedObjectRenderer.DEFAULT_DISTANCE * radius / distance;
+		if(size >= cullingSize)
+			return false;
+		
+		culledSubtrees++;
+		culledObjects += descendants;
+		
+		return true;
+	}
+	
+	private void appendDrawOrder(int index)
+	{
+		SpaceObjectRenderer renderer = renderers[index];
+		
+		if(expanded[index])
+		{
+			for(int child = index + 1; child < subtreeEnds[index]; child = subtreeEnds[child])
+			{
+				// Render child behind the parent
+				if(renderer.rendersChildBehind(distances[child], distances[index]))
+					appendDrawOrder(child);
+			}
+		}
+		
+		drawOrder[drawCount++] = index;
+		
+		if(expanded[index])
+		{
+			for(int child = index + 1; child < subtreeEnds[index]; child = subtreeEnds[child])
+			{
+				// Render child in front of the parent
+				if(!renderer.rendersChildBehind(distances[child], distances[index]))
+					appendDrawOrder(child);
+			}
+		}
+	}
+	
+	/**
+	 * @return Index of the object at the specified position of the draw order created by the last update
+	 */
+	public int drawOrder(int position)
+	{
+		return drawOrder[position];
+	}
+	
+	//============================================================================================
+	//*****************************************Rendering******************************************
+	//============================================================================================
+	
+	/**
+	 * Resets the counters and reads the settings used by all scenes during a frame
+	 */
+	public static void beginFrame()
+	{
+		cullingSize = GeneralConfig.subtree_culling_size.get() / 100D;
+		
+		culledSubtrees = 0;
+		culledObjects = 0;
+	}
+	
+	/**
+	 * @return Size on the sky sphere below which things are too small to be seen during this frame, or 0 if nothing is culled
+	 */
+	public static double cullingSize()
+	{
+		return cullingSize;
+	}
+	
+	public static void endFrame()
+	{
+		culledSubtreesLastFrame = culledSubtrees;
+		culledObjectsLastFrame = culledObjects;
+	}
+	
+	/**
+	 * @return Number of subtrees that were too small to be seen during the last frame
+	 */
+	public static int culledSubtreesLastFrame()
+	{
+		return culledSubtreesLastFrame;
+	}
+	
+	/**
+	 * @return Number of objects skipped because their subtree was too small to be seen during the last frame
+	 */
+	public static int culledObjectsLastFrame()
+	{
+		return culledObjectsLastFrame;
+	}
+	
+	/**
+	 * Renders all objects in the scene, except for the specified one and its descendants
+	 */
+	public void render(ViewCenter viewCenter, SpaceObjectRenderer excludedRoot, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
+	{
+		prepare(viewCenter, level, partialTicks);
+		
+		for(int root = 0; root < renderers.length; root = subtreeEnds[root])
+		{
+			// Subtrees without the sun have nothing to render while Space Objects are skipped
+			if(renderers[root] != excludedRoot && (SkyVisibility.isVisible(SkyVisibility.Stage.SPACE_OBJECTS) || SkyVisibility.containsSun(renderers, root, subtreeEnds[root])))
+				renderSubtree(root, viewCenter, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
+		}
+	}
+	
+	/**
+	 * Renders the specified object and its descendants
+	 * @return False if the object isn't part of this scene
+	 */
+	public boolean renderObject(ViewCenter viewCenter, SpaceObjectRenderer object, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
+	{
+		for(int i = 0; i < renderers.length; i++)
+		{
+			if(renderers[i] == object)
+			{
+				prepare(viewCenter, level, partialTicks);
+				renderSubtree(i, viewCenter, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private void renderSubtree(int root, ViewCenter viewCenter, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
+	{
+		int count = update(viewCenter, root, partialTicks);
+		
+		for(int i = 0; i < count; i++)
+		{
+			int index = drawOrder[i];
+			if(SkyVisibility.isVisible(renderers[index]))
+				renderers[index].renderObject(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator, this, index);
+		}
+	}
+}
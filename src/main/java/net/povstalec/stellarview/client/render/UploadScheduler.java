@@ -0,0 +1,223 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+/**
+ * Spreads GPU uploads (Star and Dust Cloud buffers) across frames.
+ * Uploads are requested while rendering and performed at the start of the next sky render, most important first,
+ * until the configured time budget for the frame is used up.
+ */
+public final class UploadScheduler
+{
+	// Tiers, lower tiers get uploaded first
+	public static final int TIER_LOD1 = 0;
+	public static final int TIER_LOD2 = 1;
+	public static final int TIER_DUST_CLOUDS = 1;
+	public static final int TIER_LOD3 = 2;
+	
+	private static final Comparator<Request> PRIORITY = Comparator.<Request>comparingInt(request -> request.tier).thenComparingDouble(request -> request.distance);
+	
+	private static final ArrayList<Request> QUEUE = new ArrayList<Request>();
+	private static final IdentityHashMap<Object, Request> REQUESTS = new IdentityHashMap<Object, Request>();
+	
+	// Starting estimate of ~1 GB/s, refined with every measured upload
+	private static double bytesPerNano = 1.0;
+	
+	private static long averageLatency = 0;
+	private static long bytesLastFrame = 0;
+	private static int uploadsLastFrame = 0;
+	private static long totalBytes = 0;
+	private static long totalUploads = 0;
+	
+	private static class Request
+	{
+		private final Object owner;
+		private final Runnable upload;
+		private final long bytes;
+		private final long requestTime;
+		
+		private int tier;
+		private double distance;
+		
+		private Request(Object owner, Runnable upload, long bytes, int tier, double distance)
+		{
+			this.owner = owner;
+			this.upload = upload;
+			this.bytes = bytes;
+			this.requestTime = System.nanoTime();
+			
+			this.tier = tier;
+			this.distance = distance;
+		}
+	}
+	
+	/**
+	 * @param owner Object the upload belongs to
+	 * @return True if the owner already has an upload waiting in the queue
+	 */
+	public static boolean isQueued(Object owner)
+	{
+		return REQUESTS.containsKey(owner);
+	}
+	
+	/**
+	 * Replaces the priority of an already queued upload, so that objects the View Center moved away from fall behind again
+	 * @return False if the owner has no upload in the queue
+	 */
+	public static boolean updatePriority(Object owner, int tier, double distance)
+	{
+		Request request = REQUESTS.get(owner);
+		
+		if(request == null)
+			return false;
+		
+		request.tier = tier;
+		request.distance = distance;
+		return true;
+	}
+	
+	/**
+	 * Removes the owner's upload from the queue, if there is one
+	 */
+	public static void cancel(Object owner)
+	{
+		Request request = REQUESTS.remove(owner);
+		
+		if(request != null)
+			QUEUE.remove(request);
+	}
+	
+	/**
+	 * Queues an upload, requesting an upload for an owner that is already queued only updates its priority
+	 * @param owner Object the upload belongs to, used to avoid queueing the same upload multiple times
+	 * @param tier Tier of the upload, lower tiers are uploaded first
+	 * @param distance Distance (in light years) of the uploaded object, closer objects are uploaded first within a tier
+	 * @param bytes Approximate number of bytes that will be uploaded
+	 * @param upload Upload that will be run on the render thread
+	 */
+	public static void request(Object owner, int tier, double distance, long bytes, Runnable upload)
+	{
+		if(updatePriority(owner, tier, distance))
+			return;
+		
+		Request request = new Request(owner, upload, bytes, tier, distance);
+		REQUESTS.put(owner, request);
+		QUEUE.add(request);
+	}
+	
+	/**
+	 * Performs queued uploads until the time budget for this frame runs out. At least one upload is always performed.
+	 * Uploads that fail are logged and dropped, so they don't block the rest of the queue.
+	 */
+	public static void processUploads()
+	{
+		RenderSystem.assertOnRenderThread();
+		
+		bytesLastFrame = 0;
+		uploadsLastFrame = 0;
+		
+		if(QUEUE.isEmpty())
+			return;
+		
+		QUEUE.sort(PRIORITY);
+		
+		long budget = GeneralConfig.upload_time_budget.get() * 1000L;
+		long frameStart = System.nanoTime();
+		// Number of requests taken off the front of the queue, including failed ones
+		int processed = 0;
+		int uploaded = 0;
+		
+		while(processed < QUEUE.size())
+		{
+			Request request = QUEUE.get(processed);
+			long start = System.nanoTime();
+			
+			// Skips the upload if it's expected to go over the budget
+			if(processed > 0 && start - frameStart + request.bytes / bytesPerNano > budget)
+				break;
+			
+			processed++;
+			
+			try
+			{
+				request.upload.run();
+			}
+			catch(Exception e)
+			{
+				StellarView.LOGGER.error("Failed to upload " + request.owner, e);
+				continue;
+			}
+			
+			long end = System.nanoTime();
+			long duration = Math.max(end - start, 1);
+			
+			bytesPerNano = bytesPerNano * 0.75 + ((double) Math.max(request.bytes, 1) / duration) * 0.25;
+			averageLatency = totalUploads == 0 ? end - request.requestTime : (averageLatency * 7 + (end - request.requestTime)) / 8;
+			
+			bytesLastFrame += request.bytes;
+			totalBytes += request.bytes;
+			totalUploads++;
+			uploaded++;
+		}
+		
+		uploadsLastFrame = uploaded;
+		
+		for(int i = 0; i < processed; i++)
+		{
+			REQUESTS.remove(QUEUE.get(i).owner);
+		}
+		QUEUE.subList(0, processed).clear();
+	}
+	
+	public static void clear()
+	{
+		QUEUE.clear();
+		REQUESTS.clear();
+	}
+	
+	//============================================================================================
+	//******************************************Counters******************************************
+	//============================================================================================
+	
+	/**
+	 * @return Number of uploads waiting in the queue
+	 */
+	public static int queueDepth()
+	{
+		return QUEUE.size();
+	}
+	
+	/**
+	 * @return Moving average of the time between requesting and performing an upload, in nanoseconds
+	 */
+	public static long averageLatency()
+	{
+		return averageLatency;
+	}
+	
+	public static long bytesLastFrame()
+	{
+		return bytesLastFrame;
+	}
+	
+	public static int uploadsLastFrame()
+	{
+		return uploadsLastFrame;
+	}
+	
+	public static long totalBytes()
+	{
+		return totalBytes;
+	}
+	
+	public static long totalUploads()
+	{
+		return totalUploads;
+	}
+}
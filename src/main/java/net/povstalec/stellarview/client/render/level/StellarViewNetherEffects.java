@@ -4,11 +4,9 @@ import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.DimensionSpecialEffects;
 import net.minecraft.resources.ResourceLocation;
-import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.client.render.level.util.StellarViewLightmapEffects;
 import net.povstalec.stellarview.client.render.ViewCenters;
 import net.povstalec.stellarview.common.config.NetherConfig;
-import net.povstalec.stellarview.compatibility.enhancedcelestials.EnhancedCelestialsCompatibility;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
@@ -31,11 +29,6 @@ public class StellarViewNetherEffects extends DimensionSpecialEffects.NetherEffe
 	public void adjustLightmapColors(ClientLevel level, float partialTicks, float skyDarken, float skyLight, float blockLight, int pixelX, int pixelY, Vector3f colors)
     {
 		if(NetherConfig.replace_vanilla.get())
-		{
-			StellarViewLightmapEffects.defaultLightmapColors(level, partialTicks, skyDarken, skyLight, blockLight, pixelX, pixelY, colors);
-			
-			if(StellarView.isEnhancedCelestialsLoaded())
-				EnhancedCelestialsCompatibility.adjustLightmapColors(level, partialTicks, skyDarken, skyLight, blockLight, pixelX, pixelY, colors);
-		}
+			StellarViewLightmapEffects.lightmapColors(level, partialTicks, skyLight, pixelX, pixelY, colors);
 	}
 }
@@ -4,11 +4,43 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.LightTexture;
 import net.minecraft.util.Mth;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.compatibility.enhancedcelestials.EnhancedCelestialsCompatibility;
 import org.joml.Vector3f;
 import org.joml.Vector3fc;
 
+/**
+ * The lightmap asks for the color of each of its 16x16 pixels separately, but apart from the pixel itself the inputs are the same for the whole update.
+ * They're sampled once when an update starts and the whole table is filled from them, pixels are then looked up from it.
+ * The table is only filled again when the inputs change, which doesn't happen on most updates.
+ */
 public class StellarViewLightmapEffects
 {
+	private static final int LIGHT_LEVELS = 16;
+	
+	private static final float[] TABLE = new float[LIGHT_LEVELS * LIGHT_LEVELS * 3];
+	private static final float[] BRIGHTNESS = new float[LIGHT_LEVELS];
+	
+	private static final Vector3fc WHITE = new Vector3f(1.0F, 1.0F, 1.0F);
+	private static final Vector3f SKY_COLOR = new Vector3f();
+	
+	// Identifies the lightmap update the table was last checked for
+	private static ClientLevel updateLevel = null;
+	private static long updateGameTime;
+	private static float updatePartialTicks;
+	private static float updateFlicker;
+	
+	// Inputs the table was filled from
+	private static boolean isFilled = false;
+	private static float ambientLight;
+	private static float trueSkyDarken;
+	private static float skyRed;
+	private static float skyGreen;
+	private static float skyBlue;
+	private static float flicker;
+	private static boolean forceBright;
+	private static float darkenWorld;
+	
 	public static float getSkyDarken(ClientLevel level, float partialTicks)
 	{
 		float timeOfDay = level.getTimeOfDay(partialTicks);
@@ -32,45 +64,106 @@ public class StellarViewLightmapEffects
 		color.set(Mth.clamp(color.x, 0.0F, 1.0F), Mth.clamp(color.y, 0.0F, 1.0F), Mth.clamp(color.z, 0.0F, 1.0F));
 	}
 	
-	public static void defaultLightmapColors(ClientLevel level, float partialTicks, float skyDarken, float skyLight, float blockLight, int pixelX, int pixelY, Vector3f colors)
-    {
-		float darkMultiplier = getSkyDarken(level, 1.0F);
+	/**
+	 * Writes the color of a lightmap pixel, including the Enhanced Celestials lunar event colors when it's loaded
+	 * @param skyLight Block light flicker of the current lightmap update
+	 * @param pixelX Block light level of the pixel
+	 * @param pixelY Sky light level of the pixel
+	 * @param colors Vector the color is written into
+	 */
+	public static void lightmapColors(ClientLevel level, float partialTicks, float skyLight, int pixelX, int pixelY, Vector3f colors)
+	{
+		if(level != updateLevel || level.getGameTime() != updateGameTime || partialTicks != updatePartialTicks || skyLight != updateFlicker)
+		{
+			updateLevel = level;
+			updateGameTime = level.getGameTime();
+			updatePartialTicks = partialTicks;
+			updateFlicker = skyLight;
+			
+			update(level, partialTicks, skyLight);
+		}
+		
+		int index = (pixelY * LIGHT_LEVELS + pixelX) * 3;
+		colors.set(TABLE[index], TABLE[index + 1], TABLE[index + 2]);
+	}
+	
+	//============================================================================================
+	//*******************************************Table********************************************
+	//============================================================================================
+	
+	private static void update(ClientLevel level, float partialTicks, float newFlicker)
+	{
+		float newTrueSkyDarken;
+		if(level.getSkyFlashTime() > 0)
+			newTrueSkyDarken = 1.0F;
+		else
+			newTrueSkyDarken = getSkyDarken(level, 1.0F) * 0.95F + 0.05F;
 		
-		boolean darkerWorld = true;
-		if(darkerWorld)
+		SKY_COLOR.set(newTrueSkyDarken, newTrueSkyDarken, 1.0F).lerp(WHITE, 0.35F);
+		if(StellarView.isEnhancedCelestialsLoaded())
+			EnhancedCelestialsCompatibility.adjustLightmapSkyColor(level, partialTicks, SKY_COLOR);
+		
+		float newAmbientLight = level.dimensionType().ambientLight();
+		boolean newForceBright = level.effects().forceBrightLightmap();
+		float newDarkenWorld = Math.max(Minecraft.getInstance().gameRenderer.getDarkenWorldAmount(partialTicks), 0.0F);
+		
+		if(isFilled && newAmbientLight == ambientLight && newTrueSkyDarken == trueSkyDarken && newFlicker == flicker && newForceBright == forceBright && newDarkenWorld == darkenWorld &&
+				SKY_COLOR.x == skyRed && SKY_COLOR.y == skyGreen && SKY_COLOR.z == skyBlue)
+			return;
+		
+		ambientLight = newAmbientLight;
+		trueSkyDarken = newTrueSkyDarken;
+		skyRed = SKY_COLOR.x;
+		skyGreen = SKY_COLOR.y;
+		skyBlue = SKY_COLOR.z;
+		flicker = newFlicker;
+		forceBright = newForceBright;
+		darkenWorld = newDarkenWorld;
+		
+		fill(level);
+		isFilled = true;
+	}
+	
+	private static void fill(ClientLevel level)
+	{
+		for(int i = 0; i < LIGHT_LEVELS; i++)
 		{
-			float trueSkyDarken;
-			if(level.getSkyFlashTime() > 0)
-				trueSkyDarken = 1.0F;
-			else
-				trueSkyDarken = darkMultiplier * 0.95F + 0.05F;
+			BRIGHTNESS[i] = LightTexture.getBrightness(level.dimensionType(), i);
+		}
+		
+		// Same as lerping towards the color multiplied by (0.7, 0.6, 0.6)
+		float darkenRed = 1.0F - 0.3F * darkenWorld;
+		float darkenGreenBlue = 1.0F - 0.4F * darkenWorld;
+		
+		int index = 0;
+		for(int pixelY = 0; pixelY < LIGHT_LEVELS; pixelY++)
+		{
+			float naturalLight = BRIGHTNESS[pixelY] * trueSkyDarken; // pixelY represents natural light
 			
-			Vector3f skyVector = (new Vector3f(trueSkyDarken, trueSkyDarken, 1.0F)).lerp(new Vector3f(1.0F, 1.0F, 1.0F), 0.35F);
-			Vector3f lightColor = new Vector3f();
-			float naturalLight = LightTexture.getBrightness(level.dimensionType(), pixelY) * trueSkyDarken; // pixelY represents natural light
-			float artificialLight = LightTexture.getBrightness(level.dimensionType(), pixelX) * skyLight; // pixelX represents artificial light
-			float f10 = artificialLight * ((artificialLight * 0.6F + 0.4F) * 0.6F + 0.4F);
-			float f11 = artificialLight * (artificialLight * artificialLight * 0.6F + 0.4F);
-			lightColor.set(artificialLight, f10, f11);
-			if(level.effects().forceBrightLightmap())
+			for(int pixelX = 0; pixelX < LIGHT_LEVELS; pixelX++)
 			{
-				lightColor.lerp(new Vector3f(0.99F, 1.12F, 1.0F), 0.25F);
-				clampColor(lightColor);
-			}
-			else
-			{
-				Minecraft minecraft = Minecraft.getInstance();
-				Vector3f vector3f2 = (new Vector3f((Vector3fc)skyVector)).mul(naturalLight);
-				lightColor.add(vector3f2);
-				lightColor.lerp(new Vector3f(0.75F, 0.75F, 0.75F), 0.04F);
-				if(minecraft.gameRenderer.getDarkenWorldAmount(partialTicks) > 0.0F)
+				float artificialLight = BRIGHTNESS[pixelX] * flicker; // pixelX represents artificial light
+				float red = artificialLight;
+				float green = artificialLight * ((artificialLight * 0.6F + 0.4F) * 0.6F + 0.4F);
+				float blue = artificialLight * (artificialLight * artificialLight * 0.6F + 0.4F);
+				
+				if(forceBright)
+				{
+					red = Mth.clamp(Mth.lerp(0.25F, red, 0.99F), 0.0F, 1.0F);
+					green = Mth.clamp(Mth.lerp(0.25F, green, 1.12F), 0.0F, 1.0F);
+					blue = Mth.clamp(Mth.lerp(0.25F, blue, 1.0F), 0.0F, 1.0F);
+				}
+				else
 				{
-					float f12 = minecraft.gameRenderer.getDarkenWorldAmount(partialTicks);
-					Vector3f vector3f3 = (new Vector3f((Vector3fc)lightColor)).mul(0.7F, 0.6F, 0.6F);
-					lightColor.lerp(vector3f3, f12);
+					red = Mth.lerp(0.04F, red + skyRed * naturalLight, 0.75F) * darkenRed;
+					green = Mth.lerp(0.04F, green + skyGreen * naturalLight, 0.75F) * darkenGreenBlue;
+					blue = Mth.lerp(0.04F, blue + skyBlue * naturalLight, 0.75F) * darkenGreenBlue;
 				}
+				
+				TABLE[index++] = red;
+				TABLE[index++] = green;
+				TABLE[index++] = blue;
 			}
-			colors.set(lightColor);
 		}
 	}
 }
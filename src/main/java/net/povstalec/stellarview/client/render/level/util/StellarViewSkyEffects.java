@@ -4,7 +4,6 @@ import com.mojang.blaze3d.vertex.*;
 import org.joml.Matrix4f;
 
 import com.mojang.blaze3d.systems.RenderSystem;
-import com.mojang.math.Axis;
 
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
@@ -12,6 +11,7 @@ import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.client.renderer.ShaderInstance;
 import net.minecraft.util.Mth;
 import net.minecraft.world.phys.Vec3;
+import net.povstalec.stellarview.client.util.ScratchMatrices;
 
 public class StellarViewSkyEffects {
     public static VertexBuffer createDarkSky() {
@@ -66,11 +66,11 @@ public class StellarViewSkyEffects {
         if (sunriseColor != null) {
             RenderSystem.setShader(GameRenderer::getPositionColorShader);
             RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
-            final var transformedModelView = new Matrix4f(modelViewMatrix);
-            transformedModelView.rotate(Axis.XP.rotationDegrees(90.0F));
+            final var transformedModelView = ScratchMatrices.copyOf(modelViewMatrix);
+            transformedModelView.rotateX(90.0F * Mth.DEG_TO_RAD);
             float sunAngle = Mth.sin(level.getSunAngle(partialTicks)) < 0.0F ? 180.0F : 0.0F;
-            transformedModelView.rotate(Axis.ZP.rotationDegrees(sunAngle));
-            transformedModelView.rotate(Axis.ZP.rotationDegrees(90.0F));
+            transformedModelView.rotateZ(sunAngle * Mth.DEG_TO_RAD);
+            transformedModelView.rotateZ(90.0F * Mth.DEG_TO_RAD);
             float sunriseR = sunriseColor[0];
             float sunriseG = sunriseColor[1];
             float sunriseB = sunriseColor[2];
@@ -23,6 +23,9 @@ public class StarShaderInstance extends ShaderInstance
 	@Nullable
 	public final Uniform LENSING_INTENSITY;
 	
+	@Nullable
+	public final Uniform POSITION_SCALE;
+	
 	public StarShaderInstance(ResourceProvider provider, ResourceLocation shaderLocation, VertexFormat format)
 			throws IOException
 	{
@@ -33,5 +36,7 @@ public class StarShaderInstance extends ShaderInstance
 		this.LENSING_MAT = this.getUniform("LensingMat");
 		this.LENSING_MAT_INV = this.getUniform("LensingMatInv");
 		this.LENSING_INTENSITY = this.getUniform("LensingIntensity");
+		
+		this.POSITION_SCALE = this.getUniform("PositionScale");
 	}
 }
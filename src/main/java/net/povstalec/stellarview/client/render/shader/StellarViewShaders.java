@@ -1,5 +1,7 @@
 package net.povstalec.stellarview.client.render.shader;
 
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import net.minecraft.client.renderer.ShaderInstance;
 import net.minecraft.resources.ResourceLocation;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
@@ -15,7 +17,13 @@ public class StellarViewShaders
 	@Nullable
     private static StarShaderInstance rendertypeStarShader;
 	private static StarShaderInstance rendertypeStarTexShader;
+	private static StarShaderInstance rendertypeStarInstancedShader;
+	private static StarShaderInstance rendertypeStarTexInstancedShader;
+	private static StarShaderInstance rendertypeStarCompactShader;
+	private static StarShaderInstance rendertypeStarTexCompactShader;
 	private static DustCloudShaderInstance rendertypeDustCloudShader;
+	private static StarShaderInstance rendertypeBillboardShader;
+	private static ShaderInstance rendertypeSkyBackgroundShader;
 	
 	@EventBusSubscriber(modid = StellarView.MODID, value = Dist.CLIENT, bus= EventBusSubscriber.Bus.MOD)
     public static class ShaderInit
@@ -35,11 +43,47 @@ public class StellarViewShaders
 						rendertypeStarTexShader = (StarShaderInstance) shaderInstance;
 					});
 			
+			event.registerShader(new StarShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_star_instanced"), StellarViewVertexFormat.STAR_INSTANCE.get()),
+					(shaderInstance) ->
+					{
+						rendertypeStarInstancedShader = (StarShaderInstance) shaderInstance;
+					});
+			
+			event.registerShader(new StarShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_star_tex_instanced"), StellarViewVertexFormat.STAR_INSTANCE.get()),
+					(shaderInstance) ->
+					{
+						rendertypeStarTexInstancedShader = (StarShaderInstance) shaderInstance;
+					});
+			
+			event.registerShader(new StarShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_star_compact"), StellarViewVertexFormat.STAR_INSTANCE_COMPACT.get()),
+					(shaderInstance) ->
+					{
+						rendertypeStarCompactShader = (StarShaderInstance) shaderInstance;
+					});
+			
+			event.registerShader(new StarShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_star_tex_compact"), StellarViewVertexFormat.STAR_INSTANCE_COMPACT.get()),
+					(shaderInstance) ->
+					{
+						rendertypeStarTexCompactShader = (StarShaderInstance) shaderInstance;
+					});
+			
 			event.registerShader(new DustCloudShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_dust_cloud"), StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get()),
 					(shaderInstance) ->
 					{
 						rendertypeDustCloudShader = (DustCloudShaderInstance) shaderInstance;
 					});
+			
+			event.registerShader(new StarShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_billboard"), StellarViewVertexFormat.BILLBOARD_INSTANCE.get()),
+					(shaderInstance) ->
+					{
+						rendertypeBillboardShader = (StarShaderInstance) shaderInstance;
+					});
+			
+			event.registerShader(new ShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_sky_background"), DefaultVertexFormat.POSITION),
+					(shaderInstance) ->
+					{
+						rendertypeSkyBackgroundShader = shaderInstance;
+					});
         }
     }
 	
@@ -53,8 +97,38 @@ public class StellarViewShaders
 		return rendertypeStarTexShader;
 	}
 	
+	public static StarShaderInstance starInstancedShader()
+	{
+		return rendertypeStarInstancedShader;
+	}
+	
+	public static StarShaderInstance starTexInstancedShader()
+	{
+		return rendertypeStarTexInstancedShader;
+	}
+	
+	public static StarShaderInstance starCompactShader()
+	{
+		return rendertypeStarCompactShader;
+	}
+	
+	public static StarShaderInstance starTexCompactShader()
+	{
+		return rendertypeStarTexCompactShader;
+	}
+	
 	public static DustCloudShaderInstance starDustCloudShader()
 	{
 		return rendertypeDustCloudShader;
 	}
+	
+	public static StarShaderInstance billboardShader()
+	{
+		return rendertypeBillboardShader;
+	}
+	
+	public static ShaderInstance skyBackgroundShader()
+	{
+		return rendertypeSkyBackgroundShader;
+	}
 }
@@ -13,6 +13,10 @@ import net.povstalec.stellarview.StellarView;
 public class StellarViewVertexFormat
 {
 	public static final Lazy<VertexFormatElement> ELEMENT_HEIGHT_WIDTH_SIZE = register(VertexFormatElement.Type.FLOAT, VertexFormatElement.Usage.GENERIC, 3);
+	public static final Lazy<VertexFormatElement> ELEMENT_POS_ROTATION = register(VertexFormatElement.Type.SHORT, VertexFormatElement.Usage.GENERIC, 4);
+	public static final Lazy<VertexFormatElement> ELEMENT_SIZE = register(VertexFormatElement.Type.USHORT, VertexFormatElement.Usage.GENERIC, 2);
+	// Shared by every attribute made of 4 floats, since each registered element uses up one of the few IDs (see the NOTE below)
+	public static final Lazy<VertexFormatElement> ELEMENT_FLOAT_4 = register(VertexFormatElement.Type.FLOAT, VertexFormatElement.Usage.GENERIC, 4);
 	
 	// NOTE: The order of elements very much MATTERS!!!
 	public static final Lazy<VertexFormat> STAR_POS_COLOR_LY = Lazy.of(() -> VertexFormat.builder()
@@ -27,6 +31,30 @@ public class StellarViewVertexFormat
 			.add("HeightWidthSize", ELEMENT_HEIGHT_WIDTH_SIZE.get())
 			.add("UV0", VertexFormatElement.UV0)
 			.build());
+	
+	// Per-instance layout used by instanced Star rendering, the corners of each Star are computed in the shader from gl_VertexID
+	public static final Lazy<VertexFormat> STAR_INSTANCE = Lazy.of(() -> VertexFormat.builder()
+			.add("StarPos", VertexFormatElement.POSITION)
+			.add("Color", VertexFormatElement.COLOR)
+			.add("SinCosSize", ELEMENT_HEIGHT_WIDTH_SIZE.get())
+			.build());
+	
+	// Quantized per-instance layout (16 bytes): position relative to the Star Field as shorts with the rotation as the fourth short,
+	// color and a fixed-point size, the second size short is padding
+	public static final Lazy<VertexFormat> STAR_INSTANCE_COMPACT = Lazy.of(() -> VertexFormat.builder()
+			.add("StarPosRotation", ELEMENT_POS_ROTATION.get())
+			.add("Color", VertexFormatElement.COLOR)
+			.add("SizeData", ELEMENT_SIZE.get())
+			.build());
+	
+	// Per-instance layout of a billboard on the sky sphere: theta, phi, rotation and size, unclamped color and the UVs of all 4 corners.
+	// The same element is used for all 4 attributes, so their offsets have to be counted from their position (see StarBuffer) rather than looked up from the element
+	public static final Lazy<VertexFormat> BILLBOARD_INSTANCE = Lazy.of(() -> VertexFormat.builder()
+			.add("SkyPosition", ELEMENT_FLOAT_4.get())
+			.add("Tint", ELEMENT_FLOAT_4.get())
+			.add("CornerUVsA", ELEMENT_FLOAT_4.get())
+			.add("CornerUVsB", ELEMENT_FLOAT_4.get())
+			.build());
 
 	// NOTE: VertexFormatElements now require an ID, and this ID can only be between 0 and 31. The ELEMENTS list here is AT-ed to be public
 	// so this method can access the size. What this means though is that if enough mods add VertexFormatElements the game will not be able to
@@ -49,6 +77,12 @@ public class StellarViewVertexFormat
 			ELEMENT_HEIGHT_WIDTH_SIZE.get();
 			STAR_POS_COLOR_LY.get();
 			STAR_POS_COLOR_LY_TEX.get();
+			STAR_INSTANCE.get();
+			ELEMENT_POS_ROTATION.get();
+			ELEMENT_SIZE.get();
+			STAR_INSTANCE_COMPACT.get();
+			ELEMENT_FLOAT_4.get();
+			BILLBOARD_INSTANCE.get();
 		});
 	}
 
@@ -26,22 +26,22 @@ public abstract class OrbitingObjectRenderer<T extends OrbitingObject> extends T
 	}
 	
 	@Override
-	public Vector3f getPosition(ViewCenter viewCenter, AxisRotation axisRotation, long ticks, float partialTicks)
+	public Vector3f getPosition(ViewCenter viewCenter, AxisRotation axisRotation, long ticks, float partialTicks, Vector3f dest)
 	{
-		return axisRotation.quaterniond().transform(getPosition(viewCenter, ticks, partialTicks));
+		return axisRotation.quaterniond().transform(getPosition(viewCenter, ticks, partialTicks, dest));
 	}
 	
 	@Override
-	public Vector3f getPosition(ViewCenter viewCenter, long ticks, float partialTicks)
+	public Vector3f getPosition(ViewCenter viewCenter, long ticks, float partialTicks, Vector3f dest)
 	{
 		if(orbitInfo() != null)
 		{
 			if(!viewCenter.objectEquals(this) && orbitInfo().orbitClampNumber() > 0 && parent != null)
-				return orbitInfo().getOrbitVector(ticks, partialTicks, parent.lastDistance);
+				return orbitInfo().evaluator().clampedPosition(ticks, partialTicks, viewCenter.tickMultiplier(), parent.lastDistance, orbitInfo().orbitClampNumber(), dest);
 			else
-				return orbitInfo().getOrbitVector(ticks, partialTicks);
+				return orbitInfo().evaluator().position(ticks, partialTicks, viewCenter.tickMultiplier(), dest);
 		}
 		else
-			return super.getPosition(viewCenter, ticks, partialTicks);
+			return super.getPosition(viewCenter, ticks, partialTicks, dest);
 	}
 }
@@ -4,13 +4,16 @@ import com.mojang.blaze3d.vertex.Tesselator;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.client.render.SpaceScene;
 import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.util.AxisRotation;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -23,6 +26,13 @@ public abstract class SpaceObjectRenderer<RenderedObject extends SpaceObject>
 	
 	protected ArrayList<SpaceObjectRenderer> children;
 	
+	// Position relative to the parent, shared by everything that needs it during a single frame
+	private final Vector3f framePosition = new Vector3f();
+	@Nullable
+	private ViewCenter framePositionViewCenter = null;
+	private long framePositionTicks;
+	private float framePositionPartialTicks;
+	
 	public SpaceObjectRenderer(RenderedObject renderedObject)
 	{
 		this.renderedObject = renderedObject;
@@ -41,12 +51,33 @@ public abstract class SpaceObjectRenderer<RenderedObject extends SpaceObject>
 	
 	public Vector3f getPosition(ViewCenter viewCenter, AxisRotation axisRotation, long ticks, float partialTicks)
 	{
-		return new Vector3f();
+		return getPosition(viewCenter, axisRotation, ticks, partialTicks, new Vector3f());
 	}
 	
 	public Vector3f getPosition(ViewCenter viewCenter, long ticks, float partialTicks)
 	{
-		return new Vector3f();
+		return getPosition(viewCenter, ticks, partialTicks, new Vector3f());
+	}
+	
+	/**
+	 * Same as {@link #getPosition(ViewCenter, AxisRotation, long, float)}, but the result is written into dest instead of a new vector
+	 */
+	public Vector3f getPosition(ViewCenter viewCenter, AxisRotation axisRotation, long ticks, float partialTicks, Vector3f dest)
+	{
+		return dest.zero();
+	}
+	
+	/**
+	 * Same as {@link #getPosition(ViewCenter, long, float)}, but the result is written into dest instead of a new vector
+	 */
+	public Vector3f getPosition(ViewCenter viewCenter, long ticks, float partialTicks, Vector3f dest)
+	{
+		return dest.zero();
+	}
+	
+	public void setLastDistance(double lastDistance)
+	{
+		this.lastDistance = lastDistance;
 	}
 	
 	public void addChild(SpaceObjectRenderer child)
@@ -63,6 +94,12 @@ public abstract class SpaceObjectRenderer<RenderedObject extends SpaceObject>
 		renderedObject.addChild(child.renderedObject);
 	}
 	
+	@Nullable
+	public SpaceObjectRenderer parent()
+	{
+		return parent;
+	}
+	
 	public ArrayList<SpaceObjectRenderer> children()
 	{
 		return children;
@@ -77,22 +114,84 @@ public abstract class SpaceObjectRenderer<RenderedObject extends SpaceObject>
 	//*****************************************Rendering******************************************
 	//============================================================================================
 	
-	public abstract void render(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
-								Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
-								Vector3f parentVector, AxisRotation parentRotation);
+	/**
+	 * Position of this object relative to its parent, worked out only once for each View Center, ticks and partial ticks.
+	 * Both placing the View Center and the {@link SpaceScene} read it from here, parents are always resolved before their children.
+	 * Orbits clamped by the distance of the parent use the distance known when the position is first requested,
+	 * which is the one of the last frame for objects the View Center is placed on and the one of this frame for everything else.
+	 * @return Position of this object relative to its parent, which must not be modified
+	 */
+	public Vector3fc framePosition(ViewCenter viewCenter, long ticks, float partialTicks)
+	{
+		if(framePositionViewCenter != viewCenter || framePositionTicks != ticks || Float.compare(framePositionPartialTicks, partialTicks) != 0)
+		{
+			// The same rotation is used for placing the View Center and for rendering, see StarFieldRenderer.childAxisRotation()
+			if(parent != null)
+				getPosition(viewCenter, parent.childAxisRotation(), ticks, partialTicks, framePosition);
+			else
+				getPosition(viewCenter, ticks, partialTicks, framePosition);
+			
+			framePositionViewCenter = viewCenter;
+			framePositionTicks = ticks;
+			framePositionPartialTicks = partialTicks;
+		}
+		
+		return framePosition;
+	}
+	
+	/**
+	 * @return Rotation the positions of children are rotated by
+	 */
+	public AxisRotation childAxisRotation()
+	{
+		return axisRotation();
+	}
+	
+	/**
+	 * @param distance Distance of this object from the View Center
+	 * @return True if the children of this object are close enough to be rendered
+	 */
+	public boolean rendersChildren(double distance)
+	{
+		return true;
+	}
+	
+	/**
+	 * @return True if a child at the specified distance should be rendered before this object
+	 */
+	public boolean rendersChildBehind(double childDistance, double distance)
+	{
+		return childDistance >= distance;
+	}
+	
+	/**
+	 * Renders only this object, the position of which has already been worked out by the scene
+	 * @param scene Scene this object is a part of
+	 * @param index Index of this object in the scene
+	 */
+	public abstract void renderObject(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
+									  Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
+									  SpaceScene scene, int index);
 	
 	// Sets View Center coords and then renders everything
 	public void renderFrom(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
 						   Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
 	{
-		if(parent != null)
-			viewCenter.addCoords(getPosition(viewCenter, parent.axisRotation(), viewCenter.ticks(), partialTicks));
-		else
-			viewCenter.addCoords(getPosition(viewCenter, viewCenter.ticks(), partialTicks));
+		SpaceObjectRenderer masterParent = placeViewCenter(viewCenter, partialTicks);
+		
+		viewCenter.renderSkyObjects(masterParent, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator);
+	}
+	
+	/**
+	 * Moves the View Center by the positions of this object and all of its parents, starting from the topmost parent
+	 * @return The topmost parent
+	 */
+	protected SpaceObjectRenderer placeViewCenter(ViewCenter viewCenter, float partialTicks)
+	{
+		SpaceObjectRenderer masterParent = parent != null ? parent.placeViewCenter(viewCenter, partialTicks) : this;
+		
+		viewCenter.addCoords(framePosition(viewCenter, viewCenter.ticks(), partialTicks));
 		
-		if(parent != null)
-			parent.renderFrom(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator);
-		else
-			viewCenter.renderSkyObjects(this, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator);
+		return masterParent;
 	}
 }
@@ -30,9 +30,9 @@ public abstract class StarLikeRenderer<T extends StarLike> extends OrbitingObjec
 	{
 		double lyDistance = distance / SpaceCoords.KM_PER_LY;
 		
-		Color.FloatRGBA starRGBA = renderedObject.starRGBA(lyDistance);
+		int starRGBA = renderedObject.packedStarRGBA(lyDistance);
 		
-		if(starRGBA.alpha() <= 0.0F || textureLayer.rgba().alpha() <= 0)
+		if(Color.alpha(starRGBA) <= 0.0F || textureLayer.rgba().alpha() <= 0)
 			return;
 		
 		float size = (float) textureLayer.mulSize(renderedObject.distanceSize(distance));
@@ -1,20 +1,27 @@
 package net.povstalec.stellarview.client.render.space_objects;
 
-import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.client.renderer.ShaderInstance;
 import net.minecraft.resources.ResourceLocation;
 import net.povstalec.stellarview.api.common.space_objects.TexturedObject;
+import net.povstalec.stellarview.client.render.BillboardBatch;
+import net.povstalec.stellarview.client.render.CelestialAtlas;
 import net.povstalec.stellarview.client.render.LightEffects;
+import net.povstalec.stellarview.client.render.SkyRenderQueue;
+import net.povstalec.stellarview.client.render.SpaceScene;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.client.util.ScratchMatrices;
 import net.povstalec.stellarview.common.util.*;
 import org.joml.Matrix4f;
 import org.joml.Quaterniond;
 import org.joml.Vector3f;
 
+import java.util.List;
+
 public abstract class TexturedObjectRenderer<T extends TexturedObject> extends SpaceObjectRenderer<T>
 {
 	public static final float DEFAULT_DISTANCE = 100.0F;
@@ -29,45 +36,19 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 	//============================================================================================
 	
 	@Override
-	public void render(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
-					   Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
-					   Vector3f parentVector, AxisRotation parentRotation)
+	public boolean rendersChildren(double distance)
+	{
+		return renderedObject.getFadeOutHandler().getMaxChildRenderDistance().toKm() > distance;
+	}
+	
+	@Override
+	public void renderObject(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
+							 Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
+							 SpaceScene scene, int index)
 	{
-		Vector3f positionVector = getPosition(viewCenter, parentRotation, viewCenter.ticks(), partialTicks).add(parentVector); // Handles orbits 'n stuff
-		
-		// Add parent vector to current coords
-		SpaceCoords coords = renderedObject.getCoords().add(positionVector);
-		
-		// Subtract coords of this from View Center coords to get relative coords
-		SphericalCoords sphericalCoords = coords.skyPosition(level, viewCenter, partialTicks, true);
-		
-		lastDistance = sphericalCoords.r;
-		sphericalCoords.r = DEFAULT_DISTANCE;
-		
-		double childRenderDistance = renderedObject.getFadeOutHandler().getMaxChildRenderDistance().toKm();
-		if(childRenderDistance > lastDistance)
-		{
-			for(SpaceObjectRenderer child : children)
-			{
-				// Render child behind the parent
-				if(child.lastDistance >= this.lastDistance)
-					child.render(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator, positionVector, axisRotation());
-			}
-		}
-		
 		// If the object isn't the same we're viewing everything from and it isn't too far away, render it
 		if(!viewCenter.objectEquals(this) && renderedObject.getFadeOutHandler().getFadeOutEndDistance().toKm() > lastDistance)
-			renderTextureLayers(viewCenter, level, camera, tesselator, modelViewMatrix, sphericalCoords, viewCenter.ticks(), lastDistance, partialTicks);
-		
-		if(childRenderDistance > lastDistance)
-		{
-			for(SpaceObjectRenderer child : children)
-			{
-				// Render child in front of the parent
-				if(child.lastDistance < this.lastDistance)
-					child.render(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator, positionVector, axisRotation());
-			}
-		}
+			renderTextureLayers(viewCenter, level, camera, tesselator, modelViewMatrix, scene.skyPosition(index, DEFAULT_DISTANCE), viewCenter.ticks(), lastDistance, partialTicks);
 	}
 	
 	
@@ -75,6 +56,31 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 									  ClientLevel level, Camera camera, Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords,
 									  long ticks, double distance, float partialTicks, float brightness, float size, float rotation, boolean shouldBlend)
 	{
+		renderOnSphere(rgba, secondaryRGBA.packARGB(), texture, uv, level, camera, tesselator, lastMatrix, sphericalCoords,
+				ticks, distance, partialTicks, brightness, size, rotation, shouldBlend);
+	}
+	
+	/**
+	 * @param secondaryARGB Color the texture layer color is multiplied by, packed with {@link Color#packARGB(float, float, float, float)}
+	 */
+	public static void renderOnSphere(Color.FloatRGBA rgba, int secondaryARGB, ResourceLocation texture, UV.Quad uv,
+									  ClientLevel level, Camera camera, Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords,
+									  long ticks, double distance, float partialTicks, float brightness, float size, float rotation, boolean shouldBlend)
+	{
+		float red = rgba.red() * Color.red(secondaryARGB);
+		float green = rgba.green() * Color.green(secondaryARGB);
+		float blue = rgba.blue() * Color.blue(secondaryARGB);
+		float alpha = brightness * rgba.alpha() * Color.alpha(secondaryARGB);
+		int blend = shouldBlend ? SkyRenderQueue.BLEND_ADDITIVE : SkyRenderQueue.BLEND_DEFAULT;
+		
+		if(BillboardBatch.isSupported())
+		{
+			CelestialAtlas.Entry atlasEntry = CelestialAtlas.get(texture);
+			int billboard = BillboardBatch.add((float) sphericalCoords.theta, (float) sphericalCoords.phi, rotation, size, red, green, blue, alpha, uv, atlasEntry, ticks);
+			SkyRenderQueue.submitBillboard(CelestialAtlas.texture(atlasEntry, texture), blend, lastMatrix, billboard);
+			return;
+		}
+		
 		Vector3f corner00 = new Vector3f(size, DEFAULT_DISTANCE, size);
 		Vector3f corner10 = new Vector3f(-size, DEFAULT_DISTANCE, size);
 		Vector3f corner11 = new Vector3f(-size, DEFAULT_DISTANCE, -size);
@@ -89,24 +95,24 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 		quaternionX.transform(corner11);
 		quaternionX.transform(corner01);
 		
-		if(shouldBlend)
-			RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
-		else
-			RenderSystem.defaultBlendFunc();
-		
-		RenderSystem.setShaderColor(rgba.red() * secondaryRGBA.red(), rgba.green() * secondaryRGBA.green(), rgba.blue() * secondaryRGBA.blue(), brightness * rgba.alpha() * secondaryRGBA.alpha());
-		
-		RenderSystem.setShaderTexture(0, texture);
-		final var bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
-		
-		bufferbuilder.addVertex(lastMatrix, corner00.x, corner00.y, corner00.z).setUv(uv.topRight().u(ticks), uv.topRight().v(ticks));
-		bufferbuilder.addVertex(lastMatrix, corner10.x, corner10.y, corner10.z).setUv(uv.bottomRight().u(ticks), uv.bottomRight().v(ticks));
-		bufferbuilder.addVertex(lastMatrix, corner11.x, corner11.y, corner11.z).setUv(uv.bottomLeft().u(ticks), uv.bottomLeft().v(ticks));
-		bufferbuilder.addVertex(lastMatrix, corner01.x, corner01.y, corner01.z).setUv(uv.topLeft().u(ticks), uv.topLeft().v(ticks));
-		
-		BufferUploader.drawWithShader(bufferbuilder.buildOrThrow());
-		
-		RenderSystem.defaultBlendFunc();
+		// The draw happens later, so everything it depends on has to be captured now
+		Matrix4f pose = ScratchMatrices.copyOf(lastMatrix);
+		ShaderInstance shader = RenderSystem.getShader();
+		SkyRenderQueue.submit(blend, false, () ->
+		{
+			RenderSystem.setShader(() -> shader);
+			RenderSystem.setShaderColor(red, green, blue, alpha);
+			
+			RenderSystem.setShaderTexture(0, texture);
+			final var bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+			
+			bufferbuilder.addVertex(pose, corner00.x, corner00.y, corner00.z).setUv(uv.topRight().u(ticks), uv.topRight().v(ticks));
+			bufferbuilder.addVertex(pose, corner10.x, corner10.y, corner10.z).setUv(uv.bottomRight().u(ticks), uv.bottomRight().v(ticks));
+			bufferbuilder.addVertex(pose, corner11.x, corner11.y, corner11.z).setUv(uv.bottomLeft().u(ticks), uv.bottomLeft().v(ticks));
+			bufferbuilder.addVertex(pose, corner01.x, corner01.y, corner01.z).setUv(uv.topLeft().u(ticks), uv.topLeft().v(ticks));
+			
+			BufferUploader.drawWithShader(bufferbuilder.buildOrThrow());
+		});
 	}
 	
 	/**
@@ -136,7 +142,7 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 				return;
 		}
 		
-		renderOnSphere(textureLayer.rgba(), Color.FloatRGBA.DEFAULT, textureLayer.texture(), textureLayer.uv(),
+		renderOnSphere(textureLayer.rgba(), Color.WHITE_ARGB, textureLayer.texture(), textureLayer.uv(),
 				level, camera, tesselator, lastMatrix, sphericalCoords,
 				ticks, distance, partialTicks, LightEffects.dayBrightness(viewCenter, size, ticks, level, camera, partialTicks) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
 	}
@@ -150,8 +156,10 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 		
 		RenderSystem.setShader(GameRenderer::getPositionTexShader);
 		
-		for(TextureLayer textureLayer : renderedObject.getTextureLayers())
+		List<TextureLayer> textureLayers = renderedObject.getTextureLayers();
+		for(int i = 0; i < textureLayers.size(); i++)
 		{
+			TextureLayer textureLayer = textureLayers.get(i);
 			renderTextureLayer(textureLayer, viewCenter, level, camera, tesselator, lastMatrix, sphericalCoords, fade, ticks, distance, partialTicks);
 		}
 	}
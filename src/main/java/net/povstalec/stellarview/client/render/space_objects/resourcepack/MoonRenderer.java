@@ -34,9 +34,11 @@ public class MoonRenderer<T extends Moon> extends PlanetRenderer<T>
 			return;
 		}
 		
-		Color.FloatRGBA moonRGBA = renderedObject.moonRGBA(level, partialTicks);
+		// Lunar event colors and sizes are looked up once per frame
+		boolean isLunarEventMoon = renderedObject.isEnhancedCelestialsMoon(level);
+		int moonRGBA = isLunarEventMoon ? viewCenter.frameContext().enhancedCelestialsMoonARGB() : Color.WHITE_ARGB;
 		
-		if(moonRGBA.alpha() <= 0.0F || textureLayer.rgba().alpha() <= 0)
+		if(Color.alpha(moonRGBA) <= 0.0F || textureLayer.rgba().alpha() <= 0)
 			return;
 		
 		float size = (float) textureLayer.mulSize(renderedObject.distanceSize(distance));
@@ -49,7 +51,8 @@ public class MoonRenderer<T extends Moon> extends PlanetRenderer<T>
 				return;
 		}
 		
-		size *= renderedObject.sizeMultiplier(level);
+		if(isLunarEventMoon)
+			size *= viewCenter.frameContext().enhancedCelestialsMoonSize();
 		
 		renderOnSphere(textureLayer.rgba(), moonRGBA, textureLayer.texture(), textureLayer.uv(),
 				level, camera, tesselator, lastMatrix, sphericalCoords,
@@ -31,9 +31,9 @@ public class NebulaRenderer<T extends Nebula> extends TexturedObjectRenderer<T>
 	{
 		double lyDistance = distance / SpaceCoords.KM_PER_LY;
 		
-		Color.FloatRGBA nebulaRGBA = renderedObject.nebulaRGBA(lyDistance);
+		int nebulaRGBA = renderedObject.packedNebulaRGBA(lyDistance);
 		
-		if(nebulaRGBA.alpha() <= 0.0F || textureLayer.rgba().alpha() <= 0)
+		if(Color.alpha(nebulaRGBA) <= 0.0F || textureLayer.rgba().alpha() <= 0)
 			return;
 		
 		float size = (float) textureLayer.mulSize(renderedObject.distanceSize(distance));
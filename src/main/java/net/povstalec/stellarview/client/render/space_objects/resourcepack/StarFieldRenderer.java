@@ -1,19 +1,25 @@
 package net.povstalec.stellarview.client.render.space_objects.resourcepack;
 
-import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
-import net.minecraft.client.renderer.FogRenderer;
-import net.minecraft.client.renderer.GameRenderer;
+import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
-import net.povstalec.stellarview.client.render.LightEffects;
+import net.povstalec.stellarview.client.render.SkyBackground;
+import net.povstalec.stellarview.client.render.SkyRenderQueue;
+import net.povstalec.stellarview.client.render.SkyVisibility;
+import net.povstalec.stellarview.client.render.SpaceScene;
+import net.povstalec.stellarview.client.render.UploadScheduler;
 import net.povstalec.stellarview.client.render.shader.StellarViewShaders;
-import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
 import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.render.space_objects.TexturedObjectRenderer;
 import net.povstalec.stellarview.client.util.DustCloudBuffer;
+import net.povstalec.stellarview.client.util.GenerationExecutor;
+import net.povstalec.stellarview.client.util.ScratchMatrices;
+import net.povstalec.stellarview.client.util.StarCache;
 import net.povstalec.stellarview.client.util.StarData;
+import net.povstalec.stellarview.client.util.StarMeshWriter;
 import net.povstalec.stellarview.common.util.DustCloudInfo;
 import net.povstalec.stellarview.common.util.StarInfo;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
@@ -23,14 +29,32 @@ import net.povstalec.stellarview.common.util.*;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3d;
-import org.joml.Vector3f;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<T>
 {
+	private static final AxisRotation NO_ROTATION = new AxisRotation();
+	
+	// Reused every frame when rotating the Stars and Dust Clouds into the View Center's frame
+	private final Quaternionf viewRotation = new Quaternionf();
+	// Read by the queued draws, which always run before the next frame moves the View Center
+	private final SpaceCoords starDifference = new SpaceCoords();
+	private final SpaceCoords dustCloudDifference = new SpaceCoords();
+	// Submitted to the queue instead of new lambdas, the queue always draws them before they're submitted again
+	private final StarDraw starDraw = new StarDraw();
+	private final DustCloudDraw dustCloudDraw = new DustCloudDraw();
+	
 	protected boolean hasTexture = GeneralConfig.textured_stars.get();
+	protected boolean continuousLOD = GeneralConfig.continuous_star_lod.get();
+	protected boolean compactStars = GeneralConfig.compact_stars.get();
+	
+	// VRAM used by the Stars when it was last reported
+	protected long reportedStarBytes = 0;
 	
 	protected StarData starData;
 	protected int lod1stars = 0;
@@ -43,9 +67,14 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 	protected int[] armLod2stars;
 	
 	
+	// All Dust Clouds, once they've been generated
+	@Nullable
 	protected DustCloudData dustCloudData;
 	@Nullable
-	protected DustCloudBuffer dustCloudBuffer;
+	protected CompletableFuture<DustCloudData> pendingDustCloudData;
+	protected double dustCloudRadius;
+	protected double maxDustCloudSize;
+	protected final DustCloudLOD[] dustCloudLODs = new DustCloudLOD[DustCloudData.LevelOfDetail.values().length];
 	protected int totalDustClouds;
 	
 	public StarFieldRenderer(T starField)
@@ -88,7 +117,7 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 	
 	public boolean requiresReset()
 	{
-		return hasTexture != GeneralConfig.textured_stars.get();
+		return hasTexture != GeneralConfig.textured_stars.get() || continuousLOD != GeneralConfig.continuous_star_lod.get() || compactStars != GeneralConfig.compact_stars.get();
 	}
 	
 	public void reset()
@@ -103,19 +132,7 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 	
 	protected void generateStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, Random random)
 	{
-		int stars;
-		
-		switch(levelOfDetail)
-		{
-			case LOD1:
-				stars = lod1stars;
-				break;
-			case LOD2:
-				stars = lod2stars;
-				break;
-			default:
-				stars = renderedObject.getStars() - lod1stars - lod2stars;
-		}
+		int stars = starCount(levelOfDetail);
 		
 		for(int i = 0; i < stars; i++)
 		{
@@ -148,19 +165,7 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 	
 	protected void generateArmStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, AxisRotation axisRotation, StarInfo starInfo, Random random, double sizeMultiplier, boolean hasTexture, StarField.SpiralArm arm, int armIndex)
 	{
-		int stars;
-		
-		switch(levelOfDetail)
-		{
-			case LOD1:
-				stars = armLod1stars[armIndex];
-				break;
-			case LOD2:
-				stars = armLod2stars[armIndex];
-				break;
-			default:
-				stars = arm.armStars() - armLod1stars[armIndex] - armLod2stars[armIndex];
-		}
+		int stars = armStarCount(levelOfDetail, arm, armIndex);
 		
 		for(int i = 0; i < stars; i++)
 		{
@@ -202,44 +207,118 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 		}
 	}
 	
-	protected void setStars()
+	protected long starSeed(StarField.LevelOfDetail levelOfDetail)
+	{
+		return renderedObject.getSeed() + levelOfDetail.ordinal();
+	}
+	
+	/**
+	 * Each arm gets its own Random so that arms can be generated independently of each other (and in parallel)
+	 * while still producing the same stars every time
+	 */
+	protected long armSeed(StarField.LevelOfDetail levelOfDetail, int armIndex)
+	{
+		long seed = (starSeed(levelOfDetail) + (armIndex + 1) * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+		return seed ^ (seed >>> 31);
+	}
+	
+	protected int starCount(StarField.LevelOfDetail levelOfDetail)
+	{
+		return switch(levelOfDetail)
+		{
+			case LOD1 -> lod1stars;
+			case LOD2 -> lod2stars;
+			default -> renderedObject.getStars() - lod1stars - lod2stars;
+		};
+	}
+	
+	protected int armStarCount(StarField.LevelOfDetail levelOfDetail, StarField.SpiralArm arm, int armIndex)
+	{
+		return switch(levelOfDetail)
+		{
+			case LOD1 -> armLod1stars[armIndex];
+			case LOD2 -> armLod2stars[armIndex];
+			default -> arm.armStars() - armLod1stars[armIndex] - armLod2stars[armIndex];
+		};
+	}
+	
+	protected StarData.LOD newCenterStars(StarField.LevelOfDetail levelOfDetail)
+	{
+		StarData.LOD lod = new StarData.LOD(starCount(levelOfDetail));
+		
+		generateStars(lod, levelOfDetail, new Random(starSeed(levelOfDetail)));
+		
+		return lod;
+	}
+	
+	protected StarData.LOD newArmStars(StarField.LevelOfDetail levelOfDetail, StarField.SpiralArm arm, int armIndex)
 	{
 		double sizeMultiplier = renderedObject.getDiameter() / 30D;
+		StarData.LOD lod = new StarData.LOD(armStarCount(levelOfDetail, arm, armIndex));
+		
+		generateArmStars(lod, levelOfDetail, renderedObject.getAxisRotation(), renderedObject.getStarInfo(), new Random(armSeed(levelOfDetail, armIndex)), sizeMultiplier, hasTexture, arm, armIndex);
 		
+		return lod;
+	}
+	
+	protected void setStars()
+	{
 		starData = new StarData()
 		{
 			@Override
 			protected LOD newStars(StarField.LevelOfDetail levelOfDetail)
 			{
-				Random random;
-				int stars;
+				List<LOD> parts = new ArrayList<LOD>();
+				parts.add(newCenterStars(levelOfDetail));
 				
-				switch(levelOfDetail)
+				int i = 0;
+				for(StarField.SpiralArm arm : renderedObject.getSpiralArms()) //Draw each arm
 				{
-					case LOD1:
-						random = new Random(renderedObject.getSeed());
-						stars = totalLOD1stars;
-						break;
-					case LOD2:
-						random = new Random(renderedObject.getSeed() + 1);
-						stars = totalLOD2stars;
-						break;
-					default:
-						random = new Random(renderedObject.getSeed() + 2);
-						stars = totalStars - totalLOD1stars - totalLOD2stars;
+					parts.add(newArmStars(levelOfDetail, arm, i));
+					i++;
 				}
-				LOD lod = new LOD(stars);
 				
-				generateStars(lod, levelOfDetail, random);
+				return new LOD(parts);
+			}
+			
+			@Override
+			protected CompletableFuture<LOD> newStarsAsync(StarField.LevelOfDetail levelOfDetail)
+			{
+				if(!StarCache.isEnabled())
+					return generateStarsAsync(levelOfDetail);
+				
+				String key = StarCache.key(renderedObject, levelOfDetail);
+				
+				return GenerationExecutor.supply(() -> StarCache.read(key)).thenCompose(cachedLOD ->
+				{
+					if(cachedLOD != null)
+						return CompletableFuture.completedFuture(cachedLOD);
+					
+					return generateStarsAsync(levelOfDetail).thenApply(lod ->
+					{
+						// Cached in the partitioned order, so the file can be uploaded as it is once it's read
+						lod.partition();
+						StarCache.write(key, lod);
+						return lod;
+					});
+				});
+			}
+			
+			private CompletableFuture<LOD> generateStarsAsync(StarField.LevelOfDetail levelOfDetail)
+			{
+				List<CompletableFuture<LOD>> parts = new ArrayList<CompletableFuture<LOD>>();
+				parts.add(GenerationExecutor.supply(() -> newCenterStars(levelOfDetail)));
 				
 				int i = 0;
-				for(StarField.SpiralArm arm : renderedObject.getSpiralArms()) //Draw each arm
+				for(StarField.SpiralArm arm : renderedObject.getSpiralArms())
 				{
-					generateArmStars(lod, levelOfDetail, renderedObject.getAxisRotation(), renderedObject.getStarInfo(), random, sizeMultiplier, hasTexture, arm, i);
+					final int armIndex = i;
+					parts.add(GenerationExecutor.supply(() -> newArmStars(levelOfDetail, arm, armIndex)));
 					i++;
 				}
 				
-				return lod;
+				return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]))
+						.thenApply(ignored -> new LOD(parts.stream().map(CompletableFuture::join).toList()));
 			}
 		};
 	}
@@ -248,7 +327,7 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 	//****************************************Dust Clouds*****************************************
 	//============================================================================================
 	
-	protected void generateDustClouds(BufferBuilder bufferBuilder, Random random)
+	protected void generateDustClouds(DustCloudData dustCloudData, Random random)
 	{
 		for(int i = 0; i < renderedObject.getDustClouds(); i++)
 		{
@@ -265,11 +344,11 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			
 			renderedObject.getAxisRotation().quaterniond().transform(cartesian);
 			
-			dustCloudData.newDustCloud(renderedObject.getDustCloudInfo(), bufferBuilder, random, cartesian.x, cartesian.y, cartesian.z, 1, i);
+			dustCloudData.newDustCloud(renderedObject.getDustCloudInfo(), random, cartesian.x, cartesian.y, cartesian.z, 1, i);
 		}
 	}
 	
-	protected void generateArmDustClouds(BufferBuilder bufferBuilder, AxisRotation axisRotation, DustCloudData dustCloudData, DustCloudInfo dustCloudInfo, Random random, int numberOfDustClouds, double sizeMultiplier, StarField.SpiralArm arm)
+	protected void generateArmDustClouds(AxisRotation axisRotation, DustCloudData dustCloudData, DustCloudInfo dustCloudInfo, Random random, int numberOfDustClouds, double sizeMultiplier, StarField.SpiralArm arm)
 	{
 		for(int i = 0; i < arm.armDustClouds(); i++)
 		{
@@ -298,120 +377,414 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			
 			axisRotation.quaterniond().transform(cartesian);
 			
-			dustCloudData.newDustCloud(arm.dustCloudInfo() == null ? dustCloudInfo : arm.dustCloudInfo(), bufferBuilder, random, cartesian.x, cartesian.y, cartesian.z, (1 / progress) + 0.2, numberOfDustClouds + i);
+			dustCloudData.newDustCloud(arm.dustCloudInfo() == null ? dustCloudInfo : arm.dustCloudInfo(), random, cartesian.x, cartesian.y, cartesian.z, (1 / progress) + 0.2, numberOfDustClouds + i);
 		}
 	}
 	
-	protected MeshData generateDustCloudBuffer(Tesselator tesselator, Random random)
+	protected DustCloudData generateDustCloudData(Random random)
 	{
-		final var bufferBuilder = tesselator.begin(VertexFormat.Mode.QUADS, StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get());
 		double sizeMultiplier = renderedObject.getDiameter() / 30D;
 		
-		dustCloudData = new DustCloudData(totalDustClouds);
+		DustCloudData dustCloudData = new DustCloudData(totalDustClouds);
 		
-		generateDustClouds(bufferBuilder, random);
+		generateDustClouds(dustCloudData, random);
 		
 		int numberOfDustClouds = renderedObject.getDustClouds();
 		for(StarField.SpiralArm arm :renderedObject.getSpiralArms()) //Draw each arm
 		{
-			generateArmDustClouds(bufferBuilder, renderedObject.getAxisRotation(), dustCloudData, renderedObject.getDustCloudInfo(), random, numberOfDustClouds, sizeMultiplier, arm);
+			generateArmDustClouds(renderedObject.getAxisRotation(), dustCloudData, renderedObject.getDustCloudInfo(), random, numberOfDustClouds, sizeMultiplier, arm);
 			numberOfDustClouds += arm.armDustClouds();
 		}
 		
-		return bufferBuilder.build();
+		return dustCloudData;
 	}
 	
-	public void setupDustCloudBuffer()
+	/**
+	 * Returns all Dust Clouds if they have already been generated, otherwise schedules their generation on the worker pool
+	 * @return The Dust Clouds or null if they aren't ready yet
+	 */
+	@Nullable
+	protected DustCloudData requestDustCloudData()
 	{
-		if(dustCloudBuffer != null)
-			dustCloudBuffer.close();
+		if(dustCloudData != null)
+			return dustCloudData;
 		
-		dustCloudBuffer = new DustCloudBuffer();
-		Tesselator tesselator = Tesselator.getInstance();
-		RenderSystem.setShader(GameRenderer::getPositionShader);
+		if(pendingDustCloudData == null)
+		{
+			long seed = renderedObject.getSeed();
+			pendingDustCloudData = GenerationExecutor.supply(() -> generateDustCloudData(new Random(seed)));
+			return null;
+		}
 		
-		MeshData mesh = generateDustCloudBuffer(tesselator, new Random(renderedObject.getSeed()));
+		if(!pendingDustCloudData.isDone())
+			return null;
 		
-		if(mesh == null)
-			return;
+		DustCloudData data;
+		try
+		{
+			data = pendingDustCloudData.join();
+		}
+		catch(Exception e)
+		{
+			StellarView.LOGGER.error("Failed to generate dust clouds for " + renderedObject, e);
+			data = new DustCloudData(0);
+		}
+		
+		pendingDustCloudData = null;
+		dustCloudRadius = data.boundingRadius();
+		maxDustCloudSize = data.maxSize();
+		dustCloudData = data;
+		
+		return data;
+	}
+	
+	protected DustCloudLOD dustCloudLOD(DustCloudData.LevelOfDetail levelOfDetail)
+	{
+		DustCloudLOD lod = dustCloudLODs[levelOfDetail.ordinal()];
+		
+		if(lod == null)
+		{
+			lod = new DustCloudLOD(levelOfDetail);
+			dustCloudLODs[levelOfDetail.ordinal()] = lod;
+		}
+		
+		return lod;
+	}
+	
+	/**
+	 * @return The uploaded Dust Clouds of the Level of Detail closest to the specified one, or null if none have been uploaded yet
+	 */
+	@Nullable
+	protected DustCloudBuffer closestUploadedDustClouds(DustCloudData.LevelOfDetail levelOfDetail)
+	{
+		DustCloudBuffer closest = null;
+		int closestDifference = Integer.MAX_VALUE;
+		
+		for(DustCloudLOD lod : dustCloudLODs)
+		{
+			if(lod == null || lod.buffer == null)
+				continue;
+			
+			int difference = Math.abs(lod.levelOfDetail.ordinal() - levelOfDetail.ordinal());
+			if(difference < closestDifference)
+			{
+				closest = lod.buffer;
+				closestDifference = difference;
+			}
+		}
 		
-		dustCloudBuffer.bind();
-		dustCloudBuffer.upload(mesh);
-		VertexBuffer.unbind();
+		return closest;
+	}
+	
+	/**
+	 * Dust Clouds of a single Level of Detail, merged on the worker pool and uploaded through the {@link UploadScheduler}
+	 */
+	protected class DustCloudLOD
+	{
+		private final DustCloudData.LevelOfDetail levelOfDetail;
+		
+		@Nullable
+		private CompletableFuture<DustCloudData> pending;
+		@Nullable
+		private DustCloudData data;
+		@Nullable
+		private DustCloudBuffer buffer;
+		
+		protected DustCloudLOD(DustCloudData.LevelOfDetail levelOfDetail)
+		{
+			this.levelOfDetail = levelOfDetail;
+		}
+		
+		/**
+		 * Returns the buffer if it has already been uploaded, otherwise moves the Dust Clouds along towards being uploaded
+		 * @param allDustClouds All Dust Clouds of the Star Field
+		 * @param distance Distance (in light years) used for prioritizing the upload
+		 * @return The buffer or null if it isn't ready yet
+		 */
+		@Nullable
+		protected DustCloudBuffer request(DustCloudData allDustClouds, double distance)
+		{
+			if(buffer != null)
+				return buffer;
+			
+			if(data == null)
+			{
+				if(levelOfDetail.getMergedDustClouds() <= 1)
+					data = allDustClouds;
+				else if(pending == null)
+				{
+					int mergedDustClouds = levelOfDetail.getMergedDustClouds();
+					pending = GenerationExecutor.supply(() -> allDustClouds.merged(mergedDustClouds));
+					return null;
+				}
+				else if(!pending.isDone())
+					return null;
+				else
+				{
+					try
+					{
+						data = pending.join();
+					}
+					catch(Exception e)
+					{
+						StellarView.LOGGER.error("Failed to merge dust clouds for " + levelOfDetail, e);
+						data = new DustCloudData(0);
+					}
+					
+					pending = null;
+				}
+			}
+			
+			if(!UploadScheduler.updatePriority(this, UploadScheduler.TIER_DUST_CLOUDS, distance))
+				UploadScheduler.request(this, UploadScheduler.TIER_DUST_CLOUDS, distance, (long) data.size() * 4 * StarMeshWriter.TEX_VERTEX_SIZE, this::upload);
+			
+			return null;
+		}
+		
+		private void upload()
+		{
+			buffer = new DustCloudBuffer();
+			
+			try(StarMeshWriter mesh = data.writeMesh())
+			{
+				buffer.bind();
+				buffer.uploadQuads(mesh);
+				VertexBuffer.unbind();
+			}
+		}
 	}
 	
 	//============================================================================================
 	//*****************************************Rendering******************************************
 	//============================================================================================
 	
+	/**
+	 * Children of Star Fields orbit without the Star Field's rotation. This is used both for rendering them and for placing a View Center on them,
+	 * which used to apply the Star Field's rotation, so View Centers inside rotated Star Fields now see their surroundings where they're drawn
+	 */
+	@Override
+	public AxisRotation childAxisRotation()
+	{
+		return NO_ROTATION;
+	}
+	
+	@Override
+	public boolean rendersChildBehind(double childDistance, double distance)
+	{
+		// Everything inside the Star Field is rendered over its Stars
+		return false;
+	}
+	
 	@Override
-	public void render(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
-					   Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
-					   Vector3f parentVector, AxisRotation parentRotation)
+	public void renderObject(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
+							 Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
+							 SpaceScene scene, int index)
 	{
-		SpaceCoords difference = viewCenter.getCoords().sub(spaceCoords());
+		SpaceCoords difference = starDifference.set(viewCenter.getCoords()).subInPlace(spaceCoords());
 		
 		if(starData == null)
 			setStars();
 		else if(requiresReset())
 		{
 			hasTexture = GeneralConfig.textured_stars.get();
+			continuousLOD = GeneralConfig.continuous_star_lod.get();
+			compactStars = GeneralConfig.compact_stars.get();
 			starData.reset();
 		}
 		
-		float starBrightness = LightEffects.starBrightness(viewCenter, level, camera, partialTicks);
+		if(!SkyVisibility.isVisible(SkyVisibility.Stage.STAR_FIELDS))
+			return;
+		
+		// The Stars are already part of the baked background
+		if(SkyBackground.isDrawn())
+			return;
+		
+		float starBrightness = viewCenter.starBrightness();
 		
-		if(!GeneralConfig.disable_stars.get() && starBrightness > 0.0F && totalStars > 0)
+		if(!viewCenter.frameContext().disableStars() && starBrightness > 0.0F && totalStars > 0)
 		{
-			final var transformedModelView = new Matrix4f(modelViewMatrix);
+			final var transformedModelView = ScratchMatrices.copyOf(modelViewMatrix);
 			
-			//stack.translate(0, 0, 0);
-			if(hasTexture)
-				RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
-			RenderSystem.setShaderColor(1, 1, 1, starBrightness);
-			if(hasTexture)
-				RenderSystem.setShaderTexture(0, renderedObject.getStarInfo().getStarTexture());
-			FogRenderer.setupNoFog();
+			transformedModelView.rotate(SpaceCoords.getQuaternionf(level, viewCenter, partialTicks, viewRotation));
 			
-			Quaternionf q = SpaceCoords.getQuaternionf(level, viewCenter, partialTicks);
+			submitStars(transformedModelView, projectionMatrix, difference, starBrightness);
+		}
+	}
+	
+	protected void submitStars(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, float brightness)
+	{
+		SkyRenderQueue.submit(hasTexture ? SkyRenderQueue.BLEND_ADDITIVE : SkyRenderQueue.BLEND_DEFAULT, true,
+				starDraw.set(starData, hasTexture, continuousLOD, pose, projectionMatrix, difference, brightness));
+		
+		// The memory used by the Stars can only change when something was uploaded
+		if(UploadScheduler.uploadsLastFrame() > 0)
+			reportStarMemory();
+	}
+	
+	/**
+	 * Logs how much VRAM the Stars use whenever it changes
+	 */
+	protected void reportStarMemory()
+	{
+		long bytes = starData.uploadedBytes();
+		
+		if(bytes == reportedStarBytes)
+			return;
+		
+		reportedStarBytes = bytes;
+		StellarView.LOGGER.debug(renderedObject + " Stars use " + bytes / 1024 + " KiB of VRAM, " + starData.compactSavedBytes() / 1024 + " KiB saved by the compact format");
+	}
+	
+	public void renderDustClouds(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
+								 Matrix4f projectionMatrix, Runnable setupFog, float brightness)
+	{
+		DustCloudBuffer dustClouds = requestDustClouds(viewCenter);
+		
+		if(dustClouds != null && brightness > 0.0F)
+		{
+			final var transformedModelView = ScratchMatrices.copyOf(modelViewMatrix);
 			
-			transformedModelView.rotate(q);
-			this.starData.renderStars(StarField.LevelOfDetail.fromDistance(difference), transformedModelView, projectionMatrix, difference, hasTexture);
+			transformedModelView.rotate(SpaceCoords.getQuaternionf(level, viewCenter, partialTicks, viewRotation));
 			
-			setupFog.run();
+			submitDustClouds(dustClouds, transformedModelView, projectionMatrix, dustCloudDifference, brightness);
 		}
+	}
+	
+	/**
+	 * Picks the Level of Detail the Dust Clouds should be drawn with from the View Center and makes sure it's being generated and uploaded
+	 * @return Buffer the Dust Clouds can be drawn from, or null if they're too small to be seen or none have been uploaded yet
+	 */
+	@Nullable
+	protected DustCloudBuffer requestDustClouds(ViewCenter viewCenter)
+	{
+		if(totalDustClouds <= 0)
+			return null;
+		
+		DustCloudData allDustClouds = requestDustCloudData();
+		if(allDustClouds == null)
+			return null;
+		
+		SpaceCoords difference = dustCloudDifference.set(viewCenter.getCoords()).subInPlace(spaceCoords());
+		double distance = Math.sqrt(difference.lyDistanceSquared());
+		
+		// Radius of the Dust Clouds on the sky sphere, anything the View Center is inside of counts as infinitely large
+		double projectedSize = dustCloudRadius >= distance ? Double.POSITIVE_INFINITY : TexturedObjectRenderer.DEFAULT_DISTANCE * dustCloudRadius / distance;
+		
+		if(projectedSize + DustCloudData.projectedSize(maxDustCloudSize, distance) < SpaceScene.cullingSize())
+			return null;
+		
+		DustCloudData.LevelOfDetail levelOfDetail = DustCloudData.LevelOfDetail.fromProjectedSize(projectedSize, distance);
 		
-		for(SpaceObjectRenderer child : children)
+		// Levels of Detail that are still being generated or uploaded are replaced by the closest one that's already available
+		DustCloudBuffer dustClouds = dustCloudLOD(levelOfDetail).request(allDustClouds, distance);
+		if(dustClouds == null)
+			dustClouds = closestUploadedDustClouds(levelOfDetail);
+		
+		return dustClouds;
+	}
+	
+	protected void submitDustClouds(DustCloudBuffer dustClouds, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, float brightness)
+	{
+		SkyRenderQueue.submit(SkyRenderQueue.BLEND_ADDITIVE, true, dustCloudDraw.set(dustClouds, pose, projectionMatrix, difference, brightness));
+	}
+	
+	/**
+	 * Submits the Dust Clouds in the frame of the Star Field, without any of the View Center's rotations, to be baked into the {@link SkyBackground}
+	 * @param pose Pose of the cubemap side being baked
+	 */
+	public void bakeDustClouds(ViewCenter viewCenter, Matrix4f pose, Matrix4f projectionMatrix, float brightness)
+	{
+		DustCloudBuffer dustClouds = requestDustClouds(viewCenter);
+		if(dustClouds != null && brightness > 0.0F)
+			submitDustClouds(dustClouds, pose, projectionMatrix, dustCloudDifference, brightness);
+	}
+	
+	/**
+	 * Submits the Stars in the frame of the Star Field, without any of the View Center's rotations, to be baked into the {@link SkyBackground}
+	 * @param pose Pose of the cubemap side being baked
+	 */
+	public void bakeStars(ViewCenter viewCenter, Matrix4f pose, Matrix4f projectionMatrix, float brightness)
+	{
+		if(starData == null)
+			setStars();
+		
+		SpaceCoords difference = starDifference.set(viewCenter.getCoords()).subInPlace(spaceCoords());
+		
+		if(brightness > 0.0F && totalStars > 0)
+			submitStars(pose, projectionMatrix, difference, brightness);
+	}
+	
+	/**
+	 * Draws the Stars with what was set before the last submission
+	 */
+	private final class StarDraw implements Runnable
+	{
+		private StarData stars;
+		private boolean textured;
+		private boolean continuous;
+		private Matrix4f pose;
+		private Matrix4f projectionMatrix;
+		private SpaceCoords difference;
+		private float brightness;
+		
+		private StarDraw set(StarData stars, boolean textured, boolean continuous, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, float brightness)
 		{
-			child.render(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator, parentVector, new AxisRotation(0, 0, 0));
+			this.stars = stars;
+			this.textured = textured;
+			this.continuous = continuous;
+			this.pose = pose;
+			this.projectionMatrix = projectionMatrix;
+			this.difference = difference;
+			this.brightness = brightness;
+			
+			return this;
+		}
+		
+		@Override
+		public void run()
+		{
+			RenderSystem.setShaderColor(1, 1, 1, brightness);
+			if(textured)
+				RenderSystem.setShaderTexture(0, renderedObject.getStarInfo().getStarTexture());
+			
+			if(continuous)
+				stars.renderStarsContinuous(pose, projectionMatrix, difference, textured);
+			else
+				stars.renderStars(StarField.LevelOfDetail.fromDistance(difference), pose, projectionMatrix, difference, textured);
 		}
 	}
 	
-	public void renderDustClouds(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
-								 Matrix4f projectionMatrix, Runnable setupFog, float brightness)
+	/**
+	 * Draws the Dust Clouds with what was set before the last submission
+	 */
+	private final class DustCloudDraw implements Runnable
 	{
-		SpaceCoords difference = viewCenter.getCoords().sub(spaceCoords());
-		
-		if(dustCloudBuffer == null)
-			setupDustCloudBuffer();
+		private DustCloudBuffer dustClouds;
+		private Matrix4f pose;
+		private Matrix4f projectionMatrix;
+		private SpaceCoords difference;
+		private float brightness;
 		
-		if(brightness > 0.0F && totalDustClouds > 0)
+		private DustCloudDraw set(DustCloudBuffer dustClouds, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, float brightness)
 		{
-			final var transformedModelView = new Matrix4f(modelViewMatrix);
+			this.dustClouds = dustClouds;
+			this.pose = pose;
+			this.projectionMatrix = projectionMatrix;
+			this.difference = difference;
+			this.brightness = brightness;
 			
-			RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
+			return this;
+		}
+		
+		@Override
+		public void run()
+		{
 			RenderSystem.setShaderColor(1, 1, 1, brightness);
 			RenderSystem.setShaderTexture(0, renderedObject.getDustCloudTexture());
-			FogRenderer.setupNoFog();
 			
-			Quaternionf q = SpaceCoords.getQuaternionf(level, viewCenter, partialTicks);
-			
-			transformedModelView.rotate(q);
-			this.dustCloudBuffer.bind();
-			this.dustCloudBuffer.drawWithShader(transformedModelView, projectionMatrix, difference, StellarViewShaders.starDustCloudShader());
+			dustClouds.bind();
+			dustClouds.drawWithShader(pose, projectionMatrix, difference, StellarViewShaders.starDustCloudShader());
 			VertexBuffer.unbind();
-			
-			setupFog.run();
 		}
 	}
 }
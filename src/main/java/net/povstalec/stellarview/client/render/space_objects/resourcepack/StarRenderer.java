@@ -33,9 +33,9 @@ public class StarRenderer<T extends Star> extends StarLikeRenderer<T>
 	{
 		double lyDistance = distance / SpaceCoords.KM_PER_LY;
 		
-		Color.FloatRGBA starRGBA = renderedObject.supernovaRGBA(ticks, lyDistance);
+		int starRGBA = renderedObject.packedSupernovaRGBA(ticks, lyDistance);
 		
-		if(starRGBA.alpha() <= 0.0F || textureLayer.rgba().alpha() <= 0)
+		if(Color.alpha(starRGBA) <= 0.0F || textureLayer.rgba().alpha() <= 0)
 			return;
 		
 		float size = (float) textureLayer.mulSize(renderedObject.distanceSize(distance));
@@ -17,6 +17,7 @@ import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.api.client.events.StellarViewEvents;
 import net.povstalec.stellarview.api.common.space_objects.distinct.Sol;
 import net.povstalec.stellarview.client.SpaceObjectRenderers;
+import net.povstalec.stellarview.client.render.CelestialAtlas;
 import net.povstalec.stellarview.client.render.SpaceRenderer;
 import net.povstalec.stellarview.client.render.ViewCenters;
 import net.povstalec.stellarview.client.render.level.StellarViewEndEffects;
@@ -30,9 +31,18 @@ import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.Star;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
 import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.api.common.space_objects.TexturedObject;
+import net.povstalec.stellarview.client.resourcepack.effects.MeteorEffect;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.common.util.TextureLayer;
+import net.povstalec.stellarview.common.util.UV;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 public class ResourcepackReloadListener
@@ -117,6 +127,74 @@ public class ResourcepackReloadListener
 			setSpaceObjects(spaceObjects);
 			SpaceRenderer.setupSynodicOrbits();
 			setViewCenters(spaceObjects, viewCenters);
+			
+			stitchCelestialAtlas(manager, spaceObjects, viewCenters);
+		}
+		
+		private static void stitchCelestialAtlas(ResourceManager manager, HashMap<ResourceLocation, SpaceObjectRenderer> spaceObjects, HashMap<ResourceLocation, ViewCenter> viewCenters)
+		{
+			if(!GeneralConfig.celestial_atlas.get())
+			{
+				CelestialAtlas.clear();
+				return;
+			}
+			
+			LinkedHashSet<ResourceLocation> textures = new LinkedHashSet<ResourceLocation>();
+			HashSet<ResourceLocation> excluded = new HashSet<ResourceLocation>();
+			
+			for(SpaceObjectRenderer spaceObject : spaceObjects.values())
+			{
+				if(spaceObject.renderedObject() instanceof TexturedObject texturedObject)
+					addTextureLayers(textures, excluded, texturedObject.getTextureLayers());
+			}
+			
+			for(ViewCenter viewCenter : viewCenters.values())
+			{
+				if(viewCenter.getShootingStar() != null)
+					addMeteorTypes(textures, excluded, viewCenter.getShootingStar().getMeteorTypes());
+				
+				if(viewCenter.getMeteorShower() != null)
+					addMeteorTypes(textures, excluded, viewCenter.getMeteorShower().getMeteorTypes());
+				
+				if(viewCenter.getSkyboxes().isPresent())
+				{
+					for(Skybox skybox : viewCenter.getSkyboxes().get())
+					{
+						for(Skybox.SkyboxFacade facade : skybox.getFacades())
+						{
+							addTexture(textures, excluded, facade.texture(), facade.uv());
+						}
+					}
+				}
+			}
+			
+			textures.removeAll(excluded);
+			CelestialAtlas.stitch(manager, textures);
+		}
+		
+		private static void addMeteorTypes(Set<ResourceLocation> textures, Set<ResourceLocation> excluded, List<MeteorEffect.MeteorType> meteorTypes)
+		{
+			for(MeteorEffect.MeteorType meteorType : meteorTypes)
+			{
+				addTextureLayers(textures, excluded, meteorType.getTextureLayers());
+			}
+		}
+		
+		private static void addTextureLayers(Set<ResourceLocation> textures, Set<ResourceLocation> excluded, List<TextureLayer> textureLayers)
+		{
+			for(TextureLayer textureLayer : textureLayers)
+			{
+				addTexture(textures, excluded, textureLayer.texture(), textureLayer.uv());
+			}
+		}
+		
+		private static void addTexture(Set<ResourceLocation> textures, Set<ResourceLocation> excluded, ResourceLocation texture, UV.Quad uv)
+		{
+			// A texture that's used with repeating UVs anywhere has to stay a separate texture
+			if(CelestialAtlas.canStitch(uv))
+				textures.add(texture);
+			else
+				excluded.add(texture);
 		}
 		
 		private static void addViewCenter(HashMap<ResourceLocation, ViewCenter> viewCenters, ResourceLocation location, JsonElement element)
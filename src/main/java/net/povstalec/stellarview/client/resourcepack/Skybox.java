@@ -1,6 +1,7 @@
 package net.povstalec.stellarview.client.resourcepack;
 
 import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
 import com.mojang.blaze3d.vertex.BufferUploader;
 import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.Tesselator;
@@ -10,11 +11,15 @@ import com.mojang.serialization.codecs.RecordCodecBuilder;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.client.render.CelestialAtlas;
+import net.povstalec.stellarview.client.util.ScratchMatrices;
 import net.povstalec.stellarview.common.util.Color;
 import net.povstalec.stellarview.common.util.UV;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
+import javax.annotation.Nullable;
+
 public class Skybox
 {
 	public static final float DEFAULT_DISTANCE = 150.0F;
@@ -110,9 +115,14 @@ public class Skybox
 		return facades[5];
 	}
 	
+	public SkyboxFacade[] getFacades()
+	{
+		return facades;
+	}
+	
 	public void render(ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Tesselator tesselator)
 	{
-		final var transformeModelView = new Matrix4f(modelViewMatrix);
+		final var transformeModelView = ScratchMatrices.copyOf(modelViewMatrix);
         //stack.mulPose(Axis.YP.rotationDegrees(skyXAngle));
         //stack.mulPose(Axis.ZP.rotationDegrees(skyYAngle));
         //stack.mulPose(Axis.XP.rotationDegrees(skyZAngle));
@@ -123,27 +133,46 @@ public class Skybox
         RenderSystem.setShader(GameRenderer::getPositionTexColorShader);
         RenderSystem.defaultBlendFunc();
         
+        // Neighboring facades that share a texture (or celestial atlas page) are drawn together
+        BufferBuilder bufferbuilder = null;
+        ResourceLocation boundTexture = null;
         for(int i = 0; i < 6; i++)
         {
-        	this.renderFacade(tesselator, lastMatrix, facades[i], i);
+        	CelestialAtlas.Entry atlasEntry = CelestialAtlas.get(facades[i].texture());
+        	ResourceLocation texture = CelestialAtlas.texture(atlasEntry, facades[i].texture());
+        	
+        	if(bufferbuilder != null && !texture.equals(boundTexture))
+        	{
+        		BufferUploader.drawWithShader(bufferbuilder.buildOrThrow());
+        		bufferbuilder = null;
+        	}
+        	
+        	if(bufferbuilder == null)
+        	{
+        		RenderSystem.setShaderTexture(0, texture);
+        		boundTexture = texture;
+        		bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX_COLOR);
+        	}
+        	
+        	this.addFacade(bufferbuilder, lastMatrix, facades[i], atlasEntry, i);
         }
+        
+        if(bufferbuilder != null)
+        	BufferUploader.drawWithShader(bufferbuilder.buildOrThrow());
 
         RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
 		RenderSystem.defaultBlendFunc();
 	}
 	
-	protected void renderFacade(Tesselator tesselator, Matrix4f lastMatrix, SkyboxFacade facade, int i)
+	protected void addFacade(BufferBuilder bufferbuilder, Matrix4f lastMatrix, SkyboxFacade facade, @Nullable CelestialAtlas.Entry atlasEntry, int i)
 	{
 		UV.Quad uv = facade.uv();
 		Color.IntRGBA rgba = facade.rgba();
 		
-		RenderSystem.setShaderTexture(0, facade.texture());
-        final var bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX_COLOR);
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][0].x, BOX_COORDS[i][0].y, BOX_COORDS[i][0].z).setUv(uv.topLeft().u(), uv.topLeft().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][1].x, BOX_COORDS[i][1].y, BOX_COORDS[i][1].z).setUv(uv.bottomLeft().u(), uv.bottomLeft().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][2].x, BOX_COORDS[i][2].y, BOX_COORDS[i][2].z).setUv(uv.bottomRight().u(), uv.bottomRight().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][3].x, BOX_COORDS[i][3].y, BOX_COORDS[i][3].z).setUv(uv.topRight().u(), uv.topRight().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
-        BufferUploader.drawWithShader(bufferbuilder.build());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][0].x, BOX_COORDS[i][0].y, BOX_COORDS[i][0].z).setUv(CelestialAtlas.u(atlasEntry, uv.topLeft().u()), CelestialAtlas.v(atlasEntry, uv.topLeft().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][1].x, BOX_COORDS[i][1].y, BOX_COORDS[i][1].z).setUv(CelestialAtlas.u(atlasEntry, uv.bottomLeft().u()), CelestialAtlas.v(atlasEntry, uv.bottomLeft().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][2].x, BOX_COORDS[i][2].y, BOX_COORDS[i][2].z).setUv(CelestialAtlas.u(atlasEntry, uv.bottomRight().u()), CelestialAtlas.v(atlasEntry, uv.bottomRight().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][3].x, BOX_COORDS[i][3].y, BOX_COORDS[i][3].z).setUv(CelestialAtlas.u(atlasEntry, uv.topRight().u()), CelestialAtlas.v(atlasEntry, uv.topRight().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
 	}
 	
 	
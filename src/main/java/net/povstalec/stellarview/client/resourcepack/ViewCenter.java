@@ -11,15 +11,19 @@ import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField
 import net.povstalec.stellarview.api.common.space_objects.StarLike;
 import net.povstalec.stellarview.api.common.space_objects.ViewObject;
 import net.povstalec.stellarview.client.render.LightEffects;
+import net.povstalec.stellarview.client.render.SkyFrameContext;
+import net.povstalec.stellarview.client.render.SkyVisibility;
 import net.povstalec.stellarview.client.render.SpaceRenderer;
 import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
 import net.povstalec.stellarview.client.render.space_objects.ViewObjectRenderer;
+import net.povstalec.stellarview.client.render.space_objects.resourcepack.StarRenderer;
+import net.povstalec.stellarview.client.util.ScratchMatrices;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.Tesselator;
 import com.mojang.blaze3d.vertex.VertexBuffer;
-import com.mojang.math.Axis;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import net.minecraft.client.Camera;
@@ -54,17 +58,22 @@ public class ViewCenter
 	public static final float DAY_MIN_VISIBLE_SIZE = 2.5F;
 	public static final float DAY_MAX_VISIBLE_SIZE = 10F;
 	
+	private static final AxisRotation NO_ROTATION = new AxisRotation();
+	
 	protected int levelTicks;
 	protected boolean updateTicks;
 	
 	protected long ticks;
 	protected long oldTicks;
+	protected int tickMultiplier = 1;
 	protected long dayTicks;
 	protected long oldDayTicks;
 	
 	protected float starBrightness;
 	protected float dustCloudBrightness;
 	
+	protected final SkyFrameContext frameContext = new SkyFrameContext();
+	
 	@Nullable
 	protected ResourceKey<SpaceObject> viewCenterKey;
 	@Nullable
@@ -82,7 +91,8 @@ public class ViewCenter
 	@Nullable
 	protected VertexBuffer darkBuffer;
 	
-	protected SpaceCoords coords;
+	// Owned by the View Center and moved in place every frame, so it must never be handed out to be stored
+	protected final SpaceCoords coords = new SpaceCoords();
 	protected AxisRotation axisRotation;
 	protected long rotationPeriod;
 	
@@ -189,6 +199,14 @@ public class ViewCenter
 		return ticks;
 	}
 	
+	/**
+	 * @return Tick multiplier read when the ticks were last updated
+	 */
+	public int tickMultiplier()
+	{
+		return tickMultiplier;
+	}
+	
 	public long tickDifference()
 	{
 		return ticks - oldTicks;
@@ -209,6 +227,14 @@ public class ViewCenter
 		return starBrightness;
 	}
 	
+	/**
+	 * @return Environment of the frame that is currently being rendered
+	 */
+	public SkyFrameContext frameContext()
+	{
+		return frameContext;
+	}
+	
 	public float dustCloudBrightness()
 	{
 		return dustCloudBrightness;
@@ -219,7 +245,7 @@ public class ViewCenter
 		if(viewObject != null)
 			return viewObject.axisRotation();
 		
-		return new AxisRotation();
+		return NO_ROTATION;
 	}
 	
 	public Optional<ResourceKey<SpaceObject>> getViewCenterKey()
@@ -255,17 +281,17 @@ public class ViewCenter
 	
 	public void addCoords(SpaceCoords other)
 	{
-		this.coords = this.coords.add(other);
+		this.coords.addInPlace(other);
 	}
 	
-	public void addCoords(Vector3f vector)
+	public void addCoords(Vector3fc vector)
 	{
-		this.coords = this.coords.add(vector);
+		this.coords.addInPlace(vector);
 	}
 	
 	public void subCoords(SpaceCoords other)
 	{
-		this.coords = this.coords.sub(other);
+		this.coords.subInPlace(other);
 	}
 	
 	public AxisRotation getAxisRotation()
@@ -368,22 +394,39 @@ public class ViewCenter
 		return (float) (d0 * 2.0D + d1) / 3.0F;
 	}
 	
+	/**
+	 * @return The closest Star the View Object orbits around, or null if it doesn't orbit any
+	 */
+	@Nullable
+	private SpaceObjectRenderer closestStar()
+	{
+		for(SpaceObjectRenderer spaceObject = viewObject; spaceObject != null; spaceObject = spaceObject.parent())
+		{
+			if(spaceObject instanceof StarRenderer)
+				return spaceObject;
+		}
+		
+		return null;
+	}
+	
 	private boolean renderSkyObjectsFrom(ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, Runnable setupFog, Tesselator tesselator)
 	{
 		if(viewObject == null)
 			return false;
 		
-		coords = viewObject.spaceCoords();
+		coords.set(viewObject.spaceCoords());
 		
-		final var transformedModelView = new Matrix4f(modelViewMatrix);
+		final var transformedModelView = ScratchMatrices.copyOf(modelViewMatrix);
 		
 		if(updateTicks)
 		{
 			this.oldTicks = this.ticks;
-			this.ticks = GeneralConfig.tick_multiplier.get() * (GeneralConfig.use_game_ticks.get() ? level.getGameTime() : level.getDayTime());
+			this.tickMultiplier = GeneralConfig.tick_multiplier.get();
+			this.ticks = tickMultiplier * (GeneralConfig.use_game_ticks.get() ? level.getGameTime() : level.getDayTime());
 		}
 		this.starBrightness = LightEffects.starBrightness(this, level, camera, partialTicks);
-		this.dustCloudBrightness = GeneralConfig.dust_clouds.get() ? LightEffects.dustCloudBrightness(this, level, camera, partialTicks) : 0;
+		this.dustCloudBrightness = frameContext.dustClouds() ? LightEffects.dustCloudBrightness(this, level, camera, partialTicks) : 0;
+		SkyVisibility.update(this, closestStar(), level, camera, partialTicks);
 		
 		if(!GeneralConfig.disable_view_center_rotation.get())
 		{
@@ -395,20 +438,22 @@ public class ViewCenter
 			double rotation = 2 * Math.PI * getTimeOfDay(partialTicks) + Math.PI;
 			
 			if(viewObject.orbitInfo() != null)
-				rotation -= viewObject.orbitInfo().meanAnomaly(this.ticks % viewObject.orbitInfo().orbitalPeriod().ticks(), tickDifference() * partialTicks);
+				rotation -= viewObject.orbitInfo().meanAnomaly(this.ticks % viewObject.orbitInfo().orbitalPeriod().ticks(), tickDifference() * partialTicks, tickMultiplier);
 			
-			transformedModelView.rotate(Axis.YP.rotation((float) getAxisRotation().yAxis()));
-			transformedModelView.rotate(Axis.ZP.rotation((float) getAxisRotation().zAxis()));
-			transformedModelView.rotate(Axis.XP.rotation((float) getAxisRotation().xAxis()));
+			transformedModelView.rotateY((float) getAxisRotation().yAxis());
+			transformedModelView.rotateZ((float) getAxisRotation().zAxis());
+			transformedModelView.rotateX((float) getAxisRotation().xAxis());
 			
-			transformedModelView.rotate(Axis.YP.rotation((float) rotation));
-			transformedModelView.rotate(Axis.ZP.rotation((float) getZRotation(level, camera, partialTicks)));
+			transformedModelView.rotateY((float) rotation);
+			transformedModelView.rotateZ((float) getZRotation(level, camera, partialTicks));
 		}
 		
+		// Always rendered, Space Objects that can't be seen are skipped by the scene while the sun stays
 		viewObject.renderFrom(this, level, tickDifference() * partialTicks, transformedModelView, camera, projectionMatrix, StellarViewFogEffects.isFoggy(minecraft, camera), setupFog, tesselator);
 
 		RenderSystem.setShader(GameRenderer::getPositionTexShader);
-		renderSkyEvents(level, camera, partialTicks, modelViewMatrix, tesselator);
+		if(SkyVisibility.isVisible(SkyVisibility.Stage.METEORS))
+			renderSkyEvents(level, camera, partialTicks, modelViewMatrix, tesselator);
 		return true;
 	}
 	
@@ -429,6 +474,10 @@ public class ViewCenter
 			this.levelTicks = ticks;
 		}
 		
+		// Everything taken from the scratch matrices during the last frame has been drawn by now
+		ScratchMatrices.rewind();
+		frameContext.update(level, camera, partialTicks);
+		
 		setupFog.run();
 		
 		if(!StellarViewFogEffects.isFoggy(this.minecraft, camera))
@@ -476,7 +525,7 @@ public class ViewCenter
 	        	double height = this.minecraft.player.getEyePosition(partialTicks).y - level.getLevelData().getHorizonHeight(level);
 		        if(height < 0.0D)
 		        {
-					final var transformedModelView = new Matrix4f(modelViewMatrix);
+					final var transformedModelView = ScratchMatrices.copyOf(modelViewMatrix);
 					transformedModelView.translate(0.0F, 12.0F, 0.0F);
 		        	this.darkBuffer.bind();
 		        	this.darkBuffer.drawWithShader(transformedModelView, projectionMatrix, shaderinstance);
@@ -6,14 +6,15 @@ import com.mojang.blaze3d.vertex.BufferUploader;
 import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.Tesselator;
 import com.mojang.blaze3d.vertex.VertexFormat;
-import com.mojang.math.Axis;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.util.Mth;
+import net.povstalec.stellarview.client.render.CelestialAtlas;
+import net.povstalec.stellarview.client.render.SkyFrameContext;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
-import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.client.util.ScratchMatrices;
 import net.povstalec.stellarview.common.util.*;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
@@ -33,6 +34,9 @@ public abstract class MeteorEffect
 	
 	protected double rarity;
 	
+	// Reseeding gives the same numbers as a new Random with that seed, without creating one every frame
+	private final Random random = new Random();
+	
 	public MeteorEffect(List<MeteorType> meteorTypes, double rarity)
 	{
 		this.meteorTypes = new ArrayList<MeteorType>(meteorTypes);
@@ -61,16 +65,23 @@ public abstract class MeteorEffect
 		return rarity;
 	}
 	
+	protected Random seededRandom(long seed)
+	{
+		random.setSeed(seed);
+		
+		return random;
+	}
+	
 	protected boolean shouldAppear(ViewCenter viewCenter, long seed)
 	{
-		Random random = new Random(seed);
+		Random random = seededRandom(seed);
 		
 		return random.nextDouble() <= getRarity(viewCenter);
 	}
 	
 	protected MeteorType getRandomMeteorType(long seed)
 	{
-		Random random = new Random(seed);
+		Random random = seededRandom(seed);
 		
 		int i = 0;
 		
@@ -87,16 +98,31 @@ public abstract class MeteorEffect
 	
 	public Color.FloatRGBA rgba(ViewCenter viewCenter, ClientLevel level, Camera camera, long ticks, float partialTicks)
 	{
-		float brightness = level.getStarBrightness(partialTicks);
+		return new Color.FloatRGBA(1, 1, 1, brightness(viewCenter, level, camera, ticks, partialTicks));
+	}
+	
+	/**
+	 * Same as {@link #rgba(ViewCenter, ClientLevel, Camera, long, float)}, packed with {@link Color#packARGB(float, float, float, float)}
+	 */
+	public int packedRGBA(ViewCenter viewCenter, ClientLevel level, Camera camera, long ticks, float partialTicks)
+	{
+		return Color.packARGB(1, 1, 1, brightness(viewCenter, level, camera, ticks, partialTicks));
+	}
+	
+	protected float brightness(ViewCenter viewCenter, ClientLevel level, Camera camera, long ticks, float partialTicks)
+	{
+		SkyFrameContext context = viewCenter.frameContext();
+		
+		float brightness = context.levelStarBrightness();
 		brightness = viewCenter.starsAlwaysVisible() && brightness < 0.5F ? 
 				0.5F : brightness;
 		
-		if(GeneralConfig.bright_stars.get())
-			brightness = brightness * (1 + ((float) (15 - level.getLightEngine().getRawBrightness(camera.getEntity().getOnPos().above(), 15)) / 15));
+		if(context.brightStars())
+			brightness = brightness * (1 + ((float) (15 - context.blockLight()) / 15));
 		
-		brightness *= (1.0F - level.getRainLevel(partialTicks));
+		brightness *= context.rainDimming();
 		
-		return new Color.FloatRGBA(1, 1, 1, brightness);
+		return brightness;
 	}
 	
 	public abstract void render(ViewCenter viewCenter, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Tesselator tesselator);
@@ -105,13 +131,13 @@ public abstract class MeteorEffect
 			float xRotation, float yRotation, float zRotation,
 			MeteorType meteorType, float mulSize, float addRotation)
 	{
-		final var transformedModelView = new Matrix4f(modelViewMatrix);
+		final var transformedModelView = ScratchMatrices.copyOf(modelViewMatrix);
 		
-		transformedModelView.rotate(Axis.YP.rotationDegrees(yRotation));
-        transformedModelView.rotate(Axis.ZP.rotationDegrees(zRotation));
-        transformedModelView.rotate(Axis.XP.rotationDegrees(xRotation));
+		transformedModelView.rotateY(yRotation * Mth.DEG_TO_RAD);
+        transformedModelView.rotateZ(zRotation * Mth.DEG_TO_RAD);
+        transformedModelView.rotateX(xRotation * Mth.DEG_TO_RAD);
 		
-		meteorType.render(tesselator, transformedModelView, SPHERICAL_START, rgba(viewCenter, level, camera, viewCenter.ticks(), partialTicks), viewCenter.ticks(), mulSize, addRotation);
+		meteorType.render(tesselator, transformedModelView, SPHERICAL_START, packedRGBA(viewCenter, level, camera, viewCenter.ticks(), partialTicks), viewCenter.ticks(), mulSize, addRotation);
 	}
 	
 	public static class MeteorType
@@ -140,9 +166,12 @@ public abstract class MeteorEffect
 			return weight;
 		}
 		
-		protected void renderTextureLayer(TextureLayer textureLayer, Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords, Color.FloatRGBA rgba, long ticks, float mulSize, float addRotation)
+		/**
+		 * @param rgba Color packed with {@link Color#packARGB(float, float, float, float)}
+		 */
+		protected void renderTextureLayer(TextureLayer textureLayer, Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords, int rgba, long ticks, float mulSize, float addRotation)
 		{
-			if(rgba.alpha() <= 0.0F || textureLayer.rgba().alpha() <= 0)
+			if(Color.alpha(rgba) <= 0.0F || textureLayer.rgba().alpha() <= 0)
 				return;
 			
 			float size = (float) textureLayer.mulSize(mulSize);
@@ -166,15 +195,18 @@ public abstract class MeteorEffect
 			if(textureLayer.shoulBlend())
 				RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
 			
-			RenderSystem.setShaderColor(rgba.red() * textureLayer.rgba().red(), rgba.green() * textureLayer.rgba().green(), rgba.blue() * textureLayer.rgba().blue(), rgba.alpha() * textureLayer.rgba().alpha());
+			RenderSystem.setShaderColor(Color.red(rgba) * textureLayer.rgba().red(), Color.green(rgba) * textureLayer.rgba().green(), Color.blue(rgba) * textureLayer.rgba().blue(), Color.alpha(rgba) * textureLayer.rgba().alpha());
 			
-			RenderSystem.setShaderTexture(0, textureLayer.texture());
+			CelestialAtlas.Entry atlasEntry = CelestialAtlas.get(textureLayer.texture());
+			UV.Quad uv = textureLayer.uv();
+			
+			RenderSystem.setShaderTexture(0, CelestialAtlas.texture(atlasEntry, textureLayer.texture()));
 	        final var bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
 	        
-	        bufferbuilder.addVertex(lastMatrix, corner00.x, corner00.y, corner00.z).setUv(textureLayer.uv().topRight().u(ticks), textureLayer.uv().topRight().v(ticks));
-	        bufferbuilder.addVertex(lastMatrix, corner10.x, corner10.y, corner10.z).setUv(textureLayer.uv().bottomRight().u(ticks), textureLayer.uv().bottomRight().v(ticks));
-	        bufferbuilder.addVertex(lastMatrix, corner11.x, corner11.y, corner11.z).setUv(textureLayer.uv().bottomLeft().u(ticks), textureLayer.uv().bottomLeft().v(ticks));
-	        bufferbuilder.addVertex(lastMatrix, corner01.x, corner01.y, corner01.z).setUv(textureLayer.uv().topLeft().u(ticks), textureLayer.uv().topLeft().v(ticks));
+	        bufferbuilder.addVertex(lastMatrix, corner00.x, corner00.y, corner00.z).setUv(CelestialAtlas.u(atlasEntry, uv.topRight().u(ticks)), CelestialAtlas.v(atlasEntry, uv.topRight().v(ticks)));
+	        bufferbuilder.addVertex(lastMatrix, corner10.x, corner10.y, corner10.z).setUv(CelestialAtlas.u(atlasEntry, uv.bottomRight().u(ticks)), CelestialAtlas.v(atlasEntry, uv.bottomRight().v(ticks)));
+	        bufferbuilder.addVertex(lastMatrix, corner11.x, corner11.y, corner11.z).setUv(CelestialAtlas.u(atlasEntry, uv.bottomLeft().u(ticks)), CelestialAtlas.v(atlasEntry, uv.bottomLeft().v(ticks)));
+	        bufferbuilder.addVertex(lastMatrix, corner01.x, corner01.y, corner01.z).setUv(CelestialAtlas.u(atlasEntry, uv.topLeft().u(ticks)), CelestialAtlas.v(atlasEntry, uv.topLeft().v(ticks)));
 	        
 	        BufferUploader.drawWithShader(bufferbuilder.buildOrThrow());
 	        
@@ -183,9 +215,17 @@ public abstract class MeteorEffect
 		
 		public final void render(Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords, Color.FloatRGBA rgba, long ticks, float mulSize, float addRotation)
 		{
-			for(TextureLayer textureLayer : textureLayers)
+			render(tesselator, lastMatrix, sphericalCoords, rgba.packARGB(), ticks, mulSize, addRotation);
+		}
+		
+		/**
+		 * @param rgba Color packed with {@link Color#packARGB(float, float, float, float)}
+		 */
+		public final void render(Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords, int rgba, long ticks, float mulSize, float addRotation)
+		{
+			for(int i = 0; i < textureLayers.size(); i++)
 			{
-				renderTextureLayer(textureLayer, tesselator, lastMatrix, sphericalCoords, rgba, ticks, mulSize, addRotation);
+				renderTextureLayer(textureLayers.get(i), tesselator, lastMatrix, sphericalCoords, rgba, ticks, mulSize, addRotation);
 			}
 		}
 	}
@@ -230,7 +270,7 @@ public abstract class MeteorEffect
 			long tickSeed = viewCenter.ticks() / TICKS;
 			int specificTime = (int) (viewCenter.ticks() % TICKS);
 
-			Random randomizer = new Random(tickSeed);
+			Random randomizer = seededRandom(tickSeed);
 			
 			int randomStart = randomizer.nextInt(0, TICKS - DURATION);
 			
@@ -240,7 +280,7 @@ public abstract class MeteorEffect
 				
 				long shootingStarRandomizer = viewCenter.ticks() / DURATION;
 				
-				Random random = new Random(shootingStarRandomizer);
+				Random random = seededRandom(shootingStarRandomizer);
 				
 				float xRotation = (float) (random.nextInt(0, 45) + Math.PI * Mth.lerp(partialTicks, position - 1, position));
 				float yRotation = random.nextInt(0, 360);
@@ -301,7 +341,7 @@ public abstract class MeteorEffect
 				
 				long meteorRandomizer = viewCenter.ticks() / DURATION;
 				
-				Random random = new Random(meteorRandomizer);
+				Random random = seededRandom(meteorRandomizer);
 				
 				float xRotation = (float) (random.nextInt(0, 45) + Math.PI * Mth.lerp(partialTicks, position - 1, position));
 				float yRotation = random.nextInt(0, 360);
@@ -63,6 +63,33 @@ public class GeneralConfigScreen extends Screen
 				Component.empty(),
 				this.width, GeneralConfig.space_region_render_distance));
 		
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.upload_time_budget").append(Component.literal(": ")),
+				Component.empty(),
+				this.width, GeneralConfig.upload_time_budget));
+		
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.star_cache"),
+				this.width, GeneralConfig.star_cache));
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.star_cache_size").append(Component.literal(": ")),
+				Component.empty(),
+				this.width, GeneralConfig.star_cache_size));
+		
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.continuous_star_lod"),
+				this.width, GeneralConfig.continuous_star_lod));
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.star_density").append(Component.literal(": ")),
+				Component.literal("\u0025"),
+				this.width, GeneralConfig.star_density));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.compact_stars"),
+				this.width, GeneralConfig.compact_stars));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.celestial_atlas"),
+				this.width, GeneralConfig.celestial_atlas));
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.subtree_culling_size").append(Component.literal(": ")),
+				Component.empty(),
+				this.width, GeneralConfig.subtree_culling_size));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.sky_visibility_culling"),
+				this.width, GeneralConfig.sky_visibility_culling));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.baked_sky_background"),
+				this.width, GeneralConfig.baked_sky_background));
+		
 		this.addWidget(this.configList);
 
 		this.addRenderableWidget(Button.builder(CommonComponents.GUI_BACK, 
@@ -20,6 +20,12 @@ import java.nio.ByteBuffer;
 
 public class DustCloudBuffer implements AutoCloseable
 {
+	private static final String[] SAMPLER_NAMES = {"Sampler0", "Sampler1", "Sampler2", "Sampler3", "Sampler4", "Sampler5",
+			"Sampler6", "Sampler7", "Sampler8", "Sampler9", "Sampler10", "Sampler11"};
+	
+	private final Vector3f relativeLy = new Vector3f();
+	private final Vector3f relativeKm = new Vector3f();
+	
 	private int vertexBufferId;
 	private int indexBufferId;
 	private int arrayObjectId;
@@ -60,6 +66,38 @@ public class DustCloudBuffer implements AutoCloseable
 		}
 	}
 	
+	/**
+	 * Uploads quads written by a {@link StarMeshWriter}, the writer is not closed
+	 */
+	public void uploadQuads(StarMeshWriter mesh)
+	{
+		if(this.isInvalid())
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		VertexFormat meshFormat = mesh.format();
+		
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		if(!meshFormat.equals(this.format))
+		{
+			if(this.format != null)
+				this.format.clearBufferState();
+			
+			meshFormat.setupBufferState();
+		}
+		RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, mesh.buffer(), GL15C.GL_STATIC_DRAW);
+		
+		int meshIndexCount = VertexFormat.Mode.QUADS.indexCount(mesh.quads() * 4);
+		RenderSystem.AutoStorageIndexBuffer quadIndices = RenderSystem.getSequentialBuffer(VertexFormat.Mode.QUADS);
+		if(quadIndices != this.sequentialIndices || !quadIndices.hasStorage(meshIndexCount))
+			quadIndices.bind(meshIndexCount);
+		
+		this.format = meshFormat;
+		this.sequentialIndices = quadIndices;
+		this.indexCount = meshIndexCount;
+		this.mode = VertexFormat.Mode.QUADS;
+	}
+	
 	private VertexFormat uploadVertexBuffer(MeshData mesh, ByteBuffer vertexBuffer)
 	{
 		final var drawState = mesh.drawState();
@@ -130,18 +168,23 @@ public class DustCloudBuffer implements AutoCloseable
 	
 	public void drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, SpaceCoords relativeSpacePos, DustCloudShaderInstance shaderInstance)
 	{
-		Vector3f relativeVectorLy = new Vector3f((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
-		Vector3f relativeVectorKm = new Vector3f((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
-		
 		if(!RenderSystem.isOnRenderThread())
 		{
+			Vector3f relativeVectorLy = new Vector3f((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
+			Vector3f relativeVectorKm = new Vector3f((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
+			
 			RenderSystem.recordRenderCall(() ->
 			{
 				this._drawWithShader(new Matrix4f(modelViewMatrix), new Matrix4f(projectionMatrix), relativeVectorLy, relativeVectorKm, shaderInstance);
 			});
 		}
 		else
-			this._drawWithShader(modelViewMatrix, projectionMatrix, relativeVectorLy, relativeVectorKm, shaderInstance);
+		{
+			// The uniforms copy the values right away, so the same vectors can be used for every draw
+			relativeLy.set((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
+			relativeKm.set((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
+			this._drawWithShader(modelViewMatrix, projectionMatrix, relativeLy, relativeKm, shaderInstance);
+		}
 	}
 	
 	private void _drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, Vector3f relativeSpaceLy, Vector3f relativeSpaceKm, DustCloudShaderInstance shaderInstance)
@@ -149,7 +192,7 @@ public class DustCloudBuffer implements AutoCloseable
 		for(int i = 0; i < 12; ++i)
 		{
 			int j = RenderSystem.getShaderTexture(i);
-			shaderInstance.setSampler("Sampler" + i, j);
+			shaderInstance.setSampler(SAMPLER_NAMES[i], j);
 		}
 		
 		if(shaderInstance.MODEL_VIEW_MATRIX != null)
@@ -0,0 +1,54 @@
+package net.povstalec.stellarview.client.util;
+
+import net.povstalec.stellarview.StellarView;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Small, bounded worker pool used for generating star and dust cloud data away from the render thread.
+ * Anything produced here is plain data, uploading it to the GPU still has to happen on the render thread.
+ */
+public final class GenerationExecutor
+{
+	private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+	
+	private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+	
+	private static ThreadPoolExecutor createExecutor()
+	{
+		AtomicInteger threadCount = new AtomicInteger();
+		
+		ThreadFactory threadFactory = runnable ->
+		{
+			Thread thread = new Thread(runnable, "StellarView Generator #" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.NORM_PRIORITY - 1);
+			thread.setUncaughtExceptionHandler((t, exception) -> StellarView.LOGGER.error("Uncaught exception in " + t.getName(), exception));
+			return thread;
+		};
+		
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+		
+		return executor;
+	}
+	
+	public static <T> CompletableFuture<T> supply(Supplier<T> supplier)
+	{
+		return CompletableFuture.supplyAsync(supplier, EXECUTOR);
+	}
+	
+	/**
+	 * @return Number of generation tasks that are waiting for a free worker
+	 */
+	public static int queuedTasks()
+	{
+		return EXECUTOR.getQueue().size();
+	}
+}
@@ -0,0 +1,42 @@
+package net.povstalec.stellarview.client.util;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+
+import java.util.ArrayList;
+
+/**
+ * Per-thread stack of matrices used in place of {@code new Matrix4f(...)} copies on the sky render path.
+ * The stack is rewound at the start of every sky frame, so a matrix taken from it may be used (and captured by queued draws) until the frame ends, but never kept any longer.
+ */
+public final class ScratchMatrices
+{
+	private static final ThreadLocal<ScratchMatrices> SCRATCH = ThreadLocal.withInitial(ScratchMatrices::new);
+	
+	private final ArrayList<Matrix4f> matrices = new ArrayList<Matrix4f>();
+	private int used = 0;
+	
+	/**
+	 * @return Matrix from the stack of the current thread, set to the same values as the specified matrix
+	 */
+	public static Matrix4f copyOf(Matrix4fc matrix)
+	{
+		return SCRATCH.get().next().set(matrix);
+	}
+	
+	/**
+	 * Makes all matrices of the current thread available again, called once all of them have been used
+	 */
+	public static void rewind()
+	{
+		SCRATCH.get().used = 0;
+	}
+	
+	private Matrix4f next()
+	{
+		if(used == matrices.size())
+			matrices.add(new Matrix4f());
+		
+		return matrices.get(used++);
+	}
+}
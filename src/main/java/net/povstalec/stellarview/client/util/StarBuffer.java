@@ -6,6 +6,7 @@ import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.BufferUploader;
 import com.mojang.blaze3d.vertex.MeshData;
 import com.mojang.blaze3d.vertex.VertexFormat;
+import com.mojang.blaze3d.vertex.VertexFormatElement;
 import net.minecraft.client.Minecraft;
 import net.povstalec.stellarview.client.render.shader.StarShaderInstance;
 import java.nio.ByteBuffer;
@@ -16,13 +17,35 @@ import net.povstalec.stellarview.client.render.SpaceRenderer;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
+import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL15C;
+import org.lwjgl.opengl.GL31C;
+import org.lwjgl.opengl.GL32C;
+import org.lwjgl.opengl.GL33C;
+import org.lwjgl.opengl.GL42C;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
 
 import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
 
 public class StarBuffer implements AutoCloseable
 {
+	private static final String[] SAMPLER_NAMES = {"Sampler0", "Sampler1", "Sampler2", "Sampler3", "Sampler4", "Sampler5",
+			"Sampler6", "Sampler7", "Sampler8", "Sampler9", "Sampler10", "Sampler11"};
+	
+	@Nullable
+	private static Boolean instancingSupported;
+	@Nullable
+	private static Boolean baseInstanceSupported;
+	
+	private final Vector3f relativeLy = new Vector3f();
+	private final Vector3f relativeKm = new Vector3f();
+	
 	private int vertexBufferId;
 	private int indexBufferId;
 	private int arrayObjectId;
@@ -33,6 +56,11 @@ public class StarBuffer implements AutoCloseable
 	private VertexFormat.IndexType indexType;
 	private int indexCount;
 	private VertexFormat.Mode mode;
+	private int instanceCount;
+	@Nullable
+	private StarCells.Ranges drawRanges;
+	private float positionScale = 1;
+	private long uploadedBytes;
 	
 	public StarBuffer()
 	{
@@ -55,6 +83,7 @@ public class StarBuffer implements AutoCloseable
 				this.indexCount = drawState.indexCount();
 				this.indexType = drawState.indexType();
 				this.mode = drawState.mode();
+				this.instanceCount = 0;
 			}
 			finally
 			{
@@ -63,6 +92,93 @@ public class StarBuffer implements AutoCloseable
 		}
 	}
 	
+	/**
+	 * Uploads quads written by a {@link StarMeshWriter}, the writer is not closed
+	 */
+	public void uploadQuads(StarMeshWriter mesh)
+	{
+		if(this.isInvalid())
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		VertexFormat meshFormat = mesh.format();
+		
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		if(!meshFormat.equals(this.format))
+		{
+			if(this.format != null)
+				this.format.clearBufferState();
+			
+			meshFormat.setupBufferState();
+		}
+		RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, mesh.buffer(), GL15C.GL_STATIC_DRAW);
+		this.uploadedBytes = mesh.buffer().remaining();
+		
+		int meshIndexCount = VertexFormat.Mode.QUADS.indexCount(mesh.quads() * 4);
+		RenderSystem.AutoStorageIndexBuffer quadIndices = RenderSystem.getSequentialBuffer(VertexFormat.Mode.QUADS);
+		if(quadIndices != this.sequentialIndices || !quadIndices.hasStorage(meshIndexCount))
+			quadIndices.bind(meshIndexCount);
+		
+		this.format = meshFormat;
+		this.sequentialIndices = quadIndices;
+		this.indexCount = meshIndexCount;
+		this.mode = VertexFormat.Mode.QUADS;
+		this.instanceCount = 0;
+	}
+	
+	/**
+	 * Uploads per-instance Star data in the {@link StellarViewVertexFormat#STAR_INSTANCE} layout.
+	 * Every instance is drawn as a single quad whose corners are computed in the vertex shader.
+	 * @param instanceBuffer Buffer containing the instance data
+	 * @param instanceCount Number of instances in the buffer
+	 */
+	public void uploadInstances(ByteBuffer instanceBuffer, int instanceCount)
+	{
+		uploadInstances(instanceBuffer, instanceCount, StellarViewVertexFormat.STAR_INSTANCE.get(), 1);
+	}
+	
+	/**
+	 * Uploads per-instance Star data in the specified layout
+	 * @param instanceBuffer Buffer containing the instance data
+	 * @param instanceCount Number of instances in the buffer
+	 * @param instanceFormat Layout of the instance data
+	 * @param positionScale Light years per unit of the stored positions, only used by quantized layouts such as {@link StellarViewVertexFormat#STAR_INSTANCE_COMPACT}
+	 */
+	public void uploadInstances(ByteBuffer instanceBuffer, int instanceCount, VertexFormat instanceFormat, float positionScale)
+	{
+		if(this.isInvalid())
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		if(!instanceFormat.equals(this.format))
+		{
+			if(this.format != null)
+				this.format.clearBufferState();
+			
+			for(int i = 0; i < instanceFormat.getElements().size(); i++)
+			{
+				GlStateManager._enableVertexAttribArray(i);
+				GL33C.glVertexAttribDivisor(i, 1);
+			}
+			setupInstanceAttributes(instanceFormat, 0L);
+		}
+		RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, instanceBuffer, GL15C.GL_STATIC_DRAW);
+		
+		// A single quad, shared by all instances
+		RenderSystem.AutoStorageIndexBuffer quadIndices = RenderSystem.getSequentialBuffer(VertexFormat.Mode.QUADS);
+		quadIndices.bind(VertexFormat.Mode.QUADS.indexCount(4));
+		
+		this.format = instanceFormat;
+		this.sequentialIndices = quadIndices;
+		this.indexCount = VertexFormat.Mode.QUADS.indexCount(4);
+		this.mode = VertexFormat.Mode.TRIANGLES;
+		this.instanceCount = instanceCount;
+		this.positionScale = positionScale;
+		this.uploadedBytes = instanceBuffer.remaining();
+	}
+	
 	private VertexFormat uploadVertexBuffer(MeshData mesh, ByteBuffer vertexBuffer)
 	{
 		final var drawState = mesh.drawState();
@@ -122,7 +238,144 @@ public class StarBuffer implements AutoCloseable
 	
 	public void draw()
 	{
-		RenderSystem.drawElements(this.mode.asGLMode, this.indexCount, this.getIndexType().asGLType);
+		if(this.drawRanges != null)
+		{
+			drawRanges(this.drawRanges);
+			return;
+		}
+		
+		if(this.instanceCount > 0)
+			GL31C.glDrawElementsInstanced(this.mode.asGLMode, this.indexCount, this.getIndexType().asGLType, 0L, this.instanceCount);
+		else
+			RenderSystem.drawElements(this.mode.asGLMode, this.indexCount, this.getIndexType().asGLType);
+	}
+	
+	/**
+	 * Draws only the specified ranges of stars. Quad meshes are drawn with a single multi-draw call,
+	 * instanced buffers with one call per range, starting at the first instance of the range.
+	 */
+	private void drawRanges(StarCells.Ranges ranges)
+	{
+		if(ranges.size() == 0)
+			return;
+		
+		int indexType = this.getIndexType().asGLType;
+		
+		if(this.instanceCount > 0)
+		{
+			for(int i = 0; i < ranges.size(); i++)
+			{
+				int first = ranges.first(i);
+				int count = Math.min(ranges.count(i), this.instanceCount - first);
+				
+				if(count <= 0)
+					continue;
+				
+				if(supportsBaseInstance())
+					GL42C.glDrawElementsInstancedBaseInstance(this.mode.asGLMode, this.indexCount, indexType, 0L, count, first);
+				else
+				{
+					// Without base instances the attributes have to point at the first instance of the range instead
+					setupInstanceAttributes(this.format, (long) first * this.format.getVertexSize());
+					GL31C.glDrawElementsInstanced(this.mode.asGLMode, this.indexCount, indexType, 0L, count);
+				}
+			}
+			
+			if(!supportsBaseInstance())
+				setupInstanceAttributes(this.format, 0L);
+			
+			return;
+		}
+		
+		int quadIndices = VertexFormat.Mode.QUADS.indexCount(4);
+		
+		try(MemoryStack stack = MemoryStack.stackPush())
+		{
+			IntBuffer counts = stack.mallocInt(ranges.size());
+			IntBuffer baseVertices = stack.mallocInt(ranges.size());
+			PointerBuffer offsets = stack.callocPointer(ranges.size());
+			
+			for(int i = 0; i < ranges.size(); i++)
+			{
+				// Every quad uses the same indices, so each range is drawn from the start of the index buffer with its first vertex as the base
+				counts.put(i, Math.min(ranges.count(i) * quadIndices, this.indexCount));
+				baseVertices.put(i, ranges.first(i) * 4);
+			}
+			
+			GL32C.glMultiDrawElementsBaseVertex(this.mode.asGLMode, counts, indexType, offsets, baseVertices);
+		}
+	}
+	
+	/**
+	 * Points the instance attributes at the buffer. Offsets are counted from the position of each attribute,
+	 * since {@link VertexFormat#getOffset(VertexFormatElement)} only keeps one offset per element and some layouts use the same element more than once
+	 */
+	private void setupInstanceAttributes(VertexFormat instanceFormat, long offset)
+	{
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		
+		List<VertexFormatElement> elements = instanceFormat.getElements();
+		long elementOffset = offset;
+		for(int i = 0; i < elements.size(); i++)
+		{
+			VertexFormatElement element = elements.get(i);
+			element.setupBufferState(i, elementOffset, instanceFormat.getVertexSize());
+			elementOffset += element.byteSize();
+		}
+	}
+	
+	/**
+	 * Limits drawing to the specified ranges of stars, which allows culling parts of the buffer and drawing only the most visible stars of each part
+	 * @param ranges Ranges of stars to draw, or null to draw the whole buffer
+	 */
+	public void setDrawRanges(@Nullable StarCells.Ranges ranges)
+	{
+		this.drawRanges = ranges;
+	}
+	
+	public boolean isInstanced()
+	{
+		return this.instanceCount > 0;
+	}
+	
+	public boolean isCompact()
+	{
+		return this.isInstanced() && StellarViewVertexFormat.STAR_INSTANCE_COMPACT.get().equals(this.format);
+	}
+	
+	/**
+	 * @return Size of the vertex or instance data uploaded to the GPU, in bytes
+	 */
+	public long uploadedBytes()
+	{
+		return this.uploadedBytes;
+	}
+	
+	/**
+	 * @return True if the current OpenGL context can start instanced draws at an instance other than the first (core in OpenGL 4.2)
+	 */
+	public static boolean supportsBaseInstance()
+	{
+		if(baseInstanceSupported == null)
+		{
+			GLCapabilities capabilities = GL.getCapabilities();
+			baseInstanceSupported = capabilities.OpenGL42 || capabilities.GL_ARB_base_instance;
+		}
+		
+		return baseInstanceSupported;
+	}
+	
+	/**
+	 * @return True if the current OpenGL context supports instanced arrays (core in OpenGL 3.3)
+	 */
+	public static boolean supportsInstancing()
+	{
+		if(instancingSupported == null)
+		{
+			instancingSupported = GL.getCapabilities().OpenGL33;
+		}
+		
+		return instancingSupported;
 	}
 	
 	private VertexFormat.IndexType getIndexType()
@@ -133,18 +386,32 @@ public class StarBuffer implements AutoCloseable
 	
 	public void drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, SpaceCoords relativeSpacePos, StarShaderInstance shaderInstance)
 	{
-		Vector3f relativeVectorLy = new Vector3f((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
-		Vector3f relativeVectorKm = new Vector3f((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
-		
 		if(!RenderSystem.isOnRenderThread())
 		{
+			Vector3f relativeVectorLy = new Vector3f((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
+			Vector3f relativeVectorKm = new Vector3f((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
+			
 			RenderSystem.recordRenderCall(() ->
 			{
 				this._drawWithShader(new Matrix4f(modelViewMatrix), new Matrix4f(projectionMatrix), relativeVectorLy, relativeVectorKm, shaderInstance);
 			});
 		}
 		else
-			this._drawWithShader(modelViewMatrix, projectionMatrix, relativeVectorLy, relativeVectorKm, shaderInstance);
+		{
+			// The uniforms copy the values right away, so the same vectors can be used for every draw
+			relativeLy.set((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
+			relativeKm.set((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
+			this._drawWithShader(modelViewMatrix, projectionMatrix, relativeLy, relativeKm, shaderInstance);
+		}
+	}
+	
+	/**
+	 * Draws without a relative position, for buffers whose shader places everything on the sky sphere by itself
+	 */
+	public void drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, StarShaderInstance shaderInstance)
+	{
+		RenderSystem.assertOnRenderThread();
+		this._drawWithShader(modelViewMatrix, projectionMatrix, relativeLy.zero(), relativeKm.zero(), shaderInstance);
 	}
 	
 	private void _drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, Vector3f relativeSpaceLy, Vector3f relativeSpaceKm, StarShaderInstance shaderInstance)
@@ -152,7 +419,7 @@ public class StarBuffer implements AutoCloseable
 		for(int i = 0; i < 12; ++i)
 		{
 			int j = RenderSystem.getShaderTexture(i);
-			shaderInstance.setSampler("Sampler" + i, j);
+			shaderInstance.setSampler(SAMPLER_NAMES[i], j);
 		}
 		
 		if(shaderInstance.MODEL_VIEW_MATRIX != null)
@@ -206,6 +473,9 @@ public class StarBuffer implements AutoCloseable
 		if(shaderInstance.LENSING_INTENSITY != null)
 			shaderInstance.LENSING_INTENSITY.set(SpaceRenderer.lensingIntensity);
 		
+		if(shaderInstance.POSITION_SCALE != null)
+			shaderInstance.POSITION_SCALE.set(this.positionScale);
+		
 		RenderSystem.setupShaderLights(shaderInstance);
 		shaderInstance.apply();
 		this.draw();
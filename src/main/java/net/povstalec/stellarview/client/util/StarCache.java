@@ -0,0 +1,363 @@
+package net.povstalec.stellarview.client.util;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.minecraft.client.Minecraft;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.api.common.space_objects.StarLike;
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.common.util.StarInfo;
+import org.lwjgl.system.MemoryUtil;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache for generated Star data. Files are keyed by a hash of everything the generated stars depend on,
+ * and contain the Stars in the {@link net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat#STAR_INSTANCE} layout,
+ * which means a memory-mapped file can be uploaded to the GPU as it is.
+ * Mapped files can't be deleted on some systems (Windows) until the mapping is garbage collected, so they're left alone while that hasn't happened.
+ */
+public final class StarCache
+{
+	/**
+	 * Needs to be increased whenever the Star generation or the instance layout changes, files from older versions are then ignored and removed
+	 */
+	public static final int GENERATOR_VERSION = 2;
+	
+	private static final int MAGIC = 0x53565354; // SVST
+	private static final int HEADER_SIZE = 4 * Integer.BYTES;
+	private static final String EXTENSION = ".stars";
+	private static final String VERSION_SUFFIX = ".v" + GENERATOR_VERSION + EXTENSION;
+	
+	private static final AtomicInteger HITS = new AtomicInteger();
+	private static final AtomicInteger MISSES = new AtomicInteger();
+	private static final AtomicInteger WRITES = new AtomicInteger();
+	
+	private static final Object LOCK = new Object();
+	
+	// Number of live mappings of each cache file, guarded by LOCK
+	private static final Map<Path, Integer> MAPPINGS = new HashMap<Path, Integer>();
+	private static final Cleaner CLEANER = Cleaner.create();
+	
+	public static boolean isEnabled()
+	{
+		return GeneralConfig.star_cache.get();
+	}
+	
+	public static Path getCacheDirectory()
+	{
+		return Minecraft.getInstance().gameDirectory.toPath().resolve(StellarView.MODID).resolve("cache");
+	}
+	
+	public static int hits()
+	{
+		return HITS.get();
+	}
+	
+	public static int misses()
+	{
+		return MISSES.get();
+	}
+	
+	public static int writes()
+	{
+		return WRITES.get();
+	}
+	
+	//============================================================================================
+	//*********************************************Key********************************************
+	//============================================================================================
+	
+	/**
+	 * The instance data is the same for textured and untextured Stars, so the texture setting isn't part of the key
+	 * @return Stable key describing the Stars generated for the Star Field at the specified Level of Detail
+	 */
+	public static String key(StarField starField, StarField.LevelOfDetail levelOfDetail)
+	{
+		Hasher hasher = Hashing.sha256().newHasher();
+		
+		hasher.putInt(GENERATOR_VERSION);
+		hasher.putUnencodedChars(starField.getClass().getName());
+		hasher.putInt(levelOfDetail.ordinal());
+		
+		hasher.putLong(starField.getSeed());
+		hasher.putInt(starField.getDiameter());
+		hasher.putInt(starField.getStars());
+		hasher.putBoolean(starField.clumpStarsInCenter());
+		
+		hasher.putDouble(starField.xStretch());
+		hasher.putDouble(starField.yStretch());
+		hasher.putDouble(starField.zStretch());
+		
+		hasher.putDouble(starField.getAxisRotation().xAxis());
+		hasher.putDouble(starField.getAxisRotation().yAxis());
+		hasher.putDouble(starField.getAxisRotation().zAxis());
+		
+		StarInfo starInfo = starField.getStarInfo();
+		putStarTypes(hasher, starInfo.getLOD1Types());
+		putStarTypes(hasher, starInfo.getLOD2Types());
+		putStarTypes(hasher, starInfo.getLOD3Types());
+		hasher.putInt(starInfo.lod1Weight());
+		hasher.putInt(starInfo.lod2Weight());
+		hasher.putInt(starInfo.lod3Weight());
+		
+		hasher.putInt(starField.getSpiralArms().size());
+		for(StarField.SpiralArm arm : starField.getSpiralArms())
+		{
+			hasher.putInt(arm.armStars());
+			hasher.putDouble(arm.armRotation());
+			hasher.putDouble(arm.armLength());
+			hasher.putDouble(arm.armThickness());
+			hasher.putBoolean(arm.clumpStarsInCenter());
+		}
+		
+		return hasher.hash().toString();
+	}
+	
+	private static void putStarTypes(Hasher hasher, @Nullable List<StarLike.StarType> starTypes)
+	{
+		if(starTypes == null)
+		{
+			hasher.putInt(-1);
+			return;
+		}
+		
+		hasher.putInt(starTypes.size());
+		for(StarLike.StarType starType : starTypes)
+		{
+			hasher.putInt(starType.getRGB().red());
+			hasher.putInt(starType.getRGB().green());
+			hasher.putInt(starType.getRGB().blue());
+			hasher.putFloat(starType.getMinSize());
+			hasher.putFloat(starType.getMaxSize());
+			hasher.putShort(starType.getMinBrightness());
+			hasher.putShort(starType.getMaxBrightness());
+			hasher.putLong(starType.getMaxVisibleDistance());
+			hasher.putInt(starType.getWeight());
+		}
+	}
+	
+	//============================================================================================
+	//****************************************Reading and Writing*********************************
+	//============================================================================================
+	
+	/**
+	 * Reads the Stars stored under the specified key
+	 * @param key Key obtained from {@link #key(StarField, StarField.LevelOfDetail)}
+	 * @return The cached LOD or null if there is no (valid) cache file for the key
+	 */
+	@Nullable
+	public static StarData.LOD read(String key)
+	{
+		Path path = getCacheDirectory().resolve(key + VERSION_SUFFIX);
+		
+		if(!Files.isRegularFile(path))
+		{
+			MISSES.incrementAndGet();
+			return null;
+		}
+		
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if(size < HEADER_SIZE)
+				throw new IOException("File is too small");
+			
+			// The header is read without mapping the file, so that invalid files can still be deleted
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+			while(header.hasRemaining())
+			{
+				if(channel.read(header, header.position()) < 0)
+					throw new IOException("File is too small");
+			}
+			
+			int stars = header.getInt(Integer.BYTES * 2);
+			
+			if(header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != GENERATOR_VERSION || header.getInt(Integer.BYTES * 3) != StarData.LOD.INSTANCE_SIZE
+					|| stars < 0 || size != HEADER_SIZE + (long) stars * StarData.LOD.INSTANCE_SIZE)
+				throw new IOException("Invalid header");
+			
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+			
+			MappedByteBuffer instances = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) stars * StarData.LOD.INSTANCE_SIZE);
+			instances.order(ByteOrder.nativeOrder());
+			addMapping(path, instances);
+			
+			StarData.LOD lod = StarData.LOD.fromInstances(instances, stars);
+			HITS.incrementAndGet();
+			StellarView.LOGGER.debug("Loaded " + stars + " Stars from cache file " + path.getFileName());
+			
+			return lod;
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.warn("Removing invalid Star cache file " + path.getFileName() + ": " + e.getMessage());
+			delete(path);
+			MISSES.incrementAndGet();
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes the Stars to the cache under the specified key and makes sure the cache stays within its size limit
+	 * @param key Key obtained from {@link #key(StarField, StarField.LevelOfDetail)}
+	 * @param lod LOD to save
+	 */
+	public static void write(String key, StarData.LOD lod)
+	{
+		Path directory = getCacheDirectory();
+		Path path = directory.resolve(key + VERSION_SUFFIX);
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+		header.putInt(MAGIC).putInt(GENERATOR_VERSION).putInt(lod.stars()).putInt(StarData.LOD.INSTANCE_SIZE).flip();
+		
+		ByteBuffer instances = lod.getInstanceBuffer();
+		
+		synchronized(LOCK)
+		{
+			// Another LOD is using the file, which means it's already up to date
+			if(MAPPINGS.containsKey(path))
+			{
+				MemoryUtil.memFree(instances);
+				return;
+			}
+			
+			Path temporaryPath = null;
+			try
+			{
+				Files.createDirectories(directory);
+				temporaryPath = Files.createTempFile(directory, key, ".tmp");
+				
+				try(FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+				{
+					while(header.hasRemaining())
+						channel.write(header);
+					while(instances.hasRemaining())
+						channel.write(instances);
+				}
+				
+				Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				WRITES.incrementAndGet();
+				
+				trim(directory);
+			}
+			catch(IOException e)
+			{
+				StellarView.LOGGER.warn("Failed to write Star cache file " + path.getFileName() + ": " + e.getMessage());
+				if(temporaryPath != null)
+					delete(temporaryPath);
+			}
+			finally
+			{
+				MemoryUtil.memFree(instances);
+			}
+		}
+	}
+	
+	/**
+	 * Removes files from older generator versions and then the least recently used files until the cache fits into its size limit
+	 */
+	private static void trim(Path directory) throws IOException
+	{
+		long maxSize = GeneralConfig.star_cache_size.get() * 1024L * 1024L;
+		List<Path> files = new ArrayList<Path>();
+		
+		try(Stream<Path> stream = Files.list(directory))
+		{
+			stream.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).forEach(files::add);
+		}
+		
+		files.removeIf(path ->
+		{
+			if(path.getFileName().toString().endsWith(VERSION_SUFFIX))
+				return false;
+			
+			delete(path);
+			return true;
+		});
+		
+		files.sort(Comparator.comparingLong(StarCache::lastModified).reversed());
+		
+		long totalSize = 0;
+		for(Path path : files)
+		{
+			totalSize += Files.size(path);
+			
+			if(totalSize > maxSize)
+				delete(path);
+		}
+	}
+	
+	private static long lastModified(Path path)
+	{
+		try
+		{
+			return Files.getLastModifiedTime(path).toMillis();
+		}
+		catch(IOException e)
+		{
+			return 0;
+		}
+	}
+	
+	/**
+	 * Keeps the file from being deleted until the buffer mapping it has been garbage collected
+	 */
+	private static void addMapping(Path path, MappedByteBuffer buffer)
+	{
+		synchronized(LOCK)
+		{
+			MAPPINGS.merge(path, 1, Integer::sum);
+		}
+		
+		CLEANER.register(buffer, () -> removeMapping(path));
+	}
+	
+	private static void removeMapping(Path path)
+	{
+		synchronized(LOCK)
+		{
+			MAPPINGS.computeIfPresent(path, (mappedPath, mappings) -> mappings > 1 ? mappings - 1 : null);
+		}
+	}
+	
+	/**
+	 * Mapped files are skipped, they're removed by a later trim once they're no longer used
+	 */
+	private static void delete(Path path)
+	{
+		synchronized(LOCK)
+		{
+			if(MAPPINGS.containsKey(path))
+				return;
+		}
+		
+		try
+		{
+			Files.deleteIfExists(path);
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.warn("Failed to delete Star cache file " + path.getFileName());
+		}
+	}
+}
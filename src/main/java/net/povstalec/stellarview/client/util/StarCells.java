@@ -0,0 +1,405 @@
+package net.povstalec.stellarview.client.util;
+
+import org.joml.FrustumIntersection;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Splits the Stars of a LOD into cells of a fixed grid in light year space.
+ * Stars are reordered so that every cell is a contiguous range of the Star buffer, within a cell Stars are ordered by tier (Level of Detail)
+ * and then from the brightest to the dimmest. Drawing a prefix of a cell therefore always draws its most visible Stars.
+ * Only cells that contain Stars are kept.
+ * Nothing in here touches OpenGL, visible ranges can be computed without a render context.
+ */
+public class StarCells
+{
+	// Roughly how many Stars a cell should contain
+	private static final int TARGET_CELL_STARS = 512;
+	private static final int MAX_CELLS_PER_AXIS = 16;
+	
+	// Number of Levels of Detail a Star Field is split into
+	public static final int LOD_TIERS = 3;
+	
+	/**
+	 * Distance at which Stars are placed in front of the camera by the Star shaders
+	 */
+	public static final float SKY_DISTANCE = 100;
+	
+	/*
+	 * The Star shaders dim Stars by 1 alpha per 100 000 ly, down to 10% of their brightness,
+	 * so cells further away only need their brightest Stars. Cells closer than FULL_DETAIL_DISTANCE get all tiers,
+	 * after that the number of tiers drops linearly until only the first tier is left at MIN_DETAIL_DISTANCE.
+	 */
+	public static final double FULL_DETAIL_DISTANCE = 20000;
+	public static final double MIN_DETAIL_DISTANCE = 80000;
+	
+	private final int cells;
+	private final int tiers;
+	
+	private final float[] minX;
+	private final float[] minY;
+	private final float[] minZ;
+	private final float[] maxX;
+	private final float[] maxY;
+	private final float[] maxZ;
+	
+	// Index of the first Star in each cell, with one extra entry for the end of the last cell
+	private final int[] cellStarts;
+	// Index after the last Star of each tier, cells * tiers entries
+	private final int[] tierEnds;
+	
+	// Margin added to culled cells, so that the quads of Stars near the edge of the screen don't disappear before they're fully off-screen
+	private final float starMargin;
+	
+	private StarCells(int cells, int tiers, float starMargin)
+	{
+		this.cells = cells;
+		this.tiers = tiers;
+		
+		this.minX = new float[cells];
+		this.minY = new float[cells];
+		this.minZ = new float[cells];
+		this.maxX = new float[cells];
+		this.maxY = new float[cells];
+		this.maxZ = new float[cells];
+		
+		this.cellStarts = new int[cells + 1];
+		this.tierEnds = new int[cells * tiers];
+		
+		this.starMargin = starMargin;
+	}
+	
+	public int cells()
+	{
+		return cells;
+	}
+	
+	public int tiers()
+	{
+		return tiers;
+	}
+	
+	public int cellStart(int cell)
+	{
+		return cellStarts[cell];
+	}
+	
+	public int cellEnd(int cell)
+	{
+		return cellStarts[cell + 1];
+	}
+	
+	/**
+	 * @return Distance (in light years) from the point to the closest point of the cell's bounds, 0 if the point is inside the cell
+	 */
+	public double distanceToCell(int cell, double x, double y, double z)
+	{
+		double dx = Math.max(Math.max(minX[cell] - x, x - maxX[cell]), 0);
+		double dy = Math.max(Math.max(minY[cell] - y, y - maxY[cell]), 0);
+		double dz = Math.max(Math.max(minZ[cell] - z, z - maxZ[cell]), 0);
+		
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+	
+	//============================================================================================
+	//****************************************Partitioning****************************************
+	//============================================================================================
+	
+	/**
+	 * Computes the order in which the Stars should be stored and the cells they belong to
+	 * @param x X coordinates of the Stars
+	 * @param y Y coordinates of the Stars
+	 * @param z Z coordinates of the Stars
+	 * @param sizes Sizes of the Stars
+	 * @param stars Number of Stars
+	 * @param tierEnds Index after the last Star of each tier, Stars that already belong to the same tier keep their relative order
+	 * @param order Array with at least stars entries, receives the index of the Star that should be stored at each position
+	 * @return Cells of the reordered Stars
+	 */
+	public static StarCells partition(float[] x, float[] y, float[] z, float[] sizes, int stars, int[] tierEnds, int[] order)
+	{
+		int tiers = tierEnds.length;
+		
+		float boundsMinX = Float.POSITIVE_INFINITY, boundsMinY = Float.POSITIVE_INFINITY, boundsMinZ = Float.POSITIVE_INFINITY;
+		float boundsMaxX = Float.NEGATIVE_INFINITY, boundsMaxY = Float.NEGATIVE_INFINITY, boundsMaxZ = Float.NEGATIVE_INFINITY;
+		float maxSize = 0;
+		
+		for(int i = 0; i < stars; i++)
+		{
+			boundsMinX = Math.min(boundsMinX, x[i]);
+			boundsMinY = Math.min(boundsMinY, y[i]);
+			boundsMinZ = Math.min(boundsMinZ, z[i]);
+			boundsMaxX = Math.max(boundsMaxX, x[i]);
+			boundsMaxY = Math.max(boundsMaxY, y[i]);
+			boundsMaxZ = Math.max(boundsMaxZ, z[i]);
+			maxSize = Math.max(maxSize, sizes[i]);
+		}
+		
+		int cellsPerAxis = Math.max(1, Math.min(MAX_CELLS_PER_AXIS, (int) Math.round(Math.cbrt((double) stars / TARGET_CELL_STARS))));
+		int gridCells = cellsPerAxis * cellsPerAxis * cellsPerAxis;
+		
+		float scaleX = cellsPerAxis / Math.max(boundsMaxX - boundsMinX, Float.MIN_NORMAL);
+		float scaleY = cellsPerAxis / Math.max(boundsMaxY - boundsMinY, Float.MIN_NORMAL);
+		float scaleZ = cellsPerAxis / Math.max(boundsMaxZ - boundsMinZ, Float.MIN_NORMAL);
+		
+		// Counting sort by cell and then by tier, which keeps the existing (brightness) order within each tier
+		int[] keys = new int[stars];
+		int[] offsets = new int[gridCells * tiers + 1];
+		
+		int tier = 0;
+		for(int i = 0; i < stars; i++)
+		{
+			while(tier < tiers - 1 && i >= tierEnds[tier])
+				tier++;
+			
+			int cellX = Math.min((int) ((x[i] - boundsMinX) * scaleX), cellsPerAxis - 1);
+			int cellY = Math.min((int) ((y[i] - boundsMinY) * scaleY), cellsPerAxis - 1);
+			int cellZ = Math.min((int) ((z[i] - boundsMinZ) * scaleZ), cellsPerAxis - 1);
+			
+			int key = ((cellX * cellsPerAxis + cellY) * cellsPerAxis + cellZ) * tiers + tier;
+			keys[i] = key;
+			offsets[key + 1]++;
+		}
+		
+		int usedCells = 0;
+		for(int cell = 0; cell < gridCells; cell++)
+		{
+			int cellStars = 0;
+			for(int i = 0; i < tiers; i++)
+			{
+				cellStars += offsets[cell * tiers + i + 1];
+			}
+			
+			if(cellStars > 0)
+				usedCells++;
+		}
+		
+		for(int i = 1; i < offsets.length; i++)
+		{
+			offsets[i] += offsets[i - 1];
+		}
+		
+		// Star sizes are already in sky units, the margin covers the largest quad
+		StarCells starCells = new StarCells(usedCells, tiers, maxSize * 2);
+		
+		int cellIndex = 0;
+		for(int cell = 0; cell < gridCells; cell++)
+		{
+			int start = offsets[cell * tiers];
+			int end = offsets[(cell + 1) * tiers];
+			
+			if(start == end)
+				continue;
+			
+			starCells.cellStarts[cellIndex] = start;
+			for(int i = 0; i < tiers; i++)
+			{
+				starCells.tierEnds[cellIndex * tiers + i] = offsets[cell * tiers + i + 1];
+			}
+			
+			cellIndex++;
+		}
+		starCells.cellStarts[usedCells] = stars;
+		
+		Arrays.fill(starCells.minX, Float.POSITIVE_INFINITY);
+		Arrays.fill(starCells.minY, Float.POSITIVE_INFINITY);
+		Arrays.fill(starCells.minZ, Float.POSITIVE_INFINITY);
+		Arrays.fill(starCells.maxX, Float.NEGATIVE_INFINITY);
+		Arrays.fill(starCells.maxY, Float.NEGATIVE_INFINITY);
+		Arrays.fill(starCells.maxZ, Float.NEGATIVE_INFINITY);
+		
+		for(int i = 0; i < stars; i++)
+		{
+			int position = offsets[keys[i]]++;
+			order[position] = i;
+		}
+		
+		// Tight bounds of the Stars in each cell
+		cellIndex = 0;
+		for(int i = 0; i < stars; i++)
+		{
+			while(i >= starCells.cellStarts[cellIndex + 1])
+				cellIndex++;
+			
+			int star = order[i];
+			starCells.minX[cellIndex] = Math.min(starCells.minX[cellIndex], x[star]);
+			starCells.minY[cellIndex] = Math.min(starCells.minY[cellIndex], y[star]);
+			starCells.minZ[cellIndex] = Math.min(starCells.minZ[cellIndex], z[star]);
+			starCells.maxX[cellIndex] = Math.max(starCells.maxX[cellIndex], x[star]);
+			starCells.maxY[cellIndex] = Math.max(starCells.maxY[cellIndex], y[star]);
+			starCells.maxZ[cellIndex] = Math.max(starCells.maxZ[cellIndex], z[star]);
+		}
+		
+		return starCells;
+	}
+	
+	//============================================================================================
+	//******************************************Culling*******************************************
+	//============================================================================================
+	
+	/**
+	 * Checks if any Star of the cell can appear inside the frustum.
+	 * Stars are drawn in their direction from the viewer at a fixed distance, so the cell's bounding sphere is projected onto that distance first.
+	 * @param frustum Frustum of the matrix the Star shader projects Stars with (projection * model view)
+	 * @param viewX X coordinate of the viewer relative to the Star Field
+	 * @param viewY Y coordinate of the viewer relative to the Star Field
+	 * @param viewZ Z coordinate of the viewer relative to the Star Field
+	 */
+	public boolean isCellVisible(int cell, FrustumIntersection frustum, double viewX, double viewY, double viewZ)
+	{
+		double centerX = (minX[cell] + maxX[cell]) * 0.5 - viewX;
+		double centerY = (minY[cell] + maxY[cell]) * 0.5 - viewY;
+		double centerZ = (minZ[cell] + maxZ[cell]) * 0.5 - viewZ;
+		
+		double halfX = (maxX[cell] - minX[cell]) * 0.5;
+		double halfY = (maxY[cell] - minY[cell]) * 0.5;
+		double halfZ = (maxZ[cell] - minZ[cell]) * 0.5;
+		
+		double radiusSquared = halfX * halfX + halfY * halfY + halfZ * halfZ;
+		double distanceSquared = centerX * centerX + centerY * centerY + centerZ * centerZ;
+		
+		// The viewer is inside the cell (or close enough that it can cover most of the sky)
+		if(distanceSquared <= radiusSquared * 1.01)
+			return true;
+		
+		double distance = Math.sqrt(distanceSquared);
+		double scale = SKY_DISTANCE / distance;
+		// Radius of the cone containing the cell, at the sky distance
+		double projectedRadius = SKY_DISTANCE * Math.sqrt(radiusSquared / (distanceSquared - radiusSquared));
+		
+		return frustum.testSphere((float) (centerX * scale), (float) (centerY * scale), (float) (centerZ * scale), (float) projectedRadius + starMargin);
+	}
+	
+	/**
+	 * Number of Stars that should be drawn from the cell
+	 * @param cell Cell index
+	 * @param visibleTiers How many tiers should be drawn, the fractional part specifies how much of the last tier is drawn
+	 * @param density Fraction of the Stars that should be drawn, between 0 and 1
+	 */
+	public int visibleStars(int cell, double visibleTiers, double density)
+	{
+		int fullTiers = Math.min((int) visibleTiers, tiers);
+		int start = cellStarts[cell];
+		int end = fullTiers > 0 ? tierEnds[cell * tiers + fullTiers - 1] : start;
+		
+		if(fullTiers < tiers)
+		{
+			int tierStart = end;
+			int tierEnd = tierEnds[cell * tiers + fullTiers];
+			end += (int) Math.ceil((visibleTiers - fullTiers) * (tierEnd - tierStart));
+		}
+		
+		return (int) Math.ceil((end - start) * density);
+	}
+	
+	/**
+	 * @param cellDistance Distance (in light years) between the viewer and the cell
+	 * @param tierCount Total number of tiers (Levels of Detail) the Stars are split into
+	 * @return How many tiers should be drawn for a cell at the specified distance
+	 */
+	public static double cellTiers(double cellDistance, int tierCount)
+	{
+		if(cellDistance <= FULL_DETAIL_DISTANCE)
+			return tierCount;
+		if(cellDistance >= MIN_DETAIL_DISTANCE)
+			return 1;
+		
+		return tierCount - (tierCount - 1) * (cellDistance - FULL_DETAIL_DISTANCE) / (MIN_DETAIL_DISTANCE - FULL_DETAIL_DISTANCE);
+	}
+	
+	/**
+	 * Collects the ranges of the Star buffer that should be drawn. Ranges of neighboring cells are merged.
+	 * The number of Stars drawn from each cell depends on the cell's distance from the viewer, see {@link #cellTiers(double, int)}.
+	 * @param frustum Frustum used for culling cells, null disables culling
+	 * @param viewX X coordinate of the viewer relative to the Star Field
+	 * @param viewY Y coordinate of the viewer relative to the Star Field
+	 * @param viewZ Z coordinate of the viewer relative to the Star Field
+	 * @param maxTiers Upper limit for the number of drawn tiers, counted from the first tier of the whole Star Field
+	 * @param firstTier Tier of the whole Star Field the first tier of these cells corresponds to, for Stars that only contain one Level of Detail
+	 * @param density Fraction of the Stars that should be drawn
+	 * @param ranges Ranges the result is written into, any previous content is cleared
+	 */
+	public void visibleRanges(@Nullable FrustumIntersection frustum, double viewX, double viewY, double viewZ, double maxTiers, int firstTier, double density, Ranges ranges)
+	{
+		ranges.clear();
+		
+		for(int cell = 0; cell < cells; cell++)
+		{
+			if(frustum != null && !isCellVisible(cell, frustum, viewX, viewY, viewZ))
+				continue;
+			
+			double visibleTiers = Math.min(maxTiers, cellTiers(distanceToCell(cell, viewX, viewY, viewZ), LOD_TIERS)) - firstTier;
+			
+			if(visibleTiers > 0)
+				ranges.add(cellStarts[cell], visibleStars(cell, visibleTiers, density));
+		}
+	}
+	
+	/**
+	 * List of (first, count) ranges of Stars, reused between frames to avoid allocations
+	 */
+	public static class Ranges
+	{
+		private int[] firsts = new int[16];
+		private int[] counts = new int[16];
+		private int size = 0;
+		private int stars = 0;
+		
+		public void clear()
+		{
+			size = 0;
+			stars = 0;
+		}
+		
+		/**
+		 * Adds a range, merging it with the previous one if they touch
+		 */
+		public void add(int first, int count)
+		{
+			if(count <= 0)
+				return;
+			
+			stars += count;
+			
+			if(size > 0 && firsts[size - 1] + counts[size - 1] == first)
+			{
+				counts[size - 1] += count;
+				return;
+			}
+			
+			if(size == firsts.length)
+			{
+				firsts = Arrays.copyOf(firsts, size * 2);
+				counts = Arrays.copyOf(counts, size * 2);
+			}
+			
+			firsts[size] = first;
+			counts[size] = count;
+			size++;
+		}
+		
+		public int size()
+		{
+			return size;
+		}
+		
+		public int first(int range)
+		{
+			return firsts[range];
+		}
+		
+		public int count(int range)
+		{
+			return counts[range];
+		}
+		
+		/**
+		 * @return Total number of Stars in all ranges
+		 */
+		public int stars()
+		{
+			return stars;
+		}
+	}
+}
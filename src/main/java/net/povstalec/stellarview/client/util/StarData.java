@@ -1,22 +1,29 @@
 package net.povstalec.stellarview.client.util;
 
-import com.mojang.blaze3d.vertex.BufferBuilder;
-import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
 
-import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.util.Mth;
+import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.api.common.space_objects.StarLike;
 import net.povstalec.stellarview.client.render.SpaceRenderer;
+import net.povstalec.stellarview.client.render.UploadScheduler;
+import net.povstalec.stellarview.client.render.shader.StarShaderInstance;
 import net.povstalec.stellarview.client.render.shader.StellarViewShaders;
 import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.common.config.GeneralConfig;
 import net.povstalec.stellarview.common.util.Color;
 import net.povstalec.stellarview.common.util.SpaceCoords;
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
 import org.lwjgl.system.MemoryUtil;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class StarData
 {
@@ -24,6 +31,14 @@ public abstract class StarData
 	private LOD lod2;
 	private LOD lod3;
 	
+	private final EnumMap<StarField.LevelOfDetail, CompletableFuture<LOD>> pendingLODs = new EnumMap<StarField.LevelOfDetail, CompletableFuture<LOD>>(StarField.LevelOfDetail.class);
+	
+	// All Stars in a single LOD, used for continuous Level of Detail
+	@Nullable
+	private LOD allStars;
+	@Nullable
+	private CompletableFuture<LOD> pendingAllStars;
+	
 	public StarData() {}
 	
 	private LOD getLOD(StarField.LevelOfDetail lod)
@@ -36,6 +51,56 @@ public abstract class StarData
 		};
 	}
 	
+	private void setLOD(StarField.LevelOfDetail levelOfDetail, LOD lod)
+	{
+		switch(levelOfDetail)
+		{
+			case LOD1 -> lod1 = lod;
+			case LOD2 -> lod2 = lod;
+			case LOD3 -> lod3 = lod;
+		}
+	}
+	
+	/**
+	 * Returns the LOD if it has already been generated, otherwise schedules its generation on the worker pool
+	 * @param levelOfDetail Level of Detail that should be returned
+	 * @return The LOD or null if it isn't ready yet
+	 */
+	@Nullable
+	private LOD requestLOD(StarField.LevelOfDetail levelOfDetail)
+	{
+		LOD lod = getLOD(levelOfDetail);
+		
+		if(lod != null)
+			return lod;
+		
+		CompletableFuture<LOD> future = pendingLODs.get(levelOfDetail);
+		
+		if(future == null)
+		{
+			pendingLODs.put(levelOfDetail, newStarsAsync(levelOfDetail).thenApply(LOD::partitioned));
+			return null;
+		}
+		
+		if(!future.isDone())
+			return null;
+		
+		pendingLODs.remove(levelOfDetail);
+		
+		try
+		{
+			lod = future.join();
+		}
+		catch(Exception e)
+		{
+			StellarView.LOGGER.error("Failed to generate stars for " + levelOfDetail, e);
+			lod = new LOD(0);
+		}
+		
+		setLOD(levelOfDetail, lod);
+		return lod;
+	}
+	
 	public void reset()
 	{
 		if(lod1 != null)
@@ -44,70 +109,400 @@ public abstract class StarData
 			lod2.reset();
 		if(lod3 != null)
 			lod3.reset();
+		if(allStars != null)
+			allStars.reset();
+	}
+	
+	/**
+	 * @return Number of bytes the Stars currently use on the GPU, across all LODs
+	 */
+	public long uploadedBytes()
+	{
+		return uploadedBytes(lod1) + uploadedBytes(lod2) + uploadedBytes(lod3) + uploadedBytes(allStars);
+	}
+	
+	/**
+	 * @return Number of bytes saved on the GPU by the compact Star layout, across all LODs
+	 */
+	public long compactSavedBytes()
+	{
+		return compactSavedBytes(lod1) + compactSavedBytes(lod2) + compactSavedBytes(lod3) + compactSavedBytes(allStars);
+	}
+	
+	private static long uploadedBytes(@Nullable LOD lod)
+	{
+		return lod == null ? 0 : lod.uploadedBytes();
+	}
+	
+	private static long compactSavedBytes(@Nullable LOD lod)
+	{
+		return lod == null ? 0 : lod.compactSavedBytes();
+	}
+	
+	/**
+	 * Returns the LOD containing all Stars if it has already been generated, otherwise schedules its generation on the worker pool
+	 * @return The LOD or null if it isn't ready yet
+	 */
+	@Nullable
+	private LOD requestAllStars()
+	{
+		if(allStars != null)
+			return allStars;
+		
+		if(pendingAllStars == null)
+		{
+			CompletableFuture<LOD> lod1Future = newStarsAsync(StarField.LevelOfDetail.LOD1);
+			CompletableFuture<LOD> lod2Future = newStarsAsync(StarField.LevelOfDetail.LOD2);
+			CompletableFuture<LOD> lod3Future = newStarsAsync(StarField.LevelOfDetail.LOD3);
+			
+			pendingAllStars = CompletableFuture.allOf(lod1Future, lod2Future, lod3Future)
+					.thenApply(ignored -> LOD.sortedByVisibility(List.of(lod1Future.join(), lod2Future.join(), lod3Future.join())));
+			return null;
+		}
+		
+		if(!pendingAllStars.isDone())
+			return null;
+		
+		try
+		{
+			allStars = pendingAllStars.join();
+		}
+		catch(Exception e)
+		{
+			StellarView.LOGGER.error("Failed to generate stars", e);
+			allStars = new LOD(0);
+		}
+		
+		pendingAllStars = null;
+		return allStars;
 	}
 	
 	public void renderStars(StarField.LevelOfDetail levelOfDetail, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean hasTexture)
 	{
+		double distance = Math.sqrt(difference.lyDistanceSquared());
+		
+		// LODs that are still being generated are skipped, so the field is drawn with whatever lower LODs are already available
 		switch(levelOfDetail)
 		{
 		case LOD3:
-			if(lod3 == null)
-				lod3 = newStars(StarField.LevelOfDetail.LOD3);
-			lod3.renderStarBuffer(pose, projectionMatrix, difference, hasTexture);
+			renderLOD(requestLOD(StarField.LevelOfDetail.LOD3), StarField.LevelOfDetail.LOD3, distance, pose, projectionMatrix, difference, hasTexture);
 		case LOD2:
-			if(lod2 == null)
-				lod2 = newStars(StarField.LevelOfDetail.LOD2);
-			lod2.renderStarBuffer(pose, projectionMatrix, difference, hasTexture);
+			renderLOD(requestLOD(StarField.LevelOfDetail.LOD2), StarField.LevelOfDetail.LOD2, distance, pose, projectionMatrix, difference, hasTexture);
 		case LOD1:
-			if(lod1 == null)
-				lod1 = newStars(StarField.LevelOfDetail.LOD1);
-			lod1.renderStarBuffer(pose, projectionMatrix, difference, hasTexture);
+			renderLOD(requestLOD(StarField.LevelOfDetail.LOD1), StarField.LevelOfDetail.LOD1, distance, pose, projectionMatrix, difference, hasTexture);
 		}
 	}
 	
-	protected abstract LOD newStars(StarField.LevelOfDetail lod);
-	
-	public static void addStarHeightWidthSize(BufferBuilder builder, float height, float width, float size)
+	/**
+	 * Renders all Stars from a single buffer sorted by visibility, the number of drawn Stars changes smoothly with distance
+	 */
+	public void renderStarsContinuous(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean hasTexture)
 	{
-		long i = builder.beginElement(StellarViewVertexFormat.ELEMENT_HEIGHT_WIDTH_SIZE.get());
+		LOD lod = requestAllStars();
 		
-		if (i != -1L)
-		{
-			MemoryUtil.memPutFloat(i, height);
-			MemoryUtil.memPutFloat(i + Float.BYTES, width);
-			MemoryUtil.memPutFloat(i + Float.BYTES * 2, size);
-		}
+		if(lod == null)
+			return;
+		
+		double distance = Math.sqrt(difference.lyDistanceSquared());
+		
+		lod.renderStarBuffer(StarField.LevelOfDetail.LOD1, distance, LOD.visibleTiers(distance), 0, GeneralConfig.star_density.get() / 100D, pose, projectionMatrix, difference, hasTexture);
+	}
+	
+	private static void renderLOD(@Nullable LOD lod, StarField.LevelOfDetail levelOfDetail, double distance, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean hasTexture)
+	{
+		if(lod != null)
+			lod.renderStarBuffer(levelOfDetail, distance, StarCells.LOD_TIERS, levelOfDetail.ordinal(), 1, pose, projectionMatrix, difference, hasTexture);
 	}
 	
+	protected abstract LOD newStars(StarField.LevelOfDetail lod);
+	
+	/**
+	 * Generates the LOD on the generation worker pool. Implementations may split the work further,
+	 * as long as the returned LOD is only completed once all of its stars have been created.
+	 * @param lod Level of Detail to generate
+	 * @return Future that completes with the generated LOD
+	 */
+	protected CompletableFuture<LOD> newStarsAsync(StarField.LevelOfDetail lod)
+	{
+		return GenerationExecutor.supply(() -> newStars(lod));
+	}
 	
+	// Only used on the render thread
+	private static final Matrix4f VIEW_PROJECTION = new Matrix4f();
+	private static final FrustumIntersection FRUSTUM = new FrustumIntersection();
 	
 	public static class LOD
 	{
+		/**
+		 * Size of a single Star in the {@link StellarViewVertexFormat#STAR_INSTANCE} layout (position, color, sin, cos, size)
+		 */
+		public static final int INSTANCE_SIZE = 3 * Float.BYTES + 4 + 3 * Float.BYTES;
+		/**
+		 * Size of a single Star in the {@link StellarViewVertexFormat#STAR_INSTANCE_COMPACT} layout (4 shorts, color, 2 shorts)
+		 */
+		public static final int COMPACT_INSTANCE_SIZE = 4 * Short.BYTES + 4 + 2 * Short.BYTES;
+		
+		// Fixed-point scale of compact Star sizes (12 fractional bits)
+		private static final float COMPACT_SIZE_SCALE = 4096;
+		
 		@Nullable
 		private StarBuffer starBuffer;
 		
-		private double[][] starCoords;
-		private double[] starSizes;
+		// Star information is kept in flat primitive arrays, one entry (or pair of entries) per star
+		private float[] starX;
+		private float[] starY;
+		private float[] starZ;
+		private float[] starSizes;
 		
-		private short[][] starRGBA;
+		private int[] starRGBA;
 		
-		private double[][] randoms;
+		private float[] sinCosRandoms;
 		
 		private int stars;
 		
+		// Instance data that can be uploaded directly, such as a memory-mapped cache file
+		@Nullable
+		private ByteBuffer instanceData;
+		
+		// Index after the last Star of each Level of Detail, only present in LODs sorted by visibility
+		@Nullable
+		private int[] lodEnds;
+		
+		@Nullable
+		private StarCells cells;
+		private final StarCells.Ranges drawRanges = new StarCells.Ranges();
+		
 		public LOD(int stars)
 		{
-			this.starCoords = new double[stars][3];
-			this.starSizes = new double[stars];
-			this.randoms = new double[stars][2];
+			this.starX = new float[stars];
+			this.starY = new float[stars];
+			this.starZ = new float[stars];
+			this.starSizes = new float[stars];
 			
-			this.starRGBA = new short[stars][4];
+			this.starRGBA = new int[stars];
+			
+			this.sinCosRandoms = new float[stars * 2];
 			
 			this.stars = 0;
 		}
 		
+		/**
+		 * Creates a LOD containing all stars of the provided LODs, in the order they were provided
+		 * @param parts LODs to combine
+		 */
+		public LOD(List<LOD> parts)
+		{
+			this(parts.stream().mapToInt(part -> part.stars).sum());
+			
+			for(LOD part : parts)
+			{
+				System.arraycopy(part.starX, 0, starX, stars, part.stars);
+				System.arraycopy(part.starY, 0, starY, stars, part.stars);
+				System.arraycopy(part.starZ, 0, starZ, stars, part.stars);
+				System.arraycopy(part.starSizes, 0, starSizes, stars, part.stars);
+				System.arraycopy(part.starRGBA, 0, starRGBA, stars, part.stars);
+				System.arraycopy(part.sinCosRandoms, 0, sinCosRandoms, stars * 2, part.stars * 2);
+				
+				stars += part.stars;
+			}
+		}
+		
+		/**
+		 * Creates a LOD from data in the {@link StellarViewVertexFormat#STAR_INSTANCE} layout.
+		 * The buffer is kept until the first upload, so that it doesn't need to be written again.
+		 * @param instances Buffer containing the instance data
+		 * @param stars Number of Stars in the buffer
+		 */
+		public static LOD fromInstances(ByteBuffer instances, int stars)
+		{
+			LOD lod = new LOD(stars);
+			
+			for(int i = 0; i < stars; i++)
+			{
+				int offset = i * INSTANCE_SIZE;
+				
+				lod.starX[i] = instances.getFloat(offset);
+				lod.starY[i] = instances.getFloat(offset + 4);
+				lod.starZ[i] = instances.getFloat(offset + 8);
+				lod.starRGBA[i] = instances.getInt(offset + 12);
+				lod.sinCosRandoms[i * 2] = instances.getFloat(offset + 16);
+				lod.sinCosRandoms[i * 2 + 1] = instances.getFloat(offset + 20);
+				lod.starSizes[i] = instances.getFloat(offset + 24);
+			}
+			
+			lod.stars = stars;
+			lod.instanceData = instances;
+			
+			return lod;
+		}
+		
+		/**
+		 * Combines the LODs into one, with LOD1 Stars first, followed by LOD2 and LOD3 Stars.
+		 * Stars within each Level of Detail are sorted from the brightest to the dimmest,
+		 * so drawing the first N Stars always draws the N most visible ones.
+		 * @param lods LODs ordered from LOD1 to LOD3
+		 * @return Combined LOD
+		 */
+		public static LOD sortedByVisibility(List<LOD> lods)
+		{
+			int[] lodEnds = new int[lods.size()];
+			int end = 0;
+			
+			for(int i = 0; i < lods.size(); i++)
+			{
+				lods.get(i).sortByBrightness();
+				end += lods.get(i).stars;
+				lodEnds[i] = end;
+			}
+			
+			LOD lod = new LOD(lods);
+			lod.lodEnds = lodEnds;
+			lod.partition();
+			
+			return lod;
+		}
+		
+		/**
+		 * Sorts the Stars from the brightest to the dimmest, brightness is a single byte so this is a counting sort
+		 */
+		public void sortByBrightness()
+		{
+			int[] offsets = new int[257];
+			for(int i = 0; i < stars; i++)
+			{
+				offsets[256 - (starRGBA[i] >>> 24)]++;
+			}
+			for(int i = 1; i < offsets.length; i++)
+			{
+				offsets[i] += offsets[i - 1];
+			}
+			
+			int[] order = new int[stars];
+			for(int i = 0; i < stars; i++)
+			{
+				order[offsets[255 - (starRGBA[i] >>> 24)]++] = i;
+			}
+			
+			// Any previous partitioning no longer matches the order
+			cells = null;
+			reorder(order);
+		}
+		
+		/**
+		 * Splits the Stars into spatial cells, each of which is stored as a contiguous range
+		 */
+		public void partition()
+		{
+			int[] order = new int[stars];
+			cells = StarCells.partition(starX, starY, starZ, starSizes, stars, lodEnds != null ? lodEnds : new int[] {stars}, order);
+			
+			reorder(order);
+		}
+		
+		private LOD partitioned()
+		{
+			if(cells == null)
+				partition();
+			
+			return this;
+		}
+		
+		@Nullable
+		public StarCells cells()
+		{
+			return cells;
+		}
+		
+		/**
+		 * Rearranges the Stars so that the Star at index order[i] ends up at index i
+		 */
+		protected void reorder(int[] order)
+		{
+			if(isIdentity(order))
+				return;
+			
+			float[] newX = new float[starX.length];
+			float[] newY = new float[starY.length];
+			float[] newZ = new float[starZ.length];
+			float[] newSizes = new float[starSizes.length];
+			int[] newRGBA = new int[starRGBA.length];
+			float[] newSinCosRandoms = new float[sinCosRandoms.length];
+			
+			for(int i = 0; i < stars; i++)
+			{
+				int j = order[i];
+				
+				newX[i] = starX[j];
+				newY[i] = starY[j];
+				newZ[i] = starZ[j];
+				newSizes[i] = starSizes[j];
+				newRGBA[i] = starRGBA[j];
+				newSinCosRandoms[i * 2] = sinCosRandoms[j * 2];
+				newSinCosRandoms[i * 2 + 1] = sinCosRandoms[j * 2 + 1];
+			}
+			
+			starX = newX;
+			starY = newY;
+			starZ = newZ;
+			starSizes = newSizes;
+			starRGBA = newRGBA;
+			sinCosRandoms = newSinCosRandoms;
+			
+			// The order no longer matches
+			instanceData = null;
+		}
+		
+		private boolean isIdentity(int[] order)
+		{
+			for(int i = 0; i < stars; i++)
+			{
+				if(order[i] != i)
+					return false;
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * How many Levels of Detail should be drawn at the specified distance. Instead of jumping between the Levels of Detail,
+		 * the value ramps linearly between them, reaching each whole Level of Detail halfway between their distance thresholds.
+		 * @param distance Distance (in light years) between the viewer and the Stars
+		 * @return Number of Levels of Detail to draw, the fractional part is the drawn portion of the last one
+		 */
+		public static double visibleTiers(double distance)
+		{
+			double lod2Distance = StarField.LevelOfDetail.LOD2.getMinDistance();
+			double lod1Distance = StarField.LevelOfDetail.LOD1.getMinDistance();
+			double ramp = (lod1Distance - lod2Distance) / 2;
+			
+			double allStarsDistance = lod2Distance - ramp;
+			double lod2StarsDistance = lod2Distance + ramp;
+			double lod1StarsDistance = lod1Distance + ramp;
+			
+			if(distance <= allStarsDistance)
+				return 3;
+			if(distance <= lod2StarsDistance)
+				return Mth.lerp((distance - allStarsDistance) / (lod2StarsDistance - allStarsDistance), 3D, 2D);
+			if(distance <= lod1StarsDistance)
+				return Mth.lerp((distance - lod2StarsDistance) / (lod1StarsDistance - lod2StarsDistance), 2D, 1D);
+			
+			return 1;
+		}
+		
+		public static int packRGBA(int red, int green, int blue, int alpha)
+		{
+			return (red & 0xFF) | (green & 0xFF) << 8 | (blue & 0xFF) << 16 | (alpha & 0xFF) << 24;
+		}
+		
+		public int stars()
+		{
+			return stars;
+		}
+		
 		public void reset()
 		{
+			UploadScheduler.cancel(this);
+			
 			if(starBuffer == null)
 				return;
 			
@@ -127,140 +522,247 @@ public abstract class StarData
 		{
 			// Set up position
 			
-			starCoords[stars][0] = x;
-			starCoords[stars][1] = y;
-			starCoords[stars][2] = z;
+			starX[stars] = (float) x;
+			starY[stars] = (float) y;
+			starZ[stars] = (float) z;
 			
 			short alpha = starType.randomBrightness(random); // 0xAA is the default
 			Color.IntRGB rgb = starType.getRGB();
 			
 			// Set up size
 			
-			starSizes[stars] = starType.randomSize(random); // This randomizes the Star size
+			starSizes[stars] = (float) starType.randomSize(random); // This randomizes the Star size
 			
 			// Set up color and alpha
 			
-			starRGBA[stars] = new short[] {(short) rgb.red(), (short) rgb.green(), (short) rgb.blue(), alpha};
+			starRGBA[stars] = packRGBA(rgb.red(), rgb.green(), rgb.blue(), alpha);
 			
 			// sin and cos are used to effectively clamp the random number between two values without actually clamping it,
 			// wwhich would result in some awkward lines as Stars would be brought to the clamped values
 			// Both affect Star size and rotation
 			double randomValue = random.nextDouble() * Math.PI * 2.0D;
-			randoms[stars][0] = Math.sin(randomValue); // sin random
-			randoms[stars][1] = Math.cos(randomValue); // cos random
+			sinCosRandoms[stars * 2] = (float) Math.sin(randomValue); // sin random
+			sinCosRandoms[stars * 2 + 1] = (float) Math.cos(randomValue); // cos random
 			
-			//lod.createStar(builder, hasTexture, lod.size);
 			stars++;
 		}
 		
-		public void createStar(BufferBuilder builder, boolean hasTexture, int i)
+		/**
+		 * Writes the Stars as quads into an exactly sized off-heap buffer, used when instanced rendering isn't available
+		 * @return Writer containing the mesh, which has to be closed by the caller
+		 */
+		public StarMeshWriter writeMesh(boolean hasTexture)
+		{
+			StarMeshWriter mesh = new StarMeshWriter(stars, hasTexture);
+			
+			for(int i = 0; i < stars; i++)
+			{
+				mesh.quad(starX[i], starY[i], starZ[i], starRGBA[i], sinCosRandoms[i * 2], sinCosRandoms[i * 2 + 1], starSizes[i]);
+			}
+			
+			return mesh;
+		}
+		
+		/**
+		 * Writes one {@link StellarViewVertexFormat#STAR_INSTANCE} record per Star into a newly allocated off-heap buffer,
+		 * which has to be freed by the caller
+		 * @return Buffer containing the instance data
+		 */
+		public ByteBuffer getInstanceBuffer()
 		{
-			double sinRandom = randoms[i][0];
-			double cosRandom = randoms[i][1];
+			ByteBuffer buffer = MemoryUtil.memAlloc(stars * INSTANCE_SIZE);
+			long address = MemoryUtil.memAddress(buffer);
 			
-			// This loop creates the 4 corners of a Star
-			for(int j = 0; j < 4; ++j)
+			for(int i = 0; i < stars; i++)
 			{
-				/* Bitwise AND is there to multiply the size by either 1 or -1 to reach this effect:
-				 * Where a coordinate is written as (A,B)
-				 * 		(-1,1)		(1,1)
-				 * 		x-----------x
-				 * 		|			|
-				 * 		|			|
-				 * 		|			|
-				 * 		|			|
-				 * 		x-----------x
-				 * 		(-1,-1)		(1,-1)
-				 * 								|	A	B
-				 * 0 & 2 = 000 & 010 = 000 = 0	|	x
-				 * 1 & 2 = 001 & 010 = 000 = 0	|	x	x
-				 * 2 & 2 = 010 & 010 = 010 = 2	|	x	x
-				 * 3 & 2 = 011 & 010 = 010 = 2	|	x	x
-				 * 4 & 2 = 100 & 000 = 000 = 0	|		x
-				 *
-				 * After you subtract 1 one from each of them, you get this:
-				 * j:	0	1	2	3
-				 * --------------------
-				 * A:	-1	-1	1	1
-				 * B:	-1	1	1	-1
-				 * Which corresponds to:
-				 * UV:	00	01	11	10
-				 */
-				double aLocation = (j & 2) - 1;
-				double bLocation = (j + 1 & 2) - 1;
+				long offset = address + (long) i * INSTANCE_SIZE;
 				
-				/* These are the values for cos(random) = sin(random)
-				 * (random is simply there to randomize the star rotation)
-				 * j:	0	1	2	3
-				 * -------------------
-				 * A:	0	-2	0	2
-				 * B:	-2	0	2	0
-				 *
-				 * A and B are there to create a diamond effect on the Y-axis and X-axis respectively
-				 * (Pretend it's not as stretched as the slashes make it look)
-				 * Where a coordinate is written as (B,A)
-				 *
-				 *           (0,2)
-				 *          /\
-				 *   (-2,0)/  \(2,0)
-				 *         \  /
-				 *          \/
-				 *           (0,-2)
-				 *
-				 */
-				double height = aLocation * cosRandom - bLocation * sinRandom;
-				double width = bLocation * cosRandom + aLocation * sinRandom;
-				
-				builder.addVertex((float) starCoords[i][0], (float) starCoords[i][1], (float) starCoords[i][2])
-						.setColor((byte) starRGBA[i][0], (byte) starRGBA[i][1], (byte) starRGBA[i][2], (byte) starRGBA[i][3]);
+				MemoryUtil.memPutFloat(offset, starX[i]);
+				MemoryUtil.memPutFloat(offset + 4, starY[i]);
+				MemoryUtil.memPutFloat(offset + 8, starZ[i]);
+				MemoryUtil.memPutInt(offset + 12, starRGBA[i]);
+				MemoryUtil.memPutFloat(offset + 16, sinCosRandoms[i * 2]);
+				MemoryUtil.memPutFloat(offset + 20, sinCosRandoms[i * 2 + 1]);
+				MemoryUtil.memPutFloat(offset + 24, starSizes[i]);
+			}
+			
+			return buffer;
+		}
+		
+		/**
+		 * @return Light years per unit of the quantized positions in the compact layout, chosen so that the furthest Star fits into a short
+		 */
+		public float compactPositionScale()
+		{
+			float maxCoordinate = 0;
+			for(int i = 0; i < stars; i++)
+			{
+				maxCoordinate = Math.max(maxCoordinate, Math.max(Math.abs(starX[i]), Math.max(Math.abs(starY[i]), Math.abs(starZ[i]))));
+			}
+			
+			return Math.max(maxCoordinate, 1) / Short.MAX_VALUE;
+		}
+		
+		/**
+		 * Writes one {@link StellarViewVertexFormat#STAR_INSTANCE_COMPACT} record per Star into a newly allocated off-heap buffer,
+		 * which has to be freed by the caller. Positions relative to the Star Field are stored as shorts, the rotation as a short angle
+		 * (a full turn split into 65536 steps) instead of its sine and cosine, and the size as a fixed-point unsigned short.
+		 * @param positionScale Scale obtained from {@link #compactPositionScale()}
+		 * @return Buffer containing the instance data
+		 */
+		public ByteBuffer getCompactInstanceBuffer(float positionScale)
+		{
+			ByteBuffer buffer = MemoryUtil.memAlloc(stars * COMPACT_INSTANCE_SIZE);
+			long address = MemoryUtil.memAddress(buffer);
+			
+			for(int i = 0; i < stars; i++)
+			{
+				long offset = address + (long) i * COMPACT_INSTANCE_SIZE;
 				
-				addStarHeightWidthSize(builder, (float) height, (float) width, (float) starSizes[i]);
+				double rotation = Math.atan2(sinCosRandoms[i * 2], sinCosRandoms[i * 2 + 1]);
 				
-				if(hasTexture)
-					builder.setUv( (float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F);
+				MemoryUtil.memPutShort(offset, (short) Math.round(starX[i] / positionScale));
+				MemoryUtil.memPutShort(offset + 2, (short) Math.round(starY[i] / positionScale));
+				MemoryUtil.memPutShort(offset + 4, (short) Math.round(starZ[i] / positionScale));
+				MemoryUtil.memPutShort(offset + 6, (short) Math.round(rotation / (2 * Math.PI) * 65536));
+				MemoryUtil.memPutInt(offset + 8, starRGBA[i]);
+				MemoryUtil.memPutShort(offset + 12, (short) Mth.clamp(Math.round(starSizes[i] * COMPACT_SIZE_SCALE), 0, 0xFFFF));
+				MemoryUtil.memPutShort(offset + 14, (short) 0);
 			}
+			
+			return buffer;
+		}
+		
+		private static boolean useCompactInstances()
+		{
+			return StarBuffer.supportsInstancing() && GeneralConfig.compact_stars.get();
+		}
+		
+		/**
+		 * @return Number of bytes this LOD currently uses on the GPU
+		 */
+		public long uploadedBytes()
+		{
+			return starBuffer == null ? 0 : starBuffer.uploadedBytes();
+		}
+		
+		/**
+		 * @return Number of bytes saved on the GPU by using the compact layout instead of {@link StellarViewVertexFormat#STAR_INSTANCE}
+		 */
+		public long compactSavedBytes()
+		{
+			return starBuffer != null && starBuffer.isCompact() ? (long) stars * (INSTANCE_SIZE - COMPACT_INSTANCE_SIZE) : 0;
 		}
 		
-		public MeshData getStarBuffer(Tesselator tesselator, boolean hasTexture)
+		/**
+		 * @return Approximate number of bytes uploaded to the GPU for this LOD
+		 */
+		public long uploadSize(boolean hasTexture)
 		{
-			final var bufferBuilder = tesselator.begin(VertexFormat.Mode.QUADS, hasTexture ? StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get() : StellarViewVertexFormat.STAR_POS_COLOR_LY.get());
+			if(useCompactInstances())
+				return (long) stars * COMPACT_INSTANCE_SIZE;
+			if(StarBuffer.supportsInstancing())
+				return (long) stars * INSTANCE_SIZE;
 			
-			for(int i = 0; i < stars; i++)
+			return (long) stars * 4 * (hasTexture ? StarMeshWriter.TEX_VERTEX_SIZE : StarMeshWriter.VERTEX_SIZE);
+		}
+		
+		private void uploadStarBuffer(boolean hasTexture)
+		{
+			if(starBuffer != null)
+				starBuffer.close();
+			
+			starBuffer = new StarBuffer();
+			starBuffer.bind();
+			
+			if(useCompactInstances())
+			{
+				float positionScale = compactPositionScale();
+				ByteBuffer instances = getCompactInstanceBuffer(positionScale);
+				starBuffer.uploadInstances(instances, stars, StellarViewVertexFormat.STAR_INSTANCE_COMPACT.get(), positionScale);
+				MemoryUtil.memFree(instances);
+				instanceData = null;
+				
+				StellarView.LOGGER.debug("Uploaded " + stars + " compact Stars using " + (long) stars * COMPACT_INSTANCE_SIZE + " bytes of VRAM, "
+						+ (long) stars * 4 * (hasTexture ? StarMeshWriter.TEX_VERTEX_SIZE : StarMeshWriter.VERTEX_SIZE) + " bytes as quads");
+			}
+			else if(StarBuffer.supportsInstancing())
+			{
+				if(instanceData != null)
+				{
+					starBuffer.uploadInstances(instanceData, stars);
+					instanceData = null;
+				}
+				else
+				{
+					ByteBuffer instances = getInstanceBuffer();
+					starBuffer.uploadInstances(instances, stars);
+					MemoryUtil.memFree(instances);
+				}
+			}
+			else
 			{
-				createStar(bufferBuilder, hasTexture, i);
+				try(StarMeshWriter mesh = writeMesh(hasTexture))
+				{
+					starBuffer.uploadQuads(mesh);
+				}
 			}
-			return bufferBuilder.build();
+			
+			VertexBuffer.unbind();
 		}
 		
-		private void renderStarBuffer(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean hasTexture)
+		/**
+		 * @param maxTiers Upper limit for the number of drawn Levels of Detail, cells further from the viewer draw fewer
+		 * @param firstTier Level of Detail (counted from 0) of the first tier stored in this LOD
+		 * @param density Fraction of the Stars that should be drawn
+		 */
+		private void renderStarBuffer(StarField.LevelOfDetail levelOfDetail, double distance, double maxTiers, int firstTier, double density, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean hasTexture)
 		{
 			if(stars == 0)
 				return;
 			
-			if(starBuffer == null) // Buffer requires setup
+			if(starBuffer == null) // Buffer requires setup, which will happen once the upload scheduler gets to it
 			{
-				if(!SpaceRenderer.loadNewStars())
-					return;
-				
-				starBuffer = new StarBuffer();
-				
-				Tesselator tesselator = Tesselator.getInstance();
-				RenderSystem.setShader(GameRenderer::getPositionShader);
-				MeshData mesh = getStarBuffer(tesselator, hasTexture);
+				if(!UploadScheduler.updatePriority(this, uploadTier(levelOfDetail), distance))
+					UploadScheduler.request(this, uploadTier(levelOfDetail), distance, uploadSize(hasTexture), () -> uploadStarBuffer(hasTexture));
 				
-				starBuffer.bind();
-				starBuffer.upload(mesh);
-				starBuffer.drawWithShader(pose, projectionMatrix, difference, hasTexture ? StellarViewShaders.starTexShader() : StellarViewShaders.starShader());
-				VertexBuffer.unbind();
-				
-				SpaceRenderer.loadedStars(stars);
+				return;
 			}
-			else
+			
+			if(cells != null)
 			{
-				starBuffer.bind();
-				starBuffer.drawWithShader(pose, projectionMatrix, difference, hasTexture ? StellarViewShaders.starTexShader() : StellarViewShaders.starShader());
-				VertexBuffer.unbind();
+				// Lensing moves Stars around the screen, so culling is only possible without it
+				FrustumIntersection frustum = SpaceRenderer.lensingIntensity > 0 ? null : FRUSTUM.set(VIEW_PROJECTION.set(projectionMatrix).mul(pose), false);
+				cells.visibleRanges(frustum, difference.x().ly(), difference.y().ly(), difference.z().ly(), maxTiers, firstTier, density, drawRanges);
+				
+				if(drawRanges.stars() == 0)
+					return;
 			}
+			
+			starBuffer.bind();
+			starBuffer.setDrawRanges(cells != null ? drawRanges : null);
+			starBuffer.drawWithShader(pose, projectionMatrix, difference, getShader(hasTexture));
+			VertexBuffer.unbind();
+		}
+		
+		private static int uploadTier(StarField.LevelOfDetail levelOfDetail)
+		{
+			return switch(levelOfDetail)
+			{
+				case LOD1 -> UploadScheduler.TIER_LOD1;
+				case LOD2 -> UploadScheduler.TIER_LOD2;
+				case LOD3 -> UploadScheduler.TIER_LOD3;
+			};
+		}
+		
+		private StarShaderInstance getShader(boolean hasTexture)
+		{
+			if(starBuffer.isCompact())
+				return hasTexture ? StellarViewShaders.starTexCompactShader() : StellarViewShaders.starCompactShader();
+			if(starBuffer.isInstanced())
+				return hasTexture ? StellarViewShaders.starTexInstancedShader() : StellarViewShaders.starInstancedShader();
+			
+			return hasTexture ? StellarViewShaders.starTexShader() : StellarViewShaders.starShader();
 		}
 	}
 }
@@ -0,0 +1,144 @@
+package net.povstalec.stellarview.client.util;
+
+import com.mojang.blaze3d.vertex.VertexFormat;
+import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes Star and Dust Cloud quads in the {@link StellarViewVertexFormat#STAR_POS_COLOR_LY} and {@link StellarViewVertexFormat#STAR_POS_COLOR_LY_TEX} layouts
+ * straight into an off-heap buffer of the exact size, without going through a BufferBuilder or the shared Tesselator.
+ * The buffer has to be released with {@link #close()} once it has been uploaded.
+ */
+public class StarMeshWriter implements AutoCloseable
+{
+	// StarPos (3 floats), Color (4 bytes), HeightWidthSize (3 floats)
+	public static final int VERTEX_SIZE = 3 * Float.BYTES + 4 + 3 * Float.BYTES;
+	// Same as above, followed by UV0 (2 floats)
+	public static final int TEX_VERTEX_SIZE = VERTEX_SIZE + 2 * Float.BYTES;
+	
+	private static final int COLOR_OFFSET = 12;
+	private static final int HEIGHT_WIDTH_SIZE_OFFSET = 16;
+	private static final int UV_OFFSET = 28;
+	
+	/* Corners of a quad, where a coordinate is written as (A,B)
+	 * 		(-1,1)		(1,1)
+	 * 		x-----------x
+	 * 		|			|
+	 * 		|			|
+	 * 		|			|
+	 * 		|			|
+	 * 		x-----------x
+	 * 		(-1,-1)		(1,-1)
+	 *
+	 * j:	0	1	2	3
+	 * --------------------
+	 * A:	-1	-1	1	1
+	 * B:	-1	1	1	-1
+	 * Which corresponds to:
+	 * UV:	00	01	11	10
+	 *
+	 * These are the same values as (j & 2) - 1 and (j + 1 & 2) - 1
+	 */
+	private static final float[] A_LOCATIONS = {-1, -1, 1, 1};
+	private static final float[] B_LOCATIONS = {-1, 1, 1, -1};
+	
+	private final boolean hasTexture;
+	private final int vertexSize;
+	private final int quads;
+	
+	private final ByteBuffer buffer;
+	private final long address;
+	private int writtenQuads = 0;
+	
+	/**
+	 * @param quads Exact number of quads that will be written
+	 * @param hasTexture Whether UVs should be written
+	 */
+	public StarMeshWriter(int quads, boolean hasTexture)
+	{
+		this.hasTexture = hasTexture;
+		this.vertexSize = hasTexture ? TEX_VERTEX_SIZE : VERTEX_SIZE;
+		this.quads = quads;
+		
+		this.buffer = MemoryUtil.memAlloc(quads * 4 * vertexSize);
+		this.address = MemoryUtil.memAddress(buffer);
+	}
+	
+	/**
+	 * Writes the 4 corners of a Star or Dust Cloud
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param z Z coordinate
+	 * @param rgba Color packed with {@link StarData.LOD#packRGBA(int, int, int, int)}
+	 * @param sinRandom Sine of the random rotation
+	 * @param cosRandom Cosine of the random rotation
+	 * @param size Size
+	 */
+	public void quad(float x, float y, float z, int rgba, float sinRandom, float cosRandom, float size)
+	{
+		if(writtenQuads >= quads)
+			throw new IllegalStateException("Tried to write more than " + quads + " quads");
+		
+		long vertex = address + (long) writtenQuads * 4 * vertexSize;
+		
+		for(int j = 0; j < 4; j++)
+		{
+			float aLocation = A_LOCATIONS[j];
+			float bLocation = B_LOCATIONS[j];
+			
+			/* Rotates the corner by the random angle, cos(random) = sin(random) would give
+			 * j:	0	1	2	3
+			 * -------------------
+			 * A:	0	-2	0	2
+			 * B:	-2	0	2	0
+			 * which creates a diamond shape
+			 */
+			float height = aLocation * cosRandom - bLocation * sinRandom;
+			float width = bLocation * cosRandom + aLocation * sinRandom;
+			
+			MemoryUtil.memPutFloat(vertex, x);
+			MemoryUtil.memPutFloat(vertex + 4, y);
+			MemoryUtil.memPutFloat(vertex + 8, z);
+			MemoryUtil.memPutInt(vertex + COLOR_OFFSET, rgba);
+			MemoryUtil.memPutFloat(vertex + HEIGHT_WIDTH_SIZE_OFFSET, height);
+			MemoryUtil.memPutFloat(vertex + HEIGHT_WIDTH_SIZE_OFFSET + 4, width);
+			MemoryUtil.memPutFloat(vertex + HEIGHT_WIDTH_SIZE_OFFSET + 8, size);
+			
+			if(hasTexture)
+			{
+				MemoryUtil.memPutFloat(vertex + UV_OFFSET, (aLocation + 1) / 2F);
+				MemoryUtil.memPutFloat(vertex + UV_OFFSET + 4, (bLocation + 1) / 2F);
+			}
+			
+			vertex += vertexSize;
+		}
+		
+		writtenQuads++;
+	}
+	
+	/**
+	 * @return Buffer containing the quads written so far
+	 */
+	public ByteBuffer buffer()
+	{
+		return buffer.limit(writtenQuads * 4 * vertexSize);
+	}
+	
+	public int quads()
+	{
+		return writtenQuads;
+	}
+	
+	public VertexFormat format()
+	{
+		return hasTexture ? StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get() : StellarViewVertexFormat.STAR_POS_COLOR_LY.get();
+	}
+	
+	@Override
+	public void close()
+	{
+		MemoryUtil.memFree(buffer);
+	}
+}
@@ -19,6 +19,19 @@ public class GeneralConfig
 	
 	public static StellarViewConfigValue.IntValue space_region_render_distance;
 	
+	public static StellarViewConfigValue.IntValue upload_time_budget;
+	
+	public static StellarViewConfigValue.BooleanValue star_cache;
+	public static StellarViewConfigValue.IntValue star_cache_size;
+	
+	public static StellarViewConfigValue.BooleanValue continuous_star_lod;
+	public static StellarViewConfigValue.IntValue star_density;
+	public static StellarViewConfigValue.BooleanValue compact_stars;
+	public static StellarViewConfigValue.BooleanValue celestial_atlas;
+	public static StellarViewConfigValue.IntValue subtree_culling_size;
+	public static StellarViewConfigValue.BooleanValue sky_visibility_culling;
+	public static StellarViewConfigValue.BooleanValue baked_sky_background;
+	
 	public static void init(ModConfigSpec.Builder client)
 	{
 		use_game_ticks = new StellarViewConfigValue.BooleanValue(client, "client.use_game_ticks",
@@ -60,5 +73,45 @@ public class GeneralConfig
 		space_region_render_distance = new StellarViewConfigValue.IntValue(client, "client.space_region_render_distance",
 				8, 1, 12,
 				"Specifies the max distance at which a Space Region can render");
+		
+		upload_time_budget = new StellarViewConfigValue.IntValue(client, "client.upload_time_budget",
+				2000, 100, 20000,
+				"Specifies how much time (in microseconds) can be spent uploading stars and dust clouds to the GPU each frame, at least one upload always happens per frame");
+		
+		star_cache = new StellarViewConfigValue.BooleanValue(client, "client.star_cache",
+				true,
+				"Saves generated stars to disk so they don't have to be generated again after a restart or resource reload");
+		
+		star_cache_size = new StellarViewConfigValue.IntValue(client, "client.star_cache_size",
+				256, 16, 4096,
+				"Specifies the max size of the star cache in megabytes, the least recently used files are removed first");
+		
+		continuous_star_lod = new StellarViewConfigValue.BooleanValue(client, "client.continuous_star_lod",
+				false,
+				"True - Star Fields are drawn from a single buffer sorted by brightness and the number of drawn stars changes smoothly with distance, all of their stars are generated and uploaded up front even when they're far away | False - Star Fields switch between separate Levels of Detail, which are only generated and uploaded once they're close enough to be seen");
+		
+		star_density = new StellarViewConfigValue.IntValue(client, "client.star_density",
+				100, 1, 100,
+				"Specifies the percentage of stars drawn when continuous star LOD is enabled, the dimmest stars are left out first");
+		
+		compact_stars = new StellarViewConfigValue.BooleanValue(client, "client.compact_stars",
+				false,
+				"Stores stars on the GPU in a quantized 16 byte format instead of 28 bytes per star. Positions are rounded to 1/32767 of the star field's size (about 1.5 light years for the Milky Way), and cached stars have to be converted instead of being uploaded straight from the cache");
+		
+		celestial_atlas = new StellarViewConfigValue.BooleanValue(client, "client.celestial_atlas",
+				true,
+				"Stitches the textures of celestial objects, meteors and skyboxes into shared atlases when resources are reloaded, which allows drawing objects with different textures together");
+		
+		subtree_culling_size = new StellarViewConfigValue.IntValue(client, "client.subtree_culling_size",
+				13, 0, 100,
+				"Specifies how small (in hundredths of a block on the sky, 13 is about a pixel at 1080p) the orbits of an object's children can look before only the object itself is drawn, 0 disables culling");
+		
+		sky_visibility_culling = new StellarViewConfigValue.BooleanValue(client, "client.sky_visibility_culling",
+				true,
+				"Skips rendering stars, dust clouds, celestial objects and meteors while they can't be seen, like underground without any sky light or during full rain");
+		
+		baked_sky_background = new StellarViewConfigValue.BooleanValue(client, "client.baked_sky_background",
+				false,
+				"Renders star fields and dust clouds into a cubemap that is only updated (one side per frame) after the view center moves, instead of drawing them every frame. The cubemap is sized to match the screen, which uses about 150 MB of VRAM at 1080p with a field of view of 70");
 	}
 }
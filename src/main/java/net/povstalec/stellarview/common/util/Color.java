@@ -19,6 +19,9 @@ public class Color
 	public static final String BLUE = "blue";
 	public static final String ALPHA = "alpha";
 	
+	// Opaque white packed with packARGB
+	public static final int WHITE_ARGB = 0xFFFFFFFF;
+	
 	private static void checkIntValue(int value)
 	{
 		if(value > MAX_INT_VALUE)
@@ -35,6 +38,44 @@ public class Color
 			throw(new IllegalArgumentException("Value may not be lower than 0.0"));
 	}
 	
+	//============================================================================================
+	//*****************************************Packed ARGB****************************************
+	//============================================================================================
+	
+	/**
+	 * Packs a color into a single int with 8 bits per channel, which can be passed around without allocating any objects.
+	 * Values outside of the 0 - 1 range are clamped.
+	 */
+	public static int packARGB(float red, float green, float blue, float alpha)
+	{
+		return toByte(alpha) << 24 | toByte(red) << 16 | toByte(green) << 8 | toByte(blue);
+	}
+	
+	private static int toByte(float value)
+	{
+		return Math.round(Math.min(Math.max(value, MIN_FLOAT_VALUE), MAX_FLOAT_VALUE) * MAX_INT_VALUE);
+	}
+	
+	public static float red(int argb)
+	{
+		return (argb >> 16 & 0xFF) / 255F;
+	}
+	
+	public static float green(int argb)
+	{
+		return (argb >> 8 & 0xFF) / 255F;
+	}
+	
+	public static float blue(int argb)
+	{
+		return (argb & 0xFF) / 255F;
+	}
+	
+	public static float alpha(int argb)
+	{
+		return (argb >>> 24) / 255F;
+	}
+	
 	public static class IntRGB implements INBTSerializable<CompoundTag>
 	{
 		protected int red;
@@ -348,6 +389,14 @@ public class Color
 			return alpha;
 		}
 		
+		/**
+		 * @return This color packed with {@link Color#packARGB(float, float, float, float)}
+		 */
+		public int packARGB()
+		{
+			return Color.packARGB(red, green, blue, alpha);
+		}
+		
 		//============================================================================================
 		//*************************************Saving and Loading*************************************
 		//============================================================================================
@@ -1,12 +1,60 @@
 package net.povstalec.stellarview.common.util;
 
-import com.mojang.blaze3d.vertex.BufferBuilder;
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
 import net.povstalec.stellarview.client.util.StarData;
+import net.povstalec.stellarview.client.util.StarMeshWriter;
 
+import java.util.Arrays;
 import java.util.Random;
 
 public class DustCloudData
 {
+	/**
+	 * Dust Clouds of far away Star Fields cover a fraction of a pixel each, so they're merged into fewer, larger clouds that give off the same amount of light
+	 */
+	public enum LevelOfDetail
+	{
+		LOD1(32, 0), // Very far away, a few large merged clouds
+		LOD2(4, 5), // Middle point, small groups of clouds are merged
+		LOD3(1, 25); // Very close, every Dust Cloud is drawn
+		
+		final int mergedDustClouds;
+		final double minProjectedSize;
+		
+		LevelOfDetail(int mergedDustClouds, double minProjectedSize)
+		{
+			this.mergedDustClouds = mergedDustClouds;
+			this.minProjectedSize = minProjectedSize;
+		}
+		
+		/**
+		 * @return Number of Dust Clouds merged into a single one
+		 */
+		public int getMergedDustClouds()
+		{
+			return mergedDustClouds;
+		}
+		
+		/**
+		 * @param projectedSize Radius of the Dust Clouds on the sky sphere
+		 * @param distance Distance (in light years) from the View Center
+		 * @return Level of Detail the Dust Clouds should be drawn with, far away Star Fields use the same distances as their Stars
+		 */
+		public static LevelOfDetail fromProjectedSize(double projectedSize, double distance)
+		{
+			if(distance >= StarField.LevelOfDetail.LOD1.getMinDistance() || projectedSize < LOD2.minProjectedSize)
+				return LOD1;
+			
+			if(distance >= StarField.LevelOfDetail.LOD2.getMinDistance() || projectedSize < LOD3.minProjectedSize)
+				return LOD2;
+			
+			return LOD3;
+		}
+	}
+	
+	// Bits per axis used when ordering Dust Clouds along a Z-order curve
+	private static final int MORTON_BITS = 10;
+	
 	private double[][] dustCloudCoords;
 	private double[] dustCloudSizes;
 	
@@ -34,7 +82,6 @@ public class DustCloudData
 	
 	/**
 	 * Creates information for a completely new star
-	 * @param builder BufferBuilder used for building the vertexes
 	 * @param random Random used for randomizing the star information
 	 * @param relativeCoords SpaceCoords that give a relative position between the observer and the star
 	 * @param x X coordinate of the star
@@ -42,7 +89,7 @@ public class DustCloudData
 	 * @param z Z coordinate of the star
 	 * @param i Index of the star
 	 */
-	public void newDustCloud(DustCloudInfo dustCloudInfo, BufferBuilder builder, Random random, double x, double y, double z, double sizeMultiplier, int i)
+	public void newDustCloud(DustCloudInfo dustCloudInfo, Random random, double x, double y, double z, double sizeMultiplier, int i)
 	{
 		// Set up position
 		
@@ -69,74 +116,157 @@ public class DustCloudData
 		double randomValue = random.nextDouble() * Math.PI * 2.0D;
 		randoms[i][0] = Math.sin(randomValue); // sin random
 		randoms[i][1] = Math.cos(randomValue); // cos random
+	}
+	
+	public void createDustCloud(StarMeshWriter mesh, int i)
+	{
+		int rgba = StarData.LOD.packRGBA(dustCloudRGBA[i][0], dustCloudRGBA[i][1], dustCloudRGBA[i][2], dustCloudRGBA[i][3]);
+		
+		mesh.quad((float) dustCloudCoords[i][0], (float) dustCloudCoords[i][1], (float) dustCloudCoords[i][2], rgba, (float) randoms[i][0], (float) randoms[i][1], (float) dustCloudSizes[i]);
+	}
+	
+	public int size()
+	{
+		return dustCloudSizes.length;
+	}
+	
+	/**
+	 * @return Distance (in light years) of the furthest Dust Cloud from the center of the Star Field
+	 */
+	public double boundingRadius()
+	{
+		double radiusSquared = 0;
+		for(double[] coords : dustCloudCoords)
+		{
+			radiusSquared = Math.max(radiusSquared, coords[0] * coords[0] + coords[1] * coords[1] + coords[2] * coords[2]);
+		}
 		
-		this.createDustCloud(builder, i);
+		return Math.sqrt(radiusSquared);
 	}
 	
-	public void createDustCloud(BufferBuilder builder, int i)
+	public double maxSize()
 	{
-		double sinRandom = randoms[i][0];
-		double cosRandom = randoms[i][1];
+		double maxSize = 0;
+		for(double size : dustCloudSizes)
+		{
+			maxSize = Math.max(maxSize, size);
+		}
+		
+		return maxSize;
+	}
+	
+	/**
+	 * @param size Size of a Dust Cloud
+	 * @param distance Distance (in light years) of the Dust Cloud
+	 * @return Size of the Dust Cloud on the sky sphere, as clamped in rendertype_dust_cloud.vsh
+	 */
+	public static double projectedSize(double size, double distance)
+	{
+		size *= 4;
+		
+		return clampStar(100000 * size / distance, size * 0.04, 50);
+	}
+	
+	/**
+	 * Merges Dust Clouds that are close to each other into single clouds.
+	 * Merged clouds cover the combined area of the original ones and keep their combined brightness, with the color being their brightness-weighted average.
+	 * @param groupSize Number of Dust Clouds merged into each new one
+	 * @return New Dust Cloud Data containing the merged clouds
+	 */
+	public DustCloudData merged(int groupSize)
+	{
+		int dustClouds = dustCloudSizes.length;
+		DustCloudData merged = new DustCloudData((dustClouds + groupSize - 1) / groupSize);
+		
+		if(dustClouds == 0)
+			return merged;
+		
+		// Orders the clouds along a Z-order curve, so that consecutive clouds are close to each other
+		double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+		double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+		for(double[] coords : dustCloudCoords)
+		{
+			for(int axis = 0; axis < 3; axis++)
+			{
+				min[axis] = Math.min(min[axis], coords[axis]);
+				max[axis] = Math.max(max[axis], coords[axis]);
+			}
+		}
+		
+		long[] order = new long[dustClouds];
+		for(int i = 0; i < dustClouds; i++)
+		{
+			long code = 0;
+			for(int axis = 0; axis < 3; axis++)
+			{
+				double extent = max[axis] - min[axis];
+				long cell = extent > 0 ? (long) ((dustCloudCoords[i][axis] - min[axis]) / extent * ((1 << MORTON_BITS) - 1)) : 0;
+				
+				for(int bit = 0; bit < MORTON_BITS; bit++)
+				{
+					code |= ((cell >> bit) & 1L) << (bit * 3 + axis);
+				}
+			}
+			
+			order[i] = code << 32 | i;
+		}
+		Arrays.sort(order);
 		
-		// This loop creates the 4 corners of a Star
-		for(int j = 0; j < 4; ++j)
+		for(int group = 0; group < merged.size(); group++)
 		{
-			/* Bitwise AND is there to multiply the size by either 1 or -1 to reach this effect:
-			 * Where a coordinate is written as (A,B)
-			 * 		(-1,1)		(1,1)
-			 * 		x-----------x
-			 * 		|			|
-			 * 		|			|
-			 * 		|			|
-			 * 		|			|
-			 * 		x-----------x
-			 * 		(-1,-1)		(1,-1)
-			 * 								|	A	B
-			 * 0 & 2 = 000 & 010 = 000 = 0	|	x
-			 * 1 & 2 = 001 & 010 = 000 = 0	|	x	x
-			 * 2 & 2 = 010 & 010 = 010 = 2	|	x	x
-			 * 3 & 2 = 011 & 010 = 010 = 2	|	x	x
-			 * 4 & 2 = 100 & 000 = 000 = 0	|		x
-			 *
-			 * After you subtract 1 one from each of them, you get this:
-			 * j:	0	1	2	3
-			 * --------------------
-			 * A:	-1	-1	1	1
-			 * B:	-1	1	1	-1
-			 * Which corresponds to:
-			 * UV:	00	01	11	10
-			 */
-			double aLocation = (j & 2) - 1;
-			double bLocation = (j + 1 & 2) - 1;
+			int first = group * groupSize;
+			int last = Math.min(first + groupSize, dustClouds);
 			
-			/* These are the values for cos(random) = sin(random)
-			 * (random is simply there to randomize the star rotation)
-			 * j:	0	1	2	3
-			 * -------------------
-			 * A:	0	-2	0	2
-			 * B:	-2	0	2	0
-			 *
-			 * A and B are there to create a diamond effect on the Y-axis and X-axis respectively
-			 * (Pretend it's not as stretched as the slashes make it look)
-			 * Where a coordinate is written as (B,A)
-			 *
-			 *           (0,2)
-			 *          /\
-			 *   (-2,0)/  \(2,0)
-			 *         \  /
-			 *          \/
-			 *           (0,-2)
-			 *
-			 */
-			double height = aLocation * cosRandom - bLocation * sinRandom;
-			double width = bLocation * cosRandom + aLocation * sinRandom;
+			double area = 0;
+			double weight = 0;
+			double x = 0, y = 0, z = 0;
+			double red = 0, green = 0, blue = 0;
 			
-			builder.addVertex((float) dustCloudCoords[i][0], (float) dustCloudCoords[i][1], (float) dustCloudCoords[i][2])
-					.setColor((byte) dustCloudRGBA[i][0], (byte) dustCloudRGBA[i][1], (byte) dustCloudRGBA[i][2], (byte) dustCloudRGBA[i][3]);
+			for(int j = first; j < last; j++)
+			{
+				int i = (int) order[j];
+				double cloudArea = dustCloudSizes[i] * dustCloudSizes[i];
+				// Weighted by the light the cloud gives off, the small epsilon keeps fully transparent groups from dividing by zero
+				double cloudWeight = dustCloudRGBA[i][3] * cloudArea + 1E-9;
+				
+				area += cloudArea;
+				weight += cloudWeight;
+				x += dustCloudCoords[i][0] * cloudWeight;
+				y += dustCloudCoords[i][1] * cloudWeight;
+				z += dustCloudCoords[i][2] * cloudWeight;
+				red += dustCloudRGBA[i][0] * cloudWeight;
+				green += dustCloudRGBA[i][1] * cloudWeight;
+				blue += dustCloudRGBA[i][2] * cloudWeight;
+			}
 			
-			StarData.addStarHeightWidthSize(builder, (float) height, (float) width, (float) dustCloudSizes[i]);
+			int firstCloud = (int) order[first];
 			
-			builder.setUv( (float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F);
+			merged.dustCloudCoords[group][0] = x / weight;
+			merged.dustCloudCoords[group][1] = y / weight;
+			merged.dustCloudCoords[group][2] = z / weight;
+			merged.dustCloudSizes[group] = Math.sqrt(area);
+			merged.dustCloudRGBA[group] = new short[] {(short) Math.round(red / weight), (short) Math.round(green / weight), (short) Math.round(blue / weight),
+					(short) Math.min(255, Math.round(weight / Math.max(area, 1E-9)))};
+			merged.randoms[group][0] = randoms[firstCloud][0];
+			merged.randoms[group][1] = randoms[firstCloud][1];
+		}
+		
+		return merged;
+	}
+	
+	/**
+	 * Writes all Dust Clouds as textured quads into an exactly sized off-heap buffer
+	 * @return Writer containing the mesh, which has to be closed by the caller
+	 */
+	public StarMeshWriter writeMesh()
+	{
+		StarMeshWriter mesh = new StarMeshWriter(dustCloudSizes.length, true);
+		
+		for(int i = 0; i < dustCloudSizes.length; i++)
+		{
+			createDustCloud(mesh, i);
 		}
+		
+		return mesh;
 	}
 }
@@ -0,0 +1,141 @@
+package net.povstalec.stellarview.common.util;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+
+/**
+ * Works out positions along a single elliptical orbit.
+ * The orbit matrix is reduced once to a center and two axes, so a position only costs solving Kepler's equation and one sine and cosine,
+ * and every result is written into a vector provided by the caller.
+ */
+public final class OrbitEvaluator
+{
+	public static final double DEFAULT_TOLERANCE = 1E-10;
+	public static final int MAX_ITERATIONS = 32;
+	
+	private static final double TWO_PI = 2 * Math.PI;
+	
+	private final double eccentricity;
+	private final double epochMeanAnomaly;
+	private final double sweep; // Mean anomaly covered per tick
+	private final long periodTicks;
+	
+	// Position = center + cos(E) * cosAxis + sin(E) * sinAxis
+	private final float centerX, centerY, centerZ;
+	private final float cosAxisX, cosAxisY, cosAxisZ;
+	private final float sinAxisX, sinAxisY, sinAxisZ;
+	
+	/**
+	 * @param orbitMatrix Matrix that maps the unit circle onto the orbit
+	 * @param eccentricity Eccentricity of the orbit
+	 * @param epochMeanAnomaly Mean anomaly at tick 0, in radians
+	 * @param sweep Mean anomaly covered per tick, in radians
+	 * @param periodTicks Ticks after which the orbit repeats
+	 */
+	public OrbitEvaluator(Matrix4fc orbitMatrix, double eccentricity, double epochMeanAnomaly, double sweep, long periodTicks)
+	{
+		this.eccentricity = eccentricity;
+		this.epochMeanAnomaly = epochMeanAnomaly;
+		this.sweep = sweep;
+		this.periodTicks = periodTicks;
+		
+		/* The orbit starts from (-1, 0, 0) rotated around the Y axis by E, which is (-cos(E), 0, sin(E)),
+		 * so only the translation, the first column (negated) and the third column of the matrix are ever used
+		 */
+		this.centerX = orbitMatrix.m30();
+		this.centerY = orbitMatrix.m31();
+		this.centerZ = orbitMatrix.m32();
+		
+		this.cosAxisX = -orbitMatrix.m00();
+		this.cosAxisY = -orbitMatrix.m01();
+		this.cosAxisZ = -orbitMatrix.m02();
+		
+		this.sinAxisX = orbitMatrix.m20();
+		this.sinAxisY = orbitMatrix.m21();
+		this.sinAxisZ = orbitMatrix.m22();
+	}
+	
+	/**
+	 * @param tickMultiplier Tick multiplier the ticks were multiplied by
+	 * @return Mean anomaly of the orbit at the specified time, in radians
+	 */
+	public double meanAnomaly(long ticks, float partialTicks, int tickMultiplier)
+	{
+		return epochMeanAnomaly + sweep * (ticks % periodTicks - tickMultiplier + partialTicks);
+	}
+	
+	/**
+	 * @return Eccentric anomaly of the orbit at the specified time, in radians
+	 */
+	public double eccentricAnomaly(long ticks, float partialTicks, int tickMultiplier)
+	{
+		return solveKepler(eccentricity, meanAnomaly(ticks, partialTicks, tickMultiplier), DEFAULT_TOLERANCE);
+	}
+	
+	/**
+	 * Writes the position along the orbit at the specified time into dest
+	 * @return dest
+	 */
+	public Vector3f position(long ticks, float partialTicks, int tickMultiplier, Vector3f dest)
+	{
+		return positionAt(eccentricAnomaly(ticks, partialTicks, tickMultiplier), dest);
+	}
+	
+	/**
+	 * Same as {@link #position(long, float, int, Vector3f)}, but the orbit is scaled up as if it was viewed from the clamp distance
+	 * whenever the object it orbits around is further away than that
+	 * @param distance Distance of the object this orbit is around
+	 * @param clampDistance Distance the orbit is clamped to, 0 or less for no clamping
+	 */
+	public Vector3f clampedPosition(long ticks, float partialTicks, int tickMultiplier, double distance, float clampDistance, Vector3f dest)
+	{
+		position(ticks, partialTicks, tickMultiplier, dest);
+		
+		if(clampDistance > 0 && distance > clampDistance)
+			dest.mul((float) distance / clampDistance);
+		
+		return dest;
+	}
+	
+	/**
+	 * Writes the position along the orbit at the specified eccentric anomaly into dest
+	 * @return dest
+	 */
+	public Vector3f positionAt(double eccentricAnomaly, Vector3f dest)
+	{
+		float cos = (float) Math.cos(eccentricAnomaly);
+		float sin = (float) Math.sin(eccentricAnomaly);
+		
+		return dest.set(centerX + cos * cosAxisX + sin * sinAxisX,
+				centerY + cos * cosAxisY + sin * sinAxisY,
+				centerZ + cos * cosAxisZ + sin * sinAxisZ);
+	}
+	
+	/**
+	 * Solves Kepler's equation M = E - e * sin(E) for E with Newton's method, stopping once a step is smaller than the tolerance
+	 * @param eccentricity Eccentricity of the orbit, has to be between -1 and 1
+	 * @param meanAnomaly Mean anomaly, in radians
+	 * @param tolerance Largest step at which the result is considered precise enough, in radians
+	 * @return Eccentric anomaly, in radians, in the same revolution as the mean anomaly
+	 */
+	public static double solveKepler(double eccentricity, double meanAnomaly, double tolerance)
+	{
+		// Newton's method converges best for M between -pi and pi, the full revolutions are added back at the end
+		double revolutions = TWO_PI * Math.floor((meanAnomaly + Math.PI) / TWO_PI);
+		double M = meanAnomaly - revolutions;
+		
+		// M + e * sin(M) is close for most orbits, very eccentric ones converge reliably from pi
+		double E = Math.abs(eccentricity) < 0.8 ? M + eccentricity * Math.sin(M) : Math.copySign(Math.PI, M);
+		
+		for(int i = 0; i < MAX_ITERATIONS; i++)
+		{
+			double step = (E - eccentricity * Math.sin(E) - M) / (1 - eccentricity * Math.cos(E));
+			E -= step;
+			
+			if(Math.abs(step) < tolerance)
+				break;
+		}
+		
+		return E + revolutions;
+	}
+}
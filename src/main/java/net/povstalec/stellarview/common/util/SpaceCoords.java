@@ -12,6 +12,7 @@ import org.joml.Quaterniond;
 import org.joml.Quaternionf;
 import org.joml.Vector3d;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
 public class SpaceCoords implements INBTSerializable<CompoundTag>
 {
@@ -83,9 +84,9 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 	 */
 	public double distanceSquared(SpaceCoords other)
 	{
-		double xDistance = this.x.sub(other.x).toKm();
-		double yDistance = this.y.sub(other.y).toKm();
-		double zDistance = this.z.sub(other.z).toKm();
+		double xDistance = kmDifference(this.x.ly, this.x.km, other.x.ly, other.x.km);
+		double yDistance = kmDifference(this.y.ly, this.y.km, other.y.ly, other.y.km);
+		double zDistance = kmDifference(this.z.ly, this.z.km, other.z.ly, other.z.km);
 		
 		return xDistance * xDistance + yDistance * yDistance + zDistance * zDistance;
 	}
@@ -109,24 +110,84 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 		return distance(NULL_COORDS);
 	}
 	
+	/**
+	 * Writes the position of these coordinates relative to the origin into dest, in kilometers
+	 * @param origin The coordinates the position is relative to
+	 * @param dest The vector the result is written into
+	 * @return dest
+	 */
+	public Vector3d relativeKm(SpaceCoords origin, Vector3d dest)
+	{
+		return dest.set(kmDifference(this.x.ly, this.x.km, origin.x.ly, origin.x.km),
+				kmDifference(this.y.ly, this.y.km, origin.y.ly, origin.y.km),
+				kmDifference(this.z.ly, this.z.km, origin.z.ly, origin.z.km));
+	}
+	
+	/**
+	 * Difference between two distances given as light years and kilometers, without creating a SpaceDistance for it
+	 * @return Returns the difference in kilometers
+	 */
+	public static double kmDifference(long ly, double km, long otherLy, double otherKm)
+	{
+		// Subtracting the light years first keeps the precision when both distances are far from the center
+		return SpaceDistance.lyToKm(ly - otherLy) + (km - otherKm);
+	}
+	
+	/**
+	 * @return Returns the squared difference between two distances given as light years and kilometers, in light years
+	 */
+	public static long lyDifferenceSquared(long lyX, long lyY, long lyZ, long otherLyX, long otherLyY, long otherLyZ)
+	{
+		long xDistance = lyX - otherLyX;
+		long yDistance = lyY - otherLyY;
+		long zDistance = lyZ - otherLyZ;
+		
+		return xDistance * xDistance + yDistance * yDistance + zDistance * zDistance;
+	}
+	
+	/**
+	 * @param other The other coordinates that are compared to these coordinates
+	 * @return Returns the squared distance between the light year parts of two coordinate values, same as sub(other).lyDistanceSquared() without creating new coordinates
+	 */
+	public long lyDistanceSquared(SpaceCoords other)
+	{
+		return lyDifferenceSquared(this.x.ly, this.y.ly, this.z.ly, other.x.ly, other.y.ly, other.z.ly);
+	}
+	
 	public static Quaterniond getQuaterniond(ClientLevel level, ViewCenter viewCenter, float partialTicks)
 	{
-		Quaterniond q = new Quaterniond();
+		return getQuaterniond(level, viewCenter, partialTicks, new Quaterniond());
+	}
+	
+	/**
+	 * Same as {@link #getQuaterniond(ClientLevel, ViewCenter, float)}, but the result is written into dest instead of a new quaternion
+	 */
+	public static Quaterniond getQuaterniond(ClientLevel level, ViewCenter viewCenter, float partialTicks, Quaterniond dest)
+	{
+		dest.identity();
 		// Inverting so that we can view the world through the relative rotation of our view center
 		if(!GeneralConfig.disable_view_center_rotation.get())
-			viewCenter.getObjectAxisRotation().quaterniond().invert(q);
+			viewCenter.getObjectAxisRotation().quaterniond().invert(dest);
 		
-		return q;
+		return dest;
 	}
 	
 	public static Quaternionf getQuaternionf(ClientLevel level, ViewCenter viewCenter, float partialTicks)
 	{
-		Quaternionf q = new Quaternionf();
+		return getQuaternionf(level, viewCenter, partialTicks, new Quaternionf());
+	}
+	
+	/**
+	 * Same as {@link #getQuaternionf(ClientLevel, ViewCenter, float)}, but the result is written into dest instead of a new quaternion
+	 */
+	public static Quaternionf getQuaternionf(ClientLevel level, ViewCenter viewCenter, float partialTicks, Quaternionf dest)
+	{
+		dest.identity();
 		// Inverting so that we can view the world through the relative rotation of our view center
 		if(!GeneralConfig.disable_view_center_rotation.get())
-			viewCenter.getObjectAxisRotation().quaternionf().invert(q);
+			viewCenter.getObjectAxisRotation().quaternionf().invert(dest);
 		
-		return q;
+		return dest;
 	}
 	
 	/**
@@ -136,8 +197,7 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 	 */
 	public SphericalCoords skyPosition(ClientLevel level, ViewCenter viewCenter, float radius, float partialTicks, boolean adjustForRotation)
 	{
-		SpaceCoords viewCenterCoords = viewCenter.getCoords();
-		Vector3d positionVector = new Vector3d(this.x.sub(viewCenterCoords.x).toKm(), this.y.sub(viewCenterCoords.y).toKm(), this.z.sub(viewCenterCoords.z).toKm());
+		Vector3d positionVector = relativeKm(viewCenter.getCoords(), new Vector3d());
 		
 		if(adjustForRotation)
 		{
@@ -154,8 +214,7 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 	 */
 	public SphericalCoords skyPosition(ClientLevel level, ViewCenter viewCenter, float partialTicks, boolean adjustForRotation)
 	{
-		SpaceCoords viewCenterCoords = viewCenter.getCoords();
-		Vector3d positionVector = new Vector3d(this.x.sub(viewCenterCoords.x).toKm(), this.y.sub(viewCenterCoords.y).toKm(), this.z.sub(viewCenterCoords.z).toKm());
+		Vector3d positionVector = relativeKm(viewCenter.getCoords(), new Vector3d());
 		
 		if(adjustForRotation)
 		{
@@ -191,6 +250,60 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 		return new SpaceCoords(this.x.sub(vector.x), this.y.sub(vector.y), this.z.sub(vector.z));
 	}
 	
+	//============================================================================================
+	//**********************************In place modification*************************************
+	//============================================================================================
+	
+	/*
+	 * Unlike add and sub, these change the coordinates they're called on instead of creating new ones,
+	 * so they should only be used on coordinates that aren't shared with anything else
+	 */
+	
+	public SpaceCoords set(SpaceCoords other)
+	{
+		this.x.set(other.x.ly, other.x.km);
+		this.y.set(other.y.ly, other.y.km);
+		this.z.set(other.z.ly, other.z.km);
+		
+		return this;
+	}
+	
+	public SpaceCoords set(long lyX, long lyY, long lyZ, double kmX, double kmY, double kmZ)
+	{
+		this.x.set(lyX, kmX);
+		this.y.set(lyY, kmY);
+		this.z.set(lyZ, kmZ);
+		
+		return this;
+	}
+	
+	public SpaceCoords addInPlace(SpaceCoords other)
+	{
+		this.x.addInPlace(other.x.ly, other.x.km);
+		this.y.addInPlace(other.y.ly, other.y.km);
+		this.z.addInPlace(other.z.ly, other.z.km);
+		
+		return this;
+	}
+	
+	public SpaceCoords addInPlace(Vector3fc vector)
+	{
+		this.x.addInPlace(0, vector.x());
+		this.y.addInPlace(0, vector.y());
+		this.z.addInPlace(0, vector.z());
+		
+		return this;
+	}
+	
+	public SpaceCoords subInPlace(SpaceCoords other)
+	{
+		this.x.addInPlace(-other.x.ly, -other.x.km);
+		this.y.addInPlace(-other.y.ly, -other.y.km);
+		this.z.addInPlace(-other.z.ly, -other.z.km);
+		
+		return this;
+	}
+	
 	//============================================================================================
 	//************************************Getters and Setters*************************************
 	//============================================================================================
@@ -288,14 +401,36 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 		{
 			if(this.km >= KM_PER_LY || this.km <= -KM_PER_LY)
 			{
-				long additionalLightYears = kmToLy(this.km );
-				double subKm = this.km - lyToKm(additionalLightYears);
+				long additionalLightYears = kmToLy(this.km);
 				
 				this.ly += additionalLightYears;
-				this.km -= subKm;
+				this.km -= lyToKm(additionalLightYears);
 			}
 		}
 		
+		/**
+		 * Sets the distance, moving whole light years from the kilometers into the light years
+		 * @return Returns this distance
+		 */
+		public SpaceDistance set(long lightYears, double kilometers)
+		{
+			this.ly = lightYears;
+			this.km = kilometers;
+			
+			handleKmOverflow();
+			
+			return this;
+		}
+		
+		/**
+		 * Adds to the distance, same as add() without creating a new distance
+		 * @return Returns this distance
+		 */
+		public SpaceDistance addInPlace(long lightYears, double kilometers)
+		{
+			return set(this.ly + lightYears, this.km + kilometers);
+		}
+		
 		public long ly()
 		{
 			return ly;
@@ -321,6 +456,11 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 		
 		
 		public double toKm()
+		{
+			return toKm(ly, km);
+		}
+		
+		public static double toKm(long ly, double km)
 		{
 			return km + lyToKm(ly);
 		}
@@ -0,0 +1,124 @@
+package net.povstalec.stellarview.common.util;
+
+import org.joml.Vector3d;
+
+/**
+ * Stores many coordinates as parallel arrays of light years and kilometers (x, y, z for each coordinate),
+ * so positions relative to a single origin can be worked out for all of them without creating any SpaceCoords or SpaceDistances.
+ */
+public class SpaceCoordsArray
+{
+	private final long[] ly;
+	private final double[] km;
+	
+	public SpaceCoordsArray(int size)
+	{
+		this.ly = new long[size * 3];
+		this.km = new double[size * 3];
+	}
+	
+	public int size()
+	{
+		return ly.length / 3;
+	}
+	
+	public void set(int index, SpaceCoords coords)
+	{
+		int i = index * 3;
+		
+		ly[i] = coords.x().ly();
+		ly[i + 1] = coords.y().ly();
+		ly[i + 2] = coords.z().ly();
+		
+		km[i] = coords.x().km();
+		km[i + 1] = coords.y().km();
+		km[i + 2] = coords.z().km();
+	}
+	
+	/**
+	 * @param axis 0 for x, 1 for y, 2 for z
+	 */
+	public long ly(int index, int axis)
+	{
+		return ly[index * 3 + axis];
+	}
+	
+	/**
+	 * @param axis 0 for x, 1 for y, 2 for z
+	 */
+	public double km(int index, int axis)
+	{
+		return km[index * 3 + axis];
+	}
+	
+	/**
+	 * @param axis 0 for x, 1 for y, 2 for z
+	 * @return Returns the position of the coordinates relative to the origin along the axis, in kilometers
+	 */
+	public double relativeKm(int index, int axis, SpaceCoords origin)
+	{
+		SpaceCoords.SpaceDistance originDistance = axis == 0 ? origin.x() : axis == 1 ? origin.y() : origin.z();
+		
+		return SpaceCoords.kmDifference(ly[index * 3 + axis], km[index * 3 + axis], originDistance.ly(), originDistance.km());
+	}
+	
+	/**
+	 * Writes the position of the coordinates relative to the origin into dest, in kilometers
+	 * @return dest
+	 */
+	public Vector3d relativeKm(int index, SpaceCoords origin, Vector3d dest)
+	{
+		int i = index * 3;
+		
+		return dest.set(SpaceCoords.kmDifference(ly[i], km[i], origin.x().ly(), origin.x().km()),
+				SpaceCoords.kmDifference(ly[i + 1], km[i + 1], origin.y().ly(), origin.y().km()),
+				SpaceCoords.kmDifference(ly[i + 2], km[i + 2], origin.z().ly(), origin.z().km()));
+	}
+	
+	/**
+	 * Writes the positions of a range of coordinates relative to the origin into dest, in kilometers (x, y, z for each coordinate)
+	 * @param from Index of the first coordinates
+	 * @param to Index right after the last coordinates
+	 * @param dest Array the results are written into, starting at the first element
+	 */
+	public void relativeKm(int from, int to, SpaceCoords origin, double[] dest)
+	{
+		long originLyX = origin.x().ly();
+		long originLyY = origin.y().ly();
+		long originLyZ = origin.z().ly();
+		double originKmX = origin.x().km();
+		double originKmY = origin.y().km();
+		double originKmZ = origin.z().km();
+		
+		for(int i = from * 3, j = 0; i < to * 3; i += 3, j += 3)
+		{
+			dest[j] = SpaceCoords.kmDifference(ly[i], km[i], originLyX, originKmX);
+			dest[j + 1] = SpaceCoords.kmDifference(ly[i + 1], km[i + 1], originLyY, originKmY);
+			dest[j + 2] = SpaceCoords.kmDifference(ly[i + 2], km[i + 2], originLyZ, originKmZ);
+		}
+	}
+	
+	/**
+	 * @return Returns the squared distance between the coordinates and the origin, in kilometers
+	 */
+	public double distanceSquared(int index, SpaceCoords origin)
+	{
+		int i = index * 3;
+		
+		double xDistance = SpaceCoords.kmDifference(ly[i], km[i], origin.x().ly(), origin.x().km());
+		double yDistance = SpaceCoords.kmDifference(ly[i + 1], km[i + 1], origin.y().ly(), origin.y().km());
+		double zDistance = SpaceCoords.kmDifference(ly[i + 2], km[i + 2], origin.z().ly(), origin.z().km());
+		
+		return xDistance * xDistance + yDistance * yDistance + zDistance * zDistance;
+	}
+	
+	/**
+	 * @return Returns the squared distance between the light year parts of the coordinates and the origin
+	 */
+	public long lyDistanceSquared(int index, SpaceCoords origin)
+	{
+		int i = index * 3;
+		
+		return SpaceCoords.lyDifferenceSquared(ly[i], ly[i + 1], ly[i + 2], origin.x().ly(), origin.y().ly(), origin.z().ly());
+	}
+}
@@ -5,6 +5,7 @@ import com.mojang.serialization.codecs.RecordCodecBuilder;
 import net.minecraft.core.HolderLookup;
 import net.neoforged.neoforge.common.util.INBTSerializable;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -132,6 +133,24 @@ public class StarInfo implements INBTSerializable<CompoundTag>
 		return randomStarType(lod3Types, lod3Weight, random);
 	}
 	
+	@Nullable
+	public List<StarLike.StarType> getLOD1Types()
+	{
+		return lod1Types;
+	}
+	
+	@Nullable
+	public List<StarLike.StarType> getLOD2Types()
+	{
+		return lod2Types;
+	}
+	
+	@Nullable
+	public List<StarLike.StarType> getLOD3Types()
+	{
+		return lod3Types;
+	}
+	
 	public int totalWeight()
 	{
 		return lod1Weight + lod2Weight + lod3Weight;
@@ -9,7 +9,6 @@ import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.client.render.level.util.StellarViewLightmapEffects;
 import net.povstalec.stellarview.client.render.ViewCenters;
 import net.povstalec.stellarview.common.config.TwilightForestConfig;
-import net.povstalec.stellarview.compatibility.enhancedcelestials.EnhancedCelestialsCompatibility;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import twilightforest.client.TwilightForestRenderInfo;
@@ -36,12 +35,7 @@ public class StellarViewTwilightForestEffects extends TwilightForestRenderInfo
 	public void adjustLightmapColors(ClientLevel level, float partialTicks, float skyDarken, float skyLight, float blockLight, int pixelX, int pixelY, Vector3f colors)
     {
 		if(TwilightForestConfig.replace_default.get())
-		{
-			StellarViewLightmapEffects.defaultLightmapColors(level, partialTicks, skyDarken, skyLight, blockLight, pixelX, pixelY, colors);
-			
-			if(StellarView.isEnhancedCelestialsLoaded())
-				EnhancedCelestialsCompatibility.adjustLightmapColors(level, partialTicks, skyDarken, skyLight, blockLight, pixelX, pixelY, colors);
-		}
+			StellarViewLightmapEffects.lightmapColors(level, partialTicks, skyLight, pixelX, pixelY, colors);
 		else
 			super.adjustLightmapColors(level, partialTicks, skyDarken, skyLight, blockLight, pixelX, pixelY, colors);
 	}
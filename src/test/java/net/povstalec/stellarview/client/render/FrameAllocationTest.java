@@ -0,0 +1,232 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.datafixers.util.Either;
+import net.minecraft.client.Camera;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.util.AxisRotation;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+import net.povstalec.stellarview.common.util.SphericalCoords;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails when allocations come back into the steady-state part of a sky frame that runs without a GL context,
+ * which is everything up to the point where the {@link SkyRenderQueue} starts drawing.
+ * Each frame updates a {@link SpaceScene} of orbiting objects and submits every object in its draw order,
+ * {@link SpaceScene#prepare(ViewCenter, ClientLevel, float)} and {@link SpaceScene#beginFrame()} read the config and aren't called
+ */
+public class FrameAllocationTest
+{
+	private static final int WARMUP_FRAMES = 1000;
+	private static final int MEASURED_FRAMES = 1000;
+	
+	private static final int SYSTEMS = 4;
+	private static final int PLANETS = 8;
+	private static final int MOONS = 5;
+	private static final int STAR_FIELDS = 8;
+	
+	private final ResourceLocation[] textures = new ResourceLocation[] {
+			ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "textures/environment/sun.png"),
+			ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "textures/environment/moon.png"),
+			ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "textures/environment/planet.png")
+	};
+	private final Matrix4f[] poses = new Matrix4f[] {new Matrix4f(), new Matrix4f().rotateY(1), new Matrix4f().rotateX(1)};
+	private final Runnable setupFog = () -> {};
+	
+	// Reused the same way the Star Field renderers reuse their draws
+	private final Runnable[] starFieldDraws = new Runnable[STAR_FIELDS];
+	
+	private ViewCenter viewCenter;
+	private SpaceScene scene;
+	private int[] roots;
+	
+	private float partialTicks = 0;
+	
+	@BeforeEach
+	public void setUp()
+	{
+		SkyRenderQueue.clear();
+		
+		for(int i = 0; i < STAR_FIELDS; i++)
+		{
+			starFieldDraws[i] = () -> {};
+		}
+		
+		Random random = new Random(0);
+		ArrayList<SpaceObjectRenderer> rootRenderers = new ArrayList<SpaceObjectRenderer>();
+		for(int i = 0; i < SYSTEMS; i++)
+		{
+			OrbitingRenderer star = new OrbitingRenderer(random, 1000, 0);
+			for(int j = 0; j < PLANETS; j++)
+			{
+				OrbitingRenderer planet = new OrbitingRenderer(random, 0, 500000000);
+				for(int k = 0; k < MOONS; k++)
+				{
+					planet.addChild(new OrbitingRenderer(random, 0, 2000000));
+				}
+				star.addChild(planet);
+			}
+			rootRenderers.add(star);
+		}
+		
+		viewCenter = new ViewCenter(Optional.empty(), Optional.empty(), new AxisRotation(), 0, null, null, null, null, false, false, false, 1);
+		scene = new SpaceScene(rootRenderers);
+		
+		roots = new int[SYSTEMS];
+		for(int i = 0; i < SYSTEMS; i++)
+		{
+			roots[i] = i * (1 + PLANETS * (1 + MOONS));
+		}
+	}
+	
+	@AfterEach
+	public void tearDown()
+	{
+		SkyRenderQueue.clear();
+	}
+	
+	private void submitFrame()
+	{
+		SkyRenderQueue.begin(setupFog);
+		
+		for(int i = 0; i < STAR_FIELDS; i++)
+		{
+			SkyRenderQueue.submit(SkyRenderQueue.BLEND_ADDITIVE, true, starFieldDraws[i]);
+		}
+		
+		// Every frame has different partial ticks, so no object can reuse the position of the last frame
+		partialTicks += 0.001F;
+		if(partialTicks >= 1)
+			partialTicks = 0;
+		
+		for(int root : roots)
+		{
+			int count = scene.update(viewCenter, root, partialTicks);
+			
+			// What rendering reads and submits for every object, in draw order
+			for(int i = 0; i < count; i++)
+			{
+				int index = scene.drawOrder(i);
+				SphericalCoords position = scene.skyPosition(index, 100);
+				
+				SkyRenderQueue.submitBillboard(textures[index % textures.length], position.theta > 0 ? SkyRenderQueue.BLEND_ADDITIVE : SkyRenderQueue.BLEND_DEFAULT,
+						poses[(index / 4) % poses.length], index);
+			}
+		}
+		
+		SpaceScene.endFrame();
+		SkyRenderQueue.discard();
+	}
+	
+	@Test
+	public void steadyStateFramesDoNotAllocate()
+	{
+		assumeTrue(FrameAllocationProbe.isSupported(), "Allocations can't be measured on this JVM");
+		
+		// The first frames grow the queue's arrays and fill in the texture indices
+		for(int frame = 0; frame < WARMUP_FRAMES; frame++)
+		{
+			submitFrame();
+		}
+		
+		FrameAllocationProbe.begin();
+		for(int frame = 0; frame < MEASURED_FRAMES; frame++)
+		{
+			submitFrame();
+		}
+		FrameAllocationProbe.end();
+		
+		long allocated = FrameAllocationProbe.allocatedLastFrame();
+		assertTrue(allocated < FrameAllocationProbe.FRAME_BUDGET,
+				MEASURED_FRAMES + " frames allocated " + allocated + " bytes, " + allocated / MEASURED_FRAMES + " bytes per frame");
+	}
+	
+	@Test
+	public void probeNoticesAllocations()
+	{
+		assumeTrue(FrameAllocationProbe.isSupported(), "Allocations can't be measured on this JVM");
+		
+		List<Runnable> draws = new ArrayList<Runnable>();
+		
+		FrameAllocationProbe.begin();
+		for(int i = 0; i < MEASURED_FRAMES; i++)
+		{
+			// What submitting a new capturing lambda every frame looks like
+			int frame = i;
+			draws.add(() -> StellarView.LOGGER.trace("Frame " + frame));
+		}
+		FrameAllocationProbe.end();
+		
+		assertTrue(FrameAllocationProbe.allocatedLastFrame() > FrameAllocationProbe.FRAME_BUDGET);
+	}
+	
+	//============================================================================================
+	//****************************************Test objects****************************************
+	//============================================================================================
+	
+	private static class TestObject extends SpaceObject
+	{
+		private TestObject(SpaceCoords coords)
+		{
+			super(Optional.empty(), Either.left(coords), new AxisRotation());
+		}
+	}
+	
+	/**
+	 * Moves along a circular orbit in the XZ plane, doesn't render anything
+	 */
+	private static class OrbitingRenderer extends SpaceObjectRenderer<TestObject>
+	{
+		private final float orbitRadius;
+		private final float phase;
+		private final float angularSpeed;
+		
+		private OrbitingRenderer(Random random, long maxLy, float orbitRadius)
+		{
+			super(new TestObject(maxLy > 0 ? new SpaceCoords(random.nextLong(-maxLy, maxLy), random.nextLong(-maxLy, maxLy), random.nextLong(-maxLy, maxLy)) : new SpaceCoords()));
+			
+			this.orbitRadius = orbitRadius * (0.5F + random.nextFloat());
+			this.phase = random.nextFloat() * 2 * (float) Math.PI;
+			this.angularSpeed = 0.001F + random.nextFloat() * 0.01F;
+		}
+		
+		@Override
+		public Vector3f getPosition(ViewCenter viewCenter, AxisRotation axisRotation, long ticks, float partialTicks, Vector3f dest)
+		{
+			return getPosition(viewCenter, ticks, partialTicks, dest);
+		}
+		
+		@Override
+		public Vector3f getPosition(ViewCenter viewCenter, long ticks, float partialTicks, Vector3f dest)
+		{
+			if(orbitRadius == 0)
+				return dest.zero();
+			
+			float angle = phase + (ticks + partialTicks) * angularSpeed;
+			
+			return dest.set(orbitRadius * (float) Math.cos(angle), 0, orbitRadius * (float) Math.sin(angle));
+		}
+		
+		@Override
+		public void renderObject(ViewCenter viewCenter, ClientLevel level, float partialTicks, Matrix4f modelViewMatrix, Camera camera,
+								 Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator,
+								 SpaceScene scene, int index) {}
+	}
+}
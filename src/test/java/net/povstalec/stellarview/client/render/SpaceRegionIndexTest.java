@@ -0,0 +1,159 @@
+package net.povstalec.stellarview.client.render;
+
+import net.povstalec.stellarview.api.common.SpaceRegion;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Random adds, removes and queries checked against a HashMap.
+ * Positions are picked from a small cube, so the same positions keep being replaced and removed,
+ * which makes removals shift back long runs of slots in the table.
+ */
+public class SpaceRegionIndexTest
+{
+	private static final int OPERATIONS = 50000;
+	
+	private static long squaredDistance(SpaceRegion.RegionPos pos, long x, long y, long z)
+	{
+		long dx = pos.x() - x;
+		long dy = pos.y() - y;
+		long dz = pos.z() - z;
+		
+		return dx * dx + dy * dy + dz * dz;
+	}
+	
+	private static void checkQuery(SpaceRegionIndex index, HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer> reference, long x, long y, long z, int range)
+	{
+		SpaceRegion.RegionPos center = new SpaceRegion.RegionPos(x, y, z);
+		HashSet<SpaceRegionRenderer> expected = new HashSet<SpaceRegionRenderer>();
+		for(SpaceRegionRenderer region : reference.values())
+		{
+			if(region.getRegionPos().isInRange(center, range))
+				expected.add(region);
+		}
+		
+		SpaceRegionIndex.Query query = index.query(x, y, z, range);
+		HashSet<SpaceRegionRenderer> found = new HashSet<SpaceRegionRenderer>();
+		long lastDistance = -1;
+		for(int i = 0; i < query.size(); i++)
+		{
+			SpaceRegionRenderer region = query.get(i);
+			long distance = squaredDistance(region.getRegionPos(), x, y, z);
+			
+			assertTrue(distance >= lastDistance, "Query isn't ordered nearest-first");
+			lastDistance = distance;
+			found.add(region);
+		}
+		
+		assertEquals(query.size(), found.size(), "Query returned a region twice");
+		assertEquals(expected, found);
+	}
+	
+	private static void checkContents(SpaceRegionIndex index, HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer> reference)
+	{
+		assertEquals(reference.size(), index.size());
+		
+		HashSet<SpaceRegionRenderer> dense = new HashSet<SpaceRegionRenderer>();
+		for(int i = 0; i < index.size(); i++)
+		{
+			dense.add(index.get(i));
+		}
+		assertEquals(new HashSet<SpaceRegionRenderer>(reference.values()), dense);
+		
+		for(SpaceRegionRenderer region : reference.values())
+		{
+			assertSame(region, index.get(region.getRegionPos()));
+		}
+	}
+	
+	private static void randomOperations(long seed, int extent)
+	{
+		Random random = new Random(seed);
+		SpaceRegionIndex index = new SpaceRegionIndex();
+		HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer> reference = new HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer>();
+		
+		for(int i = 0; i < OPERATIONS; i++)
+		{
+			long x = random.nextInt(extent * 2) - extent;
+			long y = random.nextInt(extent * 2) - extent;
+			long z = random.nextInt(extent * 2) - extent;
+			SpaceRegion.RegionPos pos = new SpaceRegion.RegionPos(x, y, z);
+			
+			int operation = random.nextInt(10);
+			if(operation < 5)
+			{
+				SpaceRegionRenderer region = new SpaceRegionRenderer(new SpaceRegion(pos));
+				index.put(region);
+				reference.put(pos, region);
+			}
+			else if(operation < 9)
+			{
+				index.remove(pos);
+				reference.remove(pos);
+				assertNull(index.get(x, y, z));
+			}
+			else
+				checkQuery(index, reference, x, y, z, 1 + random.nextInt(extent));
+			
+			assertSame(reference.get(pos), index.get(x, y, z));
+			
+			if(i % 1000 == 0)
+				checkContents(index, reference);
+		}
+		
+		checkContents(index, reference);
+	}
+	
+	@Test
+	public void matchesHashMapWithFewPositions()
+	{
+		// 512 positions, the table keeps growing and emptying out
+		randomOperations(1, 4);
+	}
+	
+	@Test
+	public void matchesHashMapWithManyPositions()
+	{
+		// Mostly scans the occupied regions for small ranges and probes the cells around the position for large ones
+		randomOperations(2, 12);
+	}
+	
+	@Test
+	public void removingEverythingEmptiesTheIndex()
+	{
+		SpaceRegionIndex index = new SpaceRegionIndex();
+		HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer> reference = new HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer>();
+		
+		for(long x = 0; x < 20; x++)
+		{
+			for(long y = 0; y < 20; y++)
+			{
+				SpaceRegionRenderer region = new SpaceRegionRenderer(new SpaceRegion(x, y, 0));
+				index.put(region);
+				reference.put(region.getRegionPos(), region);
+			}
+		}
+		checkContents(index, reference);
+		checkQuery(index, reference, 10, 10, 0, 5);
+		
+		for(SpaceRegion.RegionPos pos : reference.keySet())
+		{
+			index.remove(pos);
+		}
+		
+		assertEquals(0, index.size());
+		assertEquals(0, index.query(10, 10, 0, 5).size());
+		for(SpaceRegion.RegionPos pos : reference.keySet())
+		{
+			assertNull(index.get(pos));
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package net.povstalec.stellarview.client.util;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two clusters of Stars, one 10 000 ly in front of a camera at the origin looking towards negative X and one 10 000 ly behind it.
+ * Each cluster is split into 4 cells, the cells of the cluster in front come first.
+ */
+public class StarCellsTest
+{
+	private static final int CLUSTER_STARS = 2048;
+	private static final int STARS = CLUSTER_STARS * 2;
+	private static final int[] TIER_ENDS = {1366, 2731, STARS};
+	
+	private final float[] x = new float[STARS];
+	private final float[] y = new float[STARS];
+	private final float[] z = new float[STARS];
+	private final float[] sizes = new float[STARS];
+	private final int[] order = new int[STARS];
+	
+	private StarCells starCells;
+	private final StarCells.Ranges ranges = new StarCells.Ranges();
+	
+	@BeforeEach
+	public void setUp()
+	{
+		for(int i = 0; i < STARS; i++)
+		{
+			// Spreads consecutive Stars (and so every tier) over both clusters
+			int point = (i * 1237) % STARS;
+			int cluster = point / CLUSTER_STARS;
+			int inCluster = point % CLUSTER_STARS;
+			
+			float clusterX = (inCluster / 256) * 1000F / 7;
+			x[i] = cluster == 0 ? -11000 + clusterX : 10000 + clusterX;
+			y[i] = -500 + ((inCluster / 16) % 16) * 1000F / 15;
+			z[i] = -500 + (inCluster % 16) * 1000F / 15;
+			sizes[i] = 0.1F;
+		}
+		
+		starCells = StarCells.partition(x, y, z, sizes, STARS, TIER_ENDS, order);
+	}
+	
+	private static FrustumIntersection cameraLookingAlongNegativeX()
+	{
+		Matrix4f matrix = new Matrix4f().perspective((float) Math.toRadians(60), 1, 0.05F, 1000)
+				.lookAt(0, 0, 0, -1, 0, 0, 0, 1, 0);
+		
+		return new FrustumIntersection(matrix);
+	}
+	
+	private int starsInCells(int firstCell, int endCell)
+	{
+		int stars = 0;
+		for(int i = 0; i < ranges.size(); i++)
+		{
+			if(ranges.first(i) >= starCells.cellStart(firstCell) && ranges.first(i) < starCells.cellStart(endCell))
+				stars += ranges.count(i);
+		}
+		
+		return stars;
+	}
+	
+	private int firstTierStars()
+	{
+		int stars = 0;
+		for(int cell = 0; cell < starCells.cells(); cell++)
+		{
+			stars += starCells.visibleStars(cell, 1, 1);
+		}
+		
+		return stars;
+	}
+	
+	@Test
+	public void partitionsClustersIntoCells()
+	{
+		assertEquals(8, starCells.cells());
+		assertEquals(CLUSTER_STARS, starCells.cellStart(4));
+		
+		for(int i = 0; i < STARS; i++)
+		{
+			assertEquals(i < CLUSTER_STARS, x[order[i]] < 0, "Star " + i);
+		}
+	}
+	
+	@Test
+	public void dropsCellsBehindTheCamera()
+	{
+		starCells.visibleRanges(cameraLookingAlongNegativeX(), 0, 0, 0, StarCells.LOD_TIERS, 0, 1, ranges);
+		
+		// All 4 cells in front are drawn fully and merged into one range, nothing behind the camera is drawn
+		assertEquals(1, ranges.size());
+		assertEquals(0, ranges.first(0));
+		assertEquals(CLUSTER_STARS, ranges.count(0));
+		assertEquals(CLUSTER_STARS, ranges.stars());
+		
+		for(int i = ranges.first(0); i < ranges.first(0) + ranges.count(0); i++)
+		{
+			assertTrue(x[order[i]] < 0, "Star " + i + " is behind the camera");
+		}
+	}
+	
+	@Test
+	public void mergesAdjacentRanges()
+	{
+		starCells.visibleRanges(null, 0, 0, 0, StarCells.LOD_TIERS, 0, 1, ranges);
+		
+		assertEquals(1, ranges.size());
+		assertEquals(STARS, ranges.stars());
+	}
+	
+	@Test
+	public void limitsTiersToMaxTiers()
+	{
+		starCells.visibleRanges(null, 0, 0, 0, 1, 0, 1, ranges);
+		
+		// Only a prefix of each cell is drawn, so no two ranges touch
+		assertEquals(starCells.cells(), ranges.size());
+		assertEquals(TIER_ENDS[0], ranges.stars());
+		assertEquals(firstTierStars(), ranges.stars());
+	}
+	
+	@Test
+	public void capsTiersByDistance()
+	{
+		// Past the minimum detail distance only the first tier is drawn
+		starCells.visibleRanges(null, StarCells.MIN_DETAIL_DISTANCE + 100000, 0, 0, StarCells.LOD_TIERS, 0, 1, ranges);
+		assertEquals(TIER_ENDS[0], ranges.stars());
+		
+		// In between, the cluster behind (closer to this viewer) gets more tiers than the cluster in front
+		starCells.visibleRanges(null, 60000, 0, 0, StarCells.LOD_TIERS, 0, 1, ranges);
+		int farStars = starsInCells(0, 4);
+		int nearStars = starsInCells(4, starCells.cells());
+		
+		assertTrue(ranges.stars() > TIER_ENDS[0] && ranges.stars() < STARS, "Drew " + ranges.stars() + " Stars");
+		assertTrue(nearStars > farStars, "Near cluster drew " + nearStars + ", far cluster drew " + farStars);
+		
+		for(int cell = 0; cell < starCells.cells(); cell++)
+		{
+			double distance = starCells.distanceToCell(cell, 60000, 0, 0);
+			assertTrue(distance > StarCells.FULL_DETAIL_DISTANCE && distance < StarCells.MIN_DETAIL_DISTANCE);
+		}
+	}
+}
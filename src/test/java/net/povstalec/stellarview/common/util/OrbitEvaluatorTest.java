@@ -0,0 +1,130 @@
+package net.povstalec.stellarview.common.util;
+
+import net.povstalec.stellarview.api.common.space_objects.OrbitingObject;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrbitEvaluatorTest
+{
+	private static final double MAX_ECCENTRICITY = 0.99;
+	private static final double ECCENTRICITY_STEP = 0.01;
+	private static final int REVOLUTIONS = 4;
+	private static final double MEAN_ANOMALY_STEP = 0.01;
+	
+	private static final double ANOMALY_TOLERANCE = 1E-9;
+	
+	/**
+	 * Kepler's equation solved by bisection, which is slow but can't fail to converge since E - e * sin(E) only ever increases for e below 1
+	 */
+	private static double referenceEccentricAnomaly(double eccentricity, double meanAnomaly)
+	{
+		// |E - M| = |e * sin(E)| can't be more than e
+		double low = meanAnomaly - 1;
+		double high = meanAnomaly + 1;
+		
+		for(int i = 0; i < 200; i++)
+		{
+			double middle = (low + high) / 2;
+			if(middle == low || middle == high)
+				break;
+			
+			if(middle - eccentricity * Math.sin(middle) < meanAnomaly)
+				low = middle;
+			else
+				high = middle;
+		}
+		
+		return (low + high) / 2;
+	}
+	
+	@Test
+	public void solveKeplerMatchesReference()
+	{
+		double worstError = 0;
+		
+		for(int e = 0; e * ECCENTRICITY_STEP <= MAX_ECCENTRICITY + 1E-9; e++)
+		{
+			double eccentricity = e * ECCENTRICITY_STEP;
+			
+			for(double meanAnomaly = -REVOLUTIONS * 2 * Math.PI; meanAnomaly <= REVOLUTIONS * 2 * Math.PI; meanAnomaly += MEAN_ANOMALY_STEP)
+			{
+				double solved = OrbitEvaluator.solveKepler(eccentricity, meanAnomaly, OrbitEvaluator.DEFAULT_TOLERANCE);
+				double reference = referenceEccentricAnomaly(eccentricity, meanAnomaly);
+				
+				worstError = Math.max(worstError, Math.abs(solved - reference));
+				assertEquals(reference, solved, ANOMALY_TOLERANCE, "e = " + eccentricity + ", M = " + meanAnomaly);
+			}
+		}
+		
+		assertTrue(worstError < ANOMALY_TOLERANCE);
+	}
+	
+	@Test
+	public void solveKeplerHandlesRevolutionBoundaries()
+	{
+		// Mean anomalies right at the edges of the range the solver wraps into
+		for(int revolution = -REVOLUTIONS; revolution <= REVOLUTIONS; revolution++)
+		{
+			for(double offset : new double[] {-Math.PI, -Math.ulp(Math.PI), 0, Math.ulp(Math.PI), Math.PI})
+			{
+				double meanAnomaly = revolution * 2 * Math.PI + offset;
+				
+				assertEquals(referenceEccentricAnomaly(MAX_ECCENTRICITY, meanAnomaly),
+						OrbitEvaluator.solveKepler(MAX_ECCENTRICITY, meanAnomaly, OrbitEvaluator.DEFAULT_TOLERANCE), ANOMALY_TOLERANCE, "M = " + meanAnomaly);
+			}
+		}
+	}
+	
+	@Test
+	public void positionsMatchOrbitMatrix()
+	{
+		float[][] orbits = {
+				// Apoapsis, periapsis, argument of periapsis, inclination, longtitude of ascending node, epoch mean anomaly
+				{1, 1, 0, 0, 0, 0},
+				{150, 100, 30, 5, 80, 45},
+				{1000, 10, 270, 60, 200, 180},
+				{5000, 4900, 90, 179, 10, -30}
+		};
+		
+		for(float[] orbit : orbits)
+		{
+			OrbitingObject.OrbitInfo orbitInfo = new OrbitingObject.OrbitInfo(orbit[0], orbit[1], 0,
+					new OrbitingObject.OrbitalPeriod(24000, 1, false), orbit[2], orbit[3], orbit[4], orbit[5]);
+			OrbitEvaluator evaluator = orbitInfo.evaluator();
+			float tolerance = 1E-5F * orbit[0];
+			
+			for(double eccentricAnomaly = -2 * Math.PI; eccentricAnomaly <= 2 * Math.PI; eccentricAnomaly += 0.05)
+			{
+				Vector3f legacy = new Vector3f(OrbitingObject.INITIAL_ORBIT_VECTOR).rotateY((float) eccentricAnomaly).mulProject(orbitInfo.getOrbitMatrix());
+				Vector3f evaluated = evaluator.positionAt(eccentricAnomaly, new Vector3f());
+				
+				assertEquals(0, legacy.distance(evaluated), tolerance, "Orbit " + orbit[0] + "/" + orbit[1] + ", E = " + eccentricAnomaly);
+			}
+		}
+	}
+	
+	@Test
+	public void positionsOverTimeMatchOrbitMatrix()
+	{
+		OrbitingObject.OrbitInfo orbitInfo = new OrbitingObject.OrbitInfo(800, 50, 0,
+				new OrbitingObject.OrbitalPeriod(3000, 1, false), 120, 20, 45, 10);
+		OrbitEvaluator evaluator = orbitInfo.evaluator();
+		int tickMultiplier = 1;
+		
+		for(long ticks = 0; ticks < 4 * 3000; ticks += 7)
+		{
+			float partialTicks = (ticks % 10) / 10.0F;
+			
+			double meanAnomaly = orbitInfo.meanAnomaly(ticks % orbitInfo.orbitalPeriod().ticks(), partialTicks, tickMultiplier);
+			double eccentricAnomaly = referenceEccentricAnomaly(orbitInfo.eccentricity(), meanAnomaly);
+			Vector3f legacy = new Vector3f(OrbitingObject.INITIAL_ORBIT_VECTOR).rotateY((float) eccentricAnomaly).mulProject(orbitInfo.getOrbitMatrix());
+			
+			Vector3f evaluated = evaluator.position(ticks, partialTicks, tickMultiplier, new Vector3f());
+			
+			assertEquals(0, legacy.distance(evaluated), 1E-5F * 800, "Ticks " + ticks);
+		}
+	}
+}
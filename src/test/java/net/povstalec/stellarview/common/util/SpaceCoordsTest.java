@@ -0,0 +1,134 @@
+package net.povstalec.stellarview.common.util;
+
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpaceCoordsTest
+{
+	private static final double KM_PER_LY = SpaceCoords.KM_PER_LY;
+	// Rounding error of a double close to a few light years worth of kilometers
+	private static final double KM_TOLERANCE = 0.01;
+	
+	private static void assertDistance(long ly, double km, SpaceCoords.SpaceDistance distance)
+	{
+		assertEquals(ly, distance.ly());
+		assertEquals(km, distance.km(), KM_TOLERANCE);
+	}
+	
+	private static void assertSameDistance(SpaceCoords.SpaceDistance expected, SpaceCoords.SpaceDistance actual)
+	{
+		assertEquals(expected.ly(), actual.ly());
+		assertEquals(expected.km(), actual.km());
+	}
+	
+	private static void assertSameCoords(SpaceCoords expected, SpaceCoords actual)
+	{
+		assertSameDistance(expected.x(), actual.x());
+		assertSameDistance(expected.y(), actual.y());
+		assertSameDistance(expected.z(), actual.z());
+	}
+	
+	private static SpaceCoords randomCoords(Random random)
+	{
+		return new SpaceCoords(random.nextLong(-1000000, 1000000), random.nextLong(-1000000, 1000000), random.nextLong(-1000000, 1000000),
+				(random.nextDouble() * 2 - 1) * KM_PER_LY, (random.nextDouble() * 2 - 1) * KM_PER_LY, (random.nextDouble() * 2 - 1) * KM_PER_LY);
+	}
+	
+	//============================================================================================
+	//*****************************************Km overflow****************************************
+	//============================================================================================
+	
+	@Test
+	public void carriesPositiveKmOverflowIntoLy()
+	{
+		assertDistance(7, 0.5 * KM_PER_LY, new SpaceCoords.SpaceDistance(5, 2.5 * KM_PER_LY));
+		assertDistance(6, 0, new SpaceCoords.SpaceDistance(5, KM_PER_LY));
+		assertDistance(-4, 0.25 * KM_PER_LY, new SpaceCoords.SpaceDistance(-5, 1.25 * KM_PER_LY));
+	}
+	
+	@Test
+	public void carriesNegativeKmOverflowIntoLy()
+	{
+		assertDistance(3, -0.5 * KM_PER_LY, new SpaceCoords.SpaceDistance(5, -2.5 * KM_PER_LY));
+		assertDistance(4, 0, new SpaceCoords.SpaceDistance(5, -KM_PER_LY));
+		assertDistance(-6, -0.25 * KM_PER_LY, new SpaceCoords.SpaceDistance(-5, -1.25 * KM_PER_LY));
+	}
+	
+	@Test
+	public void keepsKmBelowOneLy()
+	{
+		assertDistance(5, 0.999 * KM_PER_LY, new SpaceCoords.SpaceDistance(5, 0.999 * KM_PER_LY));
+		assertDistance(5, -0.999 * KM_PER_LY, new SpaceCoords.SpaceDistance(5, -0.999 * KM_PER_LY));
+	}
+	
+	@Test
+	public void overflowKeepsTheTotalDistance()
+	{
+		Random random = new Random(0);
+		
+		for(int i = 0; i < 10000; i++)
+		{
+			long ly = random.nextLong(-1000, 1000);
+			double km = (random.nextDouble() * 2 - 1) * 10 * KM_PER_LY;
+			SpaceCoords.SpaceDistance distance = new SpaceCoords.SpaceDistance(ly, km);
+			
+			assertTrue(Math.abs(distance.km()) < KM_PER_LY, "Kilometers weren't carried: " + distance);
+			double expected = ly * KM_PER_LY + km;
+			assertEquals(expected, distance.toKm(), Math.abs(expected) * 1E-14 + KM_TOLERANCE);
+		}
+	}
+	
+	@Test
+	public void addingInPlaceCarriesLikeAdding()
+	{
+		SpaceCoords.SpaceDistance distance = new SpaceCoords.SpaceDistance(5, 0.75 * KM_PER_LY);
+		
+		assertDistance(6, 0.25 * KM_PER_LY, distance.copy().addInPlace(0, 0.5 * KM_PER_LY));
+		assertDistance(4, -0.75 * KM_PER_LY, distance.copy().addInPlace(0, -2.5 * KM_PER_LY));
+		assertSameDistance(distance.add(0.5 * KM_PER_LY), distance.copy().addInPlace(0, 0.5 * KM_PER_LY));
+	}
+	
+	//============================================================================================
+	//************************************In place modification***********************************
+	//============================================================================================
+	
+	@Test
+	public void inPlaceMatchesAllocating()
+	{
+		Random random = new Random(1);
+		
+		for(int i = 0; i < 10000; i++)
+		{
+			SpaceCoords coords = randomCoords(random);
+			SpaceCoords other = randomCoords(random);
+			Vector3f vector = new Vector3f((random.nextFloat() * 2 - 1) * 1E12F, (random.nextFloat() * 2 - 1) * 1E12F, (random.nextFloat() * 2 - 1) * 1E12F);
+			
+			assertSameCoords(coords.add(other), coords.copy().addInPlace(other));
+			assertSameCoords(coords.sub(other), coords.copy().subInPlace(other));
+			assertSameCoords(coords.add(vector), coords.copy().addInPlace(vector));
+			assertSameCoords(other, coords.copy().set(other));
+		}
+	}
+	
+	@Test
+	public void inPlaceRelativeMatchesSub()
+	{
+		Random random = new Random(2);
+		
+		for(int i = 0; i < 10000; i++)
+		{
+			SpaceCoords coords = randomCoords(random);
+			SpaceCoords origin = randomCoords(random);
+			SpaceCoords difference = coords.sub(origin);
+			
+			assertEquals(difference.lyDistanceSquared(), coords.lyDistanceSquared(origin));
+			assertEquals(difference.x().toKm(), coords.relativeKm(origin, new Vector3d()).x, Math.abs(difference.x().toKm()) * 1E-12 + KM_TOLERANCE);
+		}
+	}
+}